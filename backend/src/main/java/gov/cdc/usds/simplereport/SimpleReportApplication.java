@@ -11,6 +11,7 @@ import gov.cdc.usds.simplereport.properties.ExperianProperties;
 import gov.cdc.usds.simplereport.properties.OrderingProviderProperties;
 import gov.cdc.usds.simplereport.properties.SendGridProperties;
 import gov.cdc.usds.simplereport.properties.SmartyStreetsProperties;
+import gov.cdc.usds.simplereport.properties.SmsOutboxProperties;
 import gov.cdc.usds.simplereport.service.OrganizationInitializingService;
 import gov.cdc.usds.simplereport.service.ScheduledTasksService;
 import org.springframework.boot.CommandLineRunner;
@@ -35,7 +36,8 @@ import org.springframework.scheduling.annotation.EnableScheduling;
   SendGridProperties.class,
   OrderingProviderProperties.class,
   DynamicsProperties.class,
-  CorsProperties.class
+  CorsProperties.class,
+  SmsOutboxProperties.class
 })
 @EnableAsync
 @EnableScheduling
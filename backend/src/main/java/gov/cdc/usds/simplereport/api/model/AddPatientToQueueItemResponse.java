@@ -0,0 +1,45 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import gov.cdc.usds.simplereport.db.model.TestOrder;
+import java.util.UUID;
+
+/**
+ * What became of one patient in a request to add many patients to the queue at once: either their
+ * new test order, or the reason they were not added.
+ */
+public class AddPatientToQueueItemResponse {
+  private final UUID _patientId;
+  private final TestOrder _testOrder;
+  private final String _error;
+
+  private AddPatientToQueueItemResponse(UUID patientId, TestOrder testOrder, String error) {
+    this._patientId = patientId;
+    this._testOrder = testOrder;
+    this._error = error;
+  }
+
+  public static AddPatientToQueueItemResponse added(TestOrder testOrder) {
+    return new AddPatientToQueueItemResponse(
+        testOrder.getPatient().getInternalId(), testOrder, null);
+  }
+
+  public static AddPatientToQueueItemResponse failed(UUID patientId, String error) {
+    return new AddPatientToQueueItemResponse(patientId, null, error);
+  }
+
+  public UUID getPatientId() {
+    return _patientId;
+  }
+
+  public TestOrder getTestOrder() {
+    return _testOrder;
+  }
+
+  public String getPatientLinkId() {
+    return _testOrder == null ? null : _testOrder.getPatientLink().getInternalId().toString();
+  }
+
+  public String getError() {
+    return _error;
+  }
+}
@@ -0,0 +1,49 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import gov.cdc.usds.simplereport.db.model.TestOrder;
+import java.util.UUID;
+
+/**
+ * What became of one result in a request to submit the results of many tests at once: either the
+ * completed test order, or the reason the result was not recorded.
+ */
+public class AddTestResultsItemResponse {
+  private final UUID _patientId;
+  private final TestOrder _testOrder;
+  private final String _error;
+  private Boolean _deliveryStatus;
+
+  private AddTestResultsItemResponse(UUID patientId, TestOrder testOrder, String error) {
+    this._patientId = patientId;
+    this._testOrder = testOrder;
+    this._error = error;
+  }
+
+  public static AddTestResultsItemResponse recorded(TestOrder testOrder) {
+    return new AddTestResultsItemResponse(testOrder.getPatient().getInternalId(), testOrder, null);
+  }
+
+  public static AddTestResultsItemResponse failed(UUID patientId, String error) {
+    return new AddTestResultsItemResponse(patientId, null, error);
+  }
+
+  public UUID getPatientId() {
+    return _patientId;
+  }
+
+  public ApiTestOrder getTestResult() {
+    return _testOrder == null ? null : new ApiTestOrder(_testOrder);
+  }
+
+  public String getError() {
+    return _error;
+  }
+
+  public Boolean getDeliverySuccess() {
+    return _deliveryStatus;
+  }
+
+  public void setDeliverySuccess(Boolean deliveryStatus) {
+    this._deliveryStatus = deliveryStatus;
+  }
+}
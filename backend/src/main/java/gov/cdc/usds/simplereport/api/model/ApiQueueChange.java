@@ -0,0 +1,29 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import gov.cdc.usds.simplereport.service.model.QueueChange;
+import gov.cdc.usds.simplereport.service.model.QueueChangeType;
+import java.util.UUID;
+
+/** A change to one test order in a facility's queue, as pushed to the queue's subscribers. */
+public class ApiQueueChange {
+  private final QueueChange _change;
+  // null if the order has left the queue
+  private final ApiTestOrder _testOrder;
+
+  public ApiQueueChange(QueueChange change, ApiTestOrder testOrder) {
+    this._change = change;
+    this._testOrder = testOrder;
+  }
+
+  public QueueChangeType getType() {
+    return _change.getType();
+  }
+
+  public UUID getTestOrderId() {
+    return _change.getTestOrderId();
+  }
+
+  public ApiTestOrder getTestOrder() {
+    return _testOrder;
+  }
+}
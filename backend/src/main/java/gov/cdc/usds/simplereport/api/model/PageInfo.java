@@ -0,0 +1,21 @@
+package gov.cdc.usds.simplereport.api.model;
+
+/** Where a page of a connection ends, and whether there is anything after it. */
+public class PageInfo {
+  private final boolean _hasNextPage;
+  // null if the page is empty
+  private final String _endCursor;
+
+  public PageInfo(boolean hasNextPage, String endCursor) {
+    this._hasNextPage = hasNextPage;
+    this._endCursor = endCursor;
+  }
+
+  public boolean getHasNextPage() {
+    return _hasNextPage;
+  }
+
+  public String getEndCursor() {
+    return _endCursor;
+  }
+}
@@ -0,0 +1,22 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import gov.cdc.usds.simplereport.db.model.PersonSummary;
+
+/** A patient in a {@link PatientsConnection}, with the cursor for the patients after it. */
+public class PatientEdge {
+  private final String _cursor;
+  private final PersonSummary _node;
+
+  public PatientEdge(String cursor, PersonSummary node) {
+    this._cursor = cursor;
+    this._node = node;
+  }
+
+  public String getCursor() {
+    return _cursor;
+  }
+
+  public PersonSummary getNode() {
+    return _node;
+  }
+}
@@ -0,0 +1,26 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import java.util.List;
+
+/**
+ * A page of patients, for paging through them with cursors rather than page numbers: the cursor of
+ * the last patient on a page is where the next page starts.
+ */
+public class PatientsConnection {
+  private final List<PatientEdge> _edges;
+  private final PageInfo _pageInfo;
+
+  public PatientsConnection(List<PatientEdge> edges, boolean hasNextPage) {
+    this._edges = edges;
+    this._pageInfo =
+        new PageInfo(hasNextPage, edges.isEmpty() ? null : edges.get(edges.size() - 1).getCursor());
+  }
+
+  public List<PatientEdge> getEdges() {
+    return _edges;
+  }
+
+  public PageInfo getPageInfo() {
+    return _pageInfo;
+  }
+}
@@ -0,0 +1,80 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * One patient, with their answers to the ask-on-entry questions, in a request to add many patients
+ * to the queue at once.
+ */
+public class QueueEntryInput {
+  private final UUID patientId;
+  private final String pregnancy;
+  private final String symptoms;
+  private final Boolean firstTest;
+  private final LocalDate priorTestDate;
+  private final String priorTestType;
+  private final String priorTestResult;
+  private final LocalDate symptomOnset;
+  private final Boolean noSymptoms;
+
+  @JsonCreator
+  public QueueEntryInput(
+      @JsonProperty("patientId") UUID patientId,
+      @JsonProperty("pregnancy") String pregnancy,
+      @JsonProperty("symptoms") String symptoms,
+      @JsonProperty("firstTest") Boolean firstTest,
+      @JsonProperty("priorTestDate") LocalDate priorTestDate,
+      @JsonProperty("priorTestType") String priorTestType,
+      @JsonProperty("priorTestResult") String priorTestResult,
+      @JsonProperty("symptomOnset") LocalDate symptomOnset,
+      @JsonProperty("noSymptoms") Boolean noSymptoms) {
+    this.patientId = patientId;
+    this.pregnancy = pregnancy;
+    this.symptoms = symptoms;
+    this.firstTest = firstTest;
+    this.priorTestDate = priorTestDate;
+    this.priorTestType = priorTestType;
+    this.priorTestResult = priorTestResult;
+    this.symptomOnset = symptomOnset;
+    this.noSymptoms = noSymptoms;
+  }
+
+  public UUID getPatientId() {
+    return patientId;
+  }
+
+  public String getPregnancy() {
+    return pregnancy;
+  }
+
+  public String getSymptoms() {
+    return symptoms;
+  }
+
+  public Boolean getFirstTest() {
+    return firstTest;
+  }
+
+  public LocalDate getPriorTestDate() {
+    return priorTestDate;
+  }
+
+  public String getPriorTestType() {
+    return priorTestType;
+  }
+
+  public String getPriorTestResult() {
+    return priorTestResult;
+  }
+
+  public LocalDate getSymptomOnset() {
+    return symptomOnset;
+  }
+
+  public Boolean getNoSymptoms() {
+    return noSymptoms;
+  }
+}
@@ -0,0 +1,39 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import gov.cdc.usds.simplereport.db.model.TestOrder;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A version of the queue for a facility: either the whole queue, or just word that the client's
+ * copy of it is still current.
+ */
+public class QueueSnapshot {
+  private final long _version;
+  // null if the queue has not changed
+  private final List<TestOrder> _queue;
+
+  public QueueSnapshot(long version, List<TestOrder> queue) {
+    this._version = version;
+    this._queue = queue;
+  }
+
+  public static QueueSnapshot unchanged(long version) {
+    return new QueueSnapshot(version, null);
+  }
+
+  public String getVersion() {
+    return Long.toString(_version);
+  }
+
+  public boolean getUnchanged() {
+    return _queue == null;
+  }
+
+  public List<ApiTestOrder> getQueue() {
+    if (_queue == null) {
+      return null;
+    }
+    return _queue.stream().map(ApiTestOrder::new).collect(Collectors.toList());
+  }
+}
@@ -20,7 +20,6 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -33,57 +32,63 @@ import java.util.UUID;
  */
 public class TestEventExport {
   public static final String CSV_API_VERSION = "27Jan2021"; // last time we changed something
+  // the one column whose value comes from the time of export, not from the test event
+  public static final String DATE_RESULT_RELEASED = "Date_result_released";
   private final TestEvent testEvent;
-  private final Optional<Person> patient;
-  private final Optional<AskOnEntrySurvey> survey;
-  private final Optional<Provider> provider;
-  private final Optional<Facility> facility;
-  private final Optional<SpecimenType> specimenType;
-  private final Optional<DeviceType> device;
+  // any of these may be null
+  private final Person patient;
+  private final AskOnEntrySurvey survey;
+  private final Provider provider;
+  private final Facility facility;
+  private final SpecimenType specimenType;
+  private final DeviceType device;
 
   public TestEventExport(TestEvent testEvent) {
     this.testEvent = testEvent;
-    this.patient = Optional.ofNullable(testEvent.getPatientData());
-    this.survey = Optional.ofNullable(testEvent.getSurveyData());
-    this.provider = Optional.ofNullable(testEvent.getProviderData());
-    this.facility = Optional.ofNullable(testEvent.getFacility());
-    this.specimenType =
-        Optional.ofNullable(testEvent.getDeviceSpecimen()).map(DeviceSpecimenType::getSpecimenType);
-    this.device =
-        Optional.ofNullable(testEvent.getDeviceSpecimen()).map(DeviceSpecimenType::getDeviceType);
-  }
-
-  private String genderUnknown = "U";
-  private String ethnicityUnknown = "U";
-  private String raceUnknown = "UNK";
+    this.patient = testEvent.getPatientData();
+    this.survey = testEvent.getSurveyData();
+    this.provider = testEvent.getProviderData();
+    this.facility = testEvent.getFacility();
+    DeviceSpecimenType deviceSpecimen = testEvent.getDeviceSpecimen();
+    this.specimenType = deviceSpecimen == null ? null : deviceSpecimen.getSpecimenType();
+    this.device = deviceSpecimen == null ? null : deviceSpecimen.getDeviceType();
+  }
+
+  // The code tables and formatter are shared by every instance: one of these is built per exported
+  // event, so nothing that is the same for all of them should be built in the constructor.
+  private static final String GENDER_UNKNOWN = "U";
+  private static final String ETHNICITY_UNKNOWN = "U";
+  private static final String RACE_UNKNOWN = "UNK";
   private static final String DEFAULT_LOCATION_CODE = "53342003"; // http://snomed.info/id/53342003
   // "Internal nose structure"
+  private static final DateTimeFormatter HEALTH_CARE_DATE_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMdd");
   // values pulled from
   // https://github.com/CDCgov/prime-data-hub/blob/master/prime-router/metadata/valuesets/common.valuesets
-  private Map<String, String> genderMap =
+  private static final Map<String, String> GENDER_MAP =
       Map.of(
           "male", "M",
           "female", "F",
           "other", "O",
           "ambiguous", "A",
-          "unknown", genderUnknown,
-          "unk", genderUnknown,
-          "refused", genderUnknown,
+          "unknown", GENDER_UNKNOWN,
+          "unk", GENDER_UNKNOWN,
+          "refused", GENDER_UNKNOWN,
           "notapplicable", "N");
 
-  private Map<String, String> ethnicityMap =
+  private static final Map<String, String> ETHNICITY_MAP =
       Map.of(
           "hispanic", "H",
           "not_hispanic", "N",
           "refused", "U");
 
-  private Map<TestResult, String> testResultMap =
+  private static final Map<TestResult, String> TEST_RESULT_MAP =
       Map.of(
           TestResult.POSITIVE, "260373001",
           TestResult.NEGATIVE, "260415000",
           TestResult.UNDETERMINED, "419984006");
 
-  private Map<String, String> raceMap =
+  private static final Map<String, String> RACE_MAP =
       Map.of(
           "native", "1002-5",
           "asian", "2028-9",
@@ -91,11 +96,16 @@ public class TestEventExport {
           "pacific", "2076-8",
           "white", "2106-3",
           "other", "2131-1",
-          "unknown", raceUnknown,
+          "unknown", RACE_UNKNOWN,
           "refused", "ASKU" // Asked, but unknown
           );
 
-  private String boolToYesNoUnk(Boolean value) {
+  private static String lookUp(Map<String, String> codes, String value, String unknown) {
+    String code = value == null ? null : codes.get(value);
+    return code == null ? unknown : code;
+  }
+
+  private static String boolToYesNoUnk(Boolean value) {
     if (value == null) {
       return "UNK";
     } else if (value) {
@@ -105,123 +115,129 @@ public class TestEventExport {
     }
   }
 
-  private String boolToYesNoUnk(Optional<Boolean> value) {
-    return boolToYesNoUnk(value.orElse(null));
-  }
-
-  private String dateToHealthCareString(LocalDate value) {
+  private static String dateToHealthCareString(LocalDate value) {
     if (value == null) {
       return "";
     }
-    return value.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+    return value.format(HEALTH_CARE_DATE_FORMAT);
   }
 
-  private String dateToHealthCareString(Optional<LocalDate> value) {
-    return dateToHealthCareString(value.orElse(null));
+  private static LocalDate convertToLocalDate(Date dateToConvert) {
+    return dateToConvert.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
   }
 
-  private LocalDate convertToLocalDate(Date dateToConvert) {
-    return dateToConvert.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+  private static String uuidToString(UUID value) {
+    return value == null ? null : value.toString();
+  }
+
+  private StreetAddress facilityAddress() {
+    return facility == null ? null : facility.getAddress();
+  }
+
+  private PersonName providerName() {
+    return provider == null ? null : provider.getNameInfo();
   }
 
   @JsonProperty("Patient_last_name")
   public String getPatientLastName() {
-    return patient.map(Person::getLastName).orElse(null);
+    return patient == null ? null : patient.getLastName();
   }
 
   @JsonProperty("Patient_first_name")
   public String getPatientFirstName() {
-    return patient.map(Person::getFirstName).orElse(null);
+    return patient == null ? null : patient.getFirstName();
   }
 
   @JsonProperty("Patient_middle_name")
   public String getPatientMiddleName() {
-    return patient.map(Person::getMiddleName).orElse(null);
+    return patient == null ? null : patient.getMiddleName();
   }
 
   @JsonProperty("Patient_suffix")
   public String getPatientSuffix() {
-    return patient.map(Person::getSuffix).orElse(null);
+    return patient == null ? null : patient.getSuffix();
   }
 
   @JsonProperty("Patient_race")
   public String getPatientRace() {
-    return patient.map(Person::getRace).map(raceMap::get).orElse(raceUnknown);
+    return lookUp(RACE_MAP, patient == null ? null : patient.getRace(), RACE_UNKNOWN);
   }
 
   @JsonProperty("Patient_DOB")
   public String getPatientBirthDate() {
-    return dateToHealthCareString(patient.map(Person::getBirthDate));
+    return dateToHealthCareString(patient == null ? null : patient.getBirthDate());
   }
 
   @JsonProperty("Patient_gender")
   public String getPatientGender() {
-    return patient.map(Person::getGender).map(genderMap::get).orElse(genderUnknown);
+    return lookUp(GENDER_MAP, patient == null ? null : patient.getGender(), GENDER_UNKNOWN);
   }
 
   @JsonProperty("Patient_ethnicity")
   public String getPatientEthnicity() {
-    return patient.map(Person::getEthnicity).map(ethnicityMap::get).orElse(ethnicityUnknown);
+    return lookUp(
+        ETHNICITY_MAP, patient == null ? null : patient.getEthnicity(), ETHNICITY_UNKNOWN);
   }
 
   @JsonProperty("Patient_street")
   public String getPatientStreet() {
-    return patient.map(Person::getStreet).orElse(null);
+    return patient == null ? null : patient.getStreet();
   }
 
   @JsonProperty("Patient_street_2")
   public String getPatientStreetTwo() {
-    return patient.map(Person::getStreetTwo).orElse(null);
+    return patient == null ? null : patient.getStreetTwo();
   }
 
   @JsonProperty("Patient_city")
   public String getPatientCity() {
-    return patient.map(Person::getCity).orElse(null);
+    return patient == null ? null : patient.getCity();
   }
 
   @JsonProperty("Patient_county")
   public String getPatientCounty() {
-    return patient.map(Person::getCounty).orElse(null);
+    return patient == null ? null : patient.getCounty();
   }
 
   @JsonProperty("Patient_state")
   public String getPatientState() {
-    return patient.map(Person::getState).orElse(null);
+    return patient == null ? null : patient.getState();
   }
 
   @JsonProperty("Patient_zip_code")
   public String getPatientZipCode() {
-    return patient.map(Person::getZipCode).orElse(null);
+    return patient == null ? null : patient.getZipCode();
   }
 
   @JsonProperty("Patient_phone_number")
   public String getPatientPhoneNumber() {
-    return patient.map(Person::getTelephone).orElse(null);
+    return patient == null ? null : patient.getTelephone();
   }
 
   @JsonProperty("Patient_email")
   public String getPatientEmail() {
-    return patient.map(Person::getEmail).orElse(null);
+    return patient == null ? null : patient.getEmail();
   }
 
   @JsonProperty("Patient_ID")
   public String getPatientId() {
-    return patient.map(Person::getInternalId).map(UUID::toString).orElse(null);
+    return patient == null ? null : uuidToString(patient.getInternalId());
   }
 
   @JsonProperty("Patient_role")
   public String getPatientRole() {
-    return patient.map(Person::getRole).map(PersonRole::toString).orElse("");
+    PersonRole role = patient == null ? null : patient.getRole();
+    return role == null ? "" : role.toString();
   }
 
   @JsonProperty("Employed_in_healthcare")
   public String getPatientEmployedInHealthcare() {
-    return boolToYesNoUnk(patient.map(Person::getEmployedInHealthcare));
+    return boolToYesNoUnk(patient == null ? null : patient.getEmployedInHealthcare());
   }
 
   @JsonProperty("Resident_congregate_setting")
   public String getPatientResidentCongregateSetting() {
-    return boolToYesNoUnk(patient.map(Person::getResidentCongregateSetting));
+    return boolToYesNoUnk(patient == null ? null : patient.getResidentCongregateSetting());
   }
 
   @JsonProperty("Result_ID")
@@ -257,7 +273,7 @@ public class TestEventExport {
 
   @JsonProperty("Test_result_code")
   public String getTestResult() {
-    return testResultMap.get(testEvent.getResult());
+    return TEST_RESULT_MAP.get(testEvent.getResult());
   }
 
   @JsonProperty("Specimen_collection_date_time")
@@ -267,22 +283,23 @@ public class TestEventExport {
 
   @JsonProperty("Ordering_provider_ID")
   public String getOrderingProviderID() {
-    return provider.map(Provider::getProviderId).orElse(null);
+    return provider == null ? null : provider.getProviderId();
   }
 
   @JsonProperty("First_test")
   public String getFirstTest() {
-    return boolToYesNoUnk(survey.map(AskOnEntrySurvey::getFirstTest));
+    return boolToYesNoUnk(survey == null ? null : survey.getFirstTest());
   }
 
   @JsonProperty("Symptomatic_for_disease")
   public String getSymptomaticForDisease() {
-    return boolToYesNoUnk(survey.map(AskOnEntrySurvey::getNoSymptoms).map(b -> !b));
+    Boolean noSymptoms = survey == null ? null : survey.getNoSymptoms();
+    return boolToYesNoUnk(noSymptoms == null ? null : !noSymptoms);
   }
 
   @JsonProperty("Illness_onset_date")
   public String getSymptomOnsetDate() {
-    return dateToHealthCareString(survey.map(AskOnEntrySurvey::getSymptomOnsetDate));
+    return dateToHealthCareString(survey == null ? null : survey.getSymptomOnsetDate());
   }
 
   @JsonProperty("Testing_lab_name")
@@ -292,7 +309,7 @@ public class TestEventExport {
 
   @JsonProperty("Testing_lab_CLIA")
   public String getTestingLabID() {
-    return facility.map(Facility::getCliaNumber).orElse(null);
+    return facility == null ? null : facility.getCliaNumber();
   }
 
   @JsonProperty("Testing_lab_state")
@@ -339,85 +356,91 @@ public class TestEventExport {
 
   @JsonProperty("Ordering_facility_city")
   public String getOrderingFacilityCity() {
-    return facility.map(Facility::getAddress).map(StreetAddress::getCity).orElse(null);
+    StreetAddress address = facilityAddress();
+    return address == null ? null : address.getCity();
   }
 
   @JsonProperty("Ordering_facility_county")
   public String getOrderingFacilityCounty() {
-    return facility.map(Facility::getAddress).map(StreetAddress::getCounty).orElse(null);
+    StreetAddress address = facilityAddress();
+    return address == null ? null : address.getCounty();
   }
 
   @JsonProperty("Ordering_facility_name")
   public String getOrderingFacilityName() {
-    return facility.map(Facility::getFacilityName).orElse(null);
+    return facility == null ? null : facility.getFacilityName();
   }
 
   @JsonProperty("Organization_name")
   public String getOrganizationName() {
-    return facility
-        .map(Facility::getOrganization)
-        .map(Organization::getOrganizationName)
-        .orElse(null);
+    Organization organization = facility == null ? null : facility.getOrganization();
+    return organization == null ? null : organization.getOrganizationName();
   }
 
   @JsonProperty("Ordering_facility_phone_number")
   public String getOrderingFacilityPhoneNumber() {
-    return facility.map(Facility::getTelephone).orElse(null);
+    return facility == null ? null : facility.getTelephone();
   }
 
   @JsonProperty("Ordering_facility_email")
   public String getOrderingFacilityEmail() {
-    return facility.map(Facility::getEmail).orElse(null);
+    return facility == null ? null : facility.getEmail();
   }
 
   @JsonProperty("Ordering_facility_state")
   public String getOrderingFacilityState() {
-    return facility.map(Facility::getAddress).map(StreetAddress::getState).orElse(null);
+    StreetAddress address = facilityAddress();
+    return address == null ? null : address.getState();
   }
 
   @JsonProperty("Ordering_facility_street")
   public String getOrderingFacilityStreet() {
-    return facility.map(Facility::getAddress).map(StreetAddress::getStreetOne).orElse(null);
+    StreetAddress address = facilityAddress();
+    return address == null ? null : address.getStreetOne();
   }
 
   @JsonProperty("Ordering_facility_street_2")
   public String getOrderingFacilityStreetTwo() {
-    return facility.map(Facility::getAddress).map(StreetAddress::getStreetTwo).orElse(null);
+    StreetAddress address = facilityAddress();
+    return address == null ? null : address.getStreetTwo();
   }
 
   @JsonProperty("Ordering_facility_zip_code")
   public String getOrderingFacilityZipCode() {
-    return facility.map(Facility::getAddress).map(StreetAddress::getPostalCode).orElse(null);
+    StreetAddress address = facilityAddress();
+    return address == null ? null : address.getPostalCode();
   }
 
   @JsonProperty("Ordering_provider_last_name")
   public String getOrderingProviderLastName() {
-    return provider.map(Provider::getNameInfo).map(PersonName::getLastName).orElse(null);
+    PersonName name = providerName();
+    return name == null ? null : name.getLastName();
   }
 
   @JsonProperty("Ordering_provider_first_name")
   public String getOrderingProviderFirstName() {
-    return provider.map(Provider::getNameInfo).map(PersonName::getFirstName).orElse(null);
+    PersonName name = providerName();
+    return name == null ? null : name.getFirstName();
   }
 
   @JsonProperty("Ordering_provider_street")
   public String getOrderingProviderStreet() {
-    return provider.map(Provider::getStreet).orElse(null);
+    return provider == null ? null : provider.getStreet();
   }
 
   @JsonProperty("Ordering_provider_street_2")
   public String getOrderingProviderStreetTwo() {
-    return provider.map(Provider::getStreetTwo).orElse(null);
+    return provider == null ? null : provider.getStreetTwo();
   }
 
   @JsonProperty("Ordering_provider_city")
   public String getOrderingProviderCity() {
-    return provider.map(Provider::getCity).orElse(null);
+    return provider == null ? null : provider.getCity();
   }
 
   @JsonProperty("Ordering_provider_state")
   public String getOrderingProviderState() {
-    return provider.map(Provider::getState).orElse(null);
+    return provider == null ? null : provider.getState();
   }
 
   @JsonProperty("Ordering_provider_zip_code")
@@ -427,47 +450,53 @@ public class TestEventExport {
 
   @JsonProperty("Ordering_provider_county")
   public String getOrderingProviderCounty() {
-    return provider.map(Provider::getCounty).orElse(null);
+    return provider == null ? null : provider.getCounty();
   }
 
   @JsonProperty("Ordering_provider_phone_number")
   public String getOrderingProviderPhoneNumber() {
-    return provider.map(Provider::getTelephone).orElse(null);
+    return provider == null ? null : provider.getTelephone();
   }
 
   @JsonProperty("Ordered_test_code")
   public String getOrderedTestCode() {
-    return device.map(DeviceType::getLoincCode).orElse(null);
+    return device == null ? null : device.getLoincCode();
   }
 
   @JsonProperty("Specimen_source_site_code")
   public String getSpecimenSourceSiteCode() {
-    return specimenType.map(SpecimenType::getCollectionLocationCode).orElse(DEFAULT_LOCATION_CODE);
+    String code = specimenType == null ? null : specimenType.getCollectionLocationCode();
+    return code == null ? DEFAULT_LOCATION_CODE : code;
   }
 
   @JsonProperty("Specimen_type_code")
   public String getSpecimenTypeCode() {
-    return specimenType.map(SpecimenType::getTypeCode).orElse(null);
+    return specimenType == null ? null : specimenType.getTypeCode();
   }
 
   @JsonProperty("Instrument_ID")
   public String getInstrumentID() {
-    return device.map(DeviceType::getInternalId).map(UUID::toString).orElse(null);
+    return device == null ? null : uuidToString(device.getInternalId());
   }
 
   @JsonProperty("Device_ID")
   public String getDeviceID() {
-    return device.map(DeviceType::getModel).orElse(null);
+    return device == null ? null : device.getModel();
   }
 
   @JsonProperty("Test_date")
   public String getTestDate() {
-    return dateToHealthCareString(
-        Optional.ofNullable(testEvent.getDateTested()).map(this::convertToLocalDate));
+    Date dateTested = testEvent.getDateTested();
+    return dateToHealthCareString(dateTested == null ? null : convertToLocalDate(dateTested));
   }
 
-  @JsonProperty("Date_result_released")
+  @JsonProperty(DATE_RESULT_RELEASED)
   public String getDateResultReleased() {
+    return dateResultReleasedToday();
+  }
+
+  /** The Date_result_released value for any row exported today. */
+  public static String dateResultReleasedToday() {
     return dateToHealthCareString(LocalDate.now());
   }
 
@@ -0,0 +1,161 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes {@link TestEventExport} rows straight to a streaming {@link JsonGenerator} (including a
+ * CsvGenerator), using a table of columns and getters that is resolved once, rather than going
+ * through the databind bean serializer for every event.
+ *
+ * <p>The column names and their order are taken from what Jackson itself would use for the class
+ * (the CSV schema, or the mapper's own introspection for JSON), and null values are written with
+ * {@link JsonGenerator#writeNull()} just as databind does, so the output is byte-for-byte the same
+ * as serializing each {@link TestEventExport} with a writer configured the same way.
+ */
+public final class TestEventExportWriter {
+  // the getter for each exported property, by property name
+  private static final Map<String, MethodHandle> GETTERS = findGetters();
+
+  private final SerializableString[] names;
+  private final MethodHandle[] getters;
+
+  private TestEventExportWriter(List<String> columnNames) {
+    names = new SerializableString[columnNames.size()];
+    getters = new MethodHandle[columnNames.size()];
+    for (int i = 0; i < names.length; i++) {
+      String name = columnNames.get(i);
+      MethodHandle getter = GETTERS.get(name);
+      if (getter == null) {
+        throw new IllegalArgumentException("No exported property named " + name);
+      }
+      names[i] = new SerializedString(name);
+      getters[i] = getter;
+    }
+  }
+
+  /** A writer for rows with the columns of the supplied schema, in schema order. */
+  public static TestEventExportWriter forCsv(CsvSchema schema) {
+    List<String> columnNames = new ArrayList<>(schema.size());
+    for (CsvSchema.Column column : schema) {
+      columnNames.add(column.getName());
+    }
+    return new TestEventExportWriter(columnNames);
+  }
+
+  /** A writer for JSON objects with the properties, in the order, that the mapper would use. */
+  public static TestEventExportWriter forJson(ObjectMapper mapper) {
+    SerializationConfig config = mapper.getSerializationConfig();
+    JsonInclude.Include inclusion = config.getDefaultPropertyInclusion().getValueInclusion();
+    if (inclusion != JsonInclude.Include.ALWAYS && inclusion != JsonInclude.Include.USE_DEFAULTS) {
+      // we would have to replicate that filtering to match the mapper's output
+      throw new IllegalArgumentException("Unsupported property inclusion " + inclusion);
+    }
+    List<String> propertyNames =
+        config.introspect(config.constructType(TestEventExport.class)).findProperties().stream()
+            .filter(BeanPropertyDefinition::couldSerialize)
+            .map(BeanPropertyDefinition::getName)
+            .collect(Collectors.toList());
+    return new TestEventExportWriter(propertyNames);
+  }
+
+  /** Write a single row: one JSON object, or one line of CSV. */
+  public void write(JsonGenerator gen, TestEventExport row) throws IOException {
+    gen.writeStartObject(row);
+    for (int i = 0; i < names.length; i++) {
+      writeField(gen, names[i], getValue(i, row));
+    }
+    gen.writeEndObject();
+  }
+
+  /**
+   * Write a single row from values captured earlier by {@link #toValues}, exactly as {@link
+   * #write(JsonGenerator, TestEventExport)} would have written it today.
+   */
+  public void write(JsonGenerator gen, Map<String, String> values) throws IOException {
+    gen.writeStartObject(values);
+    for (int i = 0; i < names.length; i++) {
+      String name = names[i].getValue();
+      writeField(
+          gen,
+          names[i],
+          TestEventExport.DATE_RESULT_RELEASED.equals(name)
+              ? TestEventExport.dateResultReleasedToday()
+              : values.get(name));
+    }
+    gen.writeEndObject();
+  }
+
+  /**
+   * The value of every exported property of the row, by property name, except for {@link
+   * TestEventExport#DATE_RESULT_RELEASED}, which depends on when the row is written out rather than
+   * on the test event.
+   */
+  public static Map<String, String> toValues(TestEventExport row) {
+    Map<String, String> values = new HashMap<>();
+    for (Map.Entry<String, MethodHandle> getter : GETTERS.entrySet()) {
+      if (TestEventExport.DATE_RESULT_RELEASED.equals(getter.getKey())) {
+        continue;
+      }
+      values.put(getter.getKey(), invoke(getter.getValue(), row));
+    }
+    return values;
+  }
+
+  private static void writeField(JsonGenerator gen, SerializableString name, String value)
+      throws IOException {
+    gen.writeFieldName(name);
+    if (value == null) {
+      gen.writeNull();
+    } else {
+      gen.writeString(value);
+    }
+  }
+
+  private String getValue(int column, TestEventExport row) {
+    return invoke(getters[column], row);
+  }
+
+  private static String invoke(MethodHandle getter, TestEventExport row) {
+    try {
+      return (String) getter.invokeExact(row);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) { // the getters do not declare any checked exceptions
+      throw new IllegalStateException(t);
+    }
+  }
+
+  private static Map<String, MethodHandle> findGetters() {
+    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    Map<String, MethodHandle> getters = new HashMap<>();
+    for (Method method : TestEventExport.class.getMethods()) {
+      JsonProperty property = method.getAnnotation(JsonProperty.class);
+      if (property == null) {
+        continue;
+      }
+      try {
+        getters.put(property.value(), lookup.unreflect(method));
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Getter is not accessible: " + method, e);
+      }
+    }
+    return Map.copyOf(getters);
+  }
+}
@@ -0,0 +1,22 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+
+/** A test result in a {@link TestResultsConnection}, with the cursor for the results after it. */
+public class TestResultEdge {
+  private final String _cursor;
+  private final TestEvent _node;
+
+  public TestResultEdge(String cursor, TestEvent node) {
+    this._cursor = cursor;
+    this._node = node;
+  }
+
+  public String getCursor() {
+    return _cursor;
+  }
+
+  public TestEvent getNode() {
+    return _node;
+  }
+}
@@ -0,0 +1,42 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Date;
+import java.util.UUID;
+
+/** One result in a request to submit the results of many tests at once. */
+public class TestResultInput {
+  private final UUID patientId;
+  private final String deviceId;
+  private final String result;
+  private final Date dateTested;
+
+  @JsonCreator
+  public TestResultInput(
+      @JsonProperty("patientId") UUID patientId,
+      @JsonProperty("deviceId") String deviceId,
+      @JsonProperty("result") String result,
+      @JsonProperty("dateTested") Date dateTested) {
+    this.patientId = patientId;
+    this.deviceId = deviceId;
+    this.result = result;
+    this.dateTested = dateTested;
+  }
+
+  public UUID getPatientId() {
+    return patientId;
+  }
+
+  public String getDeviceId() {
+    return deviceId;
+  }
+
+  public String getResult() {
+    return result;
+  }
+
+  public Date getDateTested() {
+    return dateTested;
+  }
+}
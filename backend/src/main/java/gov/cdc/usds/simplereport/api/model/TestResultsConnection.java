@@ -0,0 +1,26 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import java.util.List;
+
+/**
+ * A page of test results, for paging through them with cursors rather than page numbers: the
+ * cursor of the last result on a page is where the next page starts.
+ */
+public class TestResultsConnection {
+  private final List<TestResultEdge> _edges;
+  private final PageInfo _pageInfo;
+
+  public TestResultsConnection(List<TestResultEdge> edges, boolean hasNextPage) {
+    this._edges = edges;
+    this._pageInfo =
+        new PageInfo(hasNextPage, edges.isEmpty() ? null : edges.get(edges.size() - 1).getCursor());
+  }
+
+  public List<TestResultEdge> getEdges() {
+    return _edges;
+  }
+
+  public PageInfo getPageInfo() {
+    return _pageInfo;
+  }
+}
@@ -0,0 +1,22 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+import java.util.List;
+import org.springframework.data.domain.Page;
+
+/** A page of test results, with the number of results on all the pages. */
+public class TestResultsPage {
+  private final Page<TestEvent> _page;
+
+  public TestResultsPage(Page<TestEvent> page) {
+    this._page = page;
+  }
+
+  public List<TestEvent> getTestResults() {
+    return _page.getContent();
+  }
+
+  public int getTotalCount() {
+    return (int) _page.getTotalElements();
+  }
+}
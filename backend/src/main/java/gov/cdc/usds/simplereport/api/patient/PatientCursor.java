@@ -0,0 +1,84 @@
+package gov.cdc.usds.simplereport.api.patient;
+
+import gov.cdc.usds.simplereport.api.model.errors.IllegalGraphqlArgumentException;
+import gov.cdc.usds.simplereport.db.model.PersonSummary;
+import gov.cdc.usds.simplereport.db.model.auxiliary.PersonName;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * The position of a patient in the list of patients, in the order of their names: their last,
+ * first and middle name and suffix, and then their ID to tell apart patients with the same name.
+ * Clients only ever see it encoded, as an opaque string.
+ */
+class PatientCursor {
+  // names can hold almost anything, but never this, since the database cannot store it
+  private static final String SEPARATOR = "\u0000";
+  // put before each name that is there, so that a missing name is told apart from an empty one
+  private static final String PRESENT = "=";
+
+  private final PersonName _name;
+  private final UUID _internalId;
+
+  private PatientCursor(PersonName name, UUID internalId) {
+    this._name = name;
+    this._internalId = internalId;
+  }
+
+  static String encode(PersonSummary patient) {
+    String position =
+        String.join(
+            SEPARATOR,
+            encodeName(patient.getLastName()),
+            encodeName(patient.getFirstName()),
+            encodeName(patient.getMiddleName()),
+            encodeName(patient.getSuffix()),
+            patient.getInternalId().toString());
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static PatientCursor decode(String cursor) {
+    try {
+      String[] parts =
+          new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+              .split(SEPARATOR, -1);
+      if (parts.length != 5 || parts[0].isEmpty()) {
+        throw new IllegalArgumentException("Wrong number of parts");
+      }
+      return new PatientCursor(
+          new PersonName(
+              decodeName(parts[1]),
+              decodeName(parts[2]),
+              decodeName(parts[0]),
+              decodeName(parts[3])),
+          UUID.fromString(parts[4]));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalGraphqlArgumentException("Invalid cursor: " + cursor);
+    }
+  }
+
+  private static String encodeName(String name) {
+    return name == null ? "" : PRESENT + name;
+  }
+
+  private static String decodeName(String encoded) {
+    if (encoded.isEmpty()) {
+      return null;
+    }
+    if (!encoded.startsWith(PRESENT)) {
+      throw new IllegalArgumentException("Badly encoded name");
+    }
+    return encoded.substring(PRESENT.length());
+  }
+
+  PersonName getName() {
+    return _name;
+  }
+
+  UUID getInternalId() {
+    return _internalId;
+  }
+}
@@ -1,11 +1,15 @@
 package gov.cdc.usds.simplereport.api.patient;
 
+import gov.cdc.usds.simplereport.api.model.PatientEdge;
+import gov.cdc.usds.simplereport.api.model.PatientsConnection;
 import gov.cdc.usds.simplereport.config.AuthorizationConfiguration;
 import gov.cdc.usds.simplereport.db.model.Person;
+import gov.cdc.usds.simplereport.db.model.PersonSummary;
 import gov.cdc.usds.simplereport.service.PersonService;
 import graphql.kickstart.tools.GraphQLQueryResolver;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -26,6 +30,32 @@ public class PatientResolver implements GraphQLQueryResolver {
     return ps.getPatientsCount(facilityId, showDeleted, namePrefixMatch);
   }
 
+  // authorization happens in calls to PersonService
+  public PatientsConnection getPatientsConnection(
+      UUID facilityId, boolean showDeleted, String namePrefixMatch, Integer first, String after) {
+    int pageSize =
+        first == null || first < 1
+            ? PersonService.DEFAULT_CONNECTION_PAGESIZE
+            : Math.min(first, PersonService.MAX_CONNECTION_PAGESIZE);
+    PatientCursor cursor = after == null ? null : PatientCursor.decode(after);
+
+    // one more than was asked for, to tell whether there is another page
+    List<PersonSummary> patients =
+        ps.getPatientSummariesAfter(
+            facilityId,
+            showDeleted,
+            namePrefixMatch,
+            cursor == null ? null : cursor.getName(),
+            cursor == null ? null : cursor.getInternalId(),
+            pageSize + 1);
+    List<PatientEdge> edges =
+        patients.stream()
+            .limit(pageSize)
+            .map(p -> new PatientEdge(PatientCursor.encode(p), p))
+            .collect(Collectors.toList());
+    return new PatientsConnection(edges, patients.size() > pageSize);
+  }
+
   @AuthorizationConfiguration.RequirePermissionSearchTargetPatient
   public Person getPatient(UUID patientId) {
     return ps.getPatientNoPermissionsCheck(patientId);
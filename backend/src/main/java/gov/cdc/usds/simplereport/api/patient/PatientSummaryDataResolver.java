@@ -0,0 +1,10 @@
+package gov.cdc.usds.simplereport.api.patient;
+
+import gov.cdc.usds.simplereport.api.InternalIdResolver;
+import gov.cdc.usds.simplereport.api.PersonNameResolver;
+import gov.cdc.usds.simplereport.db.model.PersonSummary;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PatientSummaryDataResolver
+    implements PersonNameResolver<PersonSummary>, InternalIdResolver<PersonSummary> {}
@@ -3,9 +3,15 @@ package gov.cdc.usds.simplereport.api.queue;
 import static gov.cdc.usds.simplereport.api.Translators.parseSymptoms;
 
 import com.google.i18n.phonenumbers.NumberParseException;
+import gov.cdc.usds.simplereport.api.model.AddPatientToQueueItemResponse;
 import gov.cdc.usds.simplereport.api.model.AddTestResultResponse;
+import gov.cdc.usds.simplereport.api.model.AddTestResultsItemResponse;
 import gov.cdc.usds.simplereport.api.model.ApiTestOrder;
+import gov.cdc.usds.simplereport.api.model.QueueEntryInput;
+import gov.cdc.usds.simplereport.api.model.TestResultInput;
+import gov.cdc.usds.simplereport.api.model.errors.IllegalGraphqlArgumentException;
 import gov.cdc.usds.simplereport.db.model.TestOrder;
+import gov.cdc.usds.simplereport.db.model.auxiliary.AskOnEntrySurvey;
 import gov.cdc.usds.simplereport.db.model.auxiliary.TestResult;
 import gov.cdc.usds.simplereport.db.model.auxiliary.TestResultDeliveryPreference;
 import gov.cdc.usds.simplereport.service.PersonService;
@@ -13,6 +19,8 @@ import gov.cdc.usds.simplereport.service.TestOrderService;
 import graphql.kickstart.tools.GraphQLMutationResolver;
 import java.time.LocalDate;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import org.json.JSONException;
@@ -41,6 +49,10 @@ public class QueueMutationResolver implements GraphQLMutationResolver {
         .getTestResult();
   }
 
+  public List<AddTestResultsItemResponse> addTestResults(List<TestResultInput> results) {
+    return _tos.addTestResults(results);
+  }
+
   public ApiTestOrder editQueueItem(UUID id, String deviceId, String result, Date dateTested) {
     return new ApiTestOrder(_tos.editQueueItem(id, deviceId, result, dateTested));
   }
@@ -79,6 +91,30 @@ public class QueueMutationResolver implements GraphQLMutationResolver {
     return to.getPatientLink().getInternalId().toString();
   }
 
+  public List<AddPatientToQueueItemResponse> addPatientsToQueue(
+      UUID facilityId, List<QueueEntryInput> patients) throws JSONException {
+    Map<UUID, AskOnEntrySurvey> surveys = new LinkedHashMap<>();
+    for (QueueEntryInput entry : patients) {
+      AskOnEntrySurvey survey =
+          new AskOnEntrySurvey(
+              entry.getPregnancy(),
+              entry.getSymptoms() == null ? Map.of() : parseSymptoms(entry.getSymptoms()),
+              entry.getNoSymptoms(),
+              entry.getSymptomOnset(),
+              entry.getFirstTest(),
+              entry.getPriorTestDate(),
+              entry.getPriorTestType(),
+              entry.getPriorTestResult() == null
+                  ? null
+                  : TestResult.valueOf(entry.getPriorTestResult()));
+      if (surveys.put(entry.getPatientId(), survey) != null) {
+        throw new IllegalGraphqlArgumentException(
+            "Cannot create multiple queue entries for the same patient");
+      }
+    }
+    return _tos.addPatientsToQueue(facilityId, surveys);
+  }
+
   public void removePatientFromQueue(UUID patientID) {
     _tos.removePatientFromQueue(patientID);
   }
@@ -1,6 +1,7 @@
 package gov.cdc.usds.simplereport.api.queue;
 
 import gov.cdc.usds.simplereport.api.model.ApiTestOrder;
+import gov.cdc.usds.simplereport.api.model.QueueSnapshot;
 import gov.cdc.usds.simplereport.service.TestOrderService;
 import graphql.kickstart.tools.GraphQLQueryResolver;
 import java.util.List;
@@ -17,4 +18,16 @@ public class QueueResolver implements GraphQLQueryResolver {
   public List<ApiTestOrder> getQueue(UUID facilityId) {
     return tos.getQueue(facilityId).stream().map(ApiTestOrder::new).collect(Collectors.toList());
   }
+
+  public QueueSnapshot getQueueSnapshot(UUID facilityId, String sinceVersion) {
+    Long since = null;
+    if (sinceVersion != null) {
+      try {
+        since = Long.valueOf(sinceVersion);
+      } catch (NumberFormatException e) {
+        // not a version we ever handed out: the caller just gets the whole queue
+      }
+    }
+    return tos.getQueueSnapshot(facilityId, since);
+  }
 }
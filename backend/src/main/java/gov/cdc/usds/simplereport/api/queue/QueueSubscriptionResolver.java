@@ -0,0 +1,89 @@
+package gov.cdc.usds.simplereport.api.queue;
+
+import gov.cdc.usds.simplereport.api.model.ApiQueueChange;
+import gov.cdc.usds.simplereport.config.authorization.FacilityPrincipal;
+import gov.cdc.usds.simplereport.config.authorization.UserPermission;
+import gov.cdc.usds.simplereport.service.QueueChangeService;
+import gov.cdc.usds.simplereport.service.TestOrderService;
+import gov.cdc.usds.simplereport.service.model.QueueChangeType;
+import graphql.kickstart.execution.context.GraphQLContext;
+import graphql.kickstart.tools.GraphQLSubscriptionResolver;
+import graphql.schema.DataFetchingEnvironment;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.security.auth.Subject;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+@Component
+public class QueueSubscriptionResolver implements GraphQLSubscriptionResolver {
+  private static final Logger LOG = LoggerFactory.getLogger(QueueSubscriptionResolver.class);
+
+  private final QueueChangeService _queueChanges;
+  private final TestOrderService _tos;
+  // one shared stream per facility, so that each changed order is loaded once however many
+  // subscribers are watching its queue on this instance
+  private final Map<UUID, Flux<ApiQueueChange>> _facilityChanges = new ConcurrentHashMap<>();
+
+  public QueueSubscriptionResolver(QueueChangeService queueChanges, TestOrderService tos) {
+    _queueChanges = queueChanges;
+    _tos = tos;
+  }
+
+  /**
+   * Every change to the queue of this facility from now on. This is checked the same way as {@link
+   * TestOrderService#getQueue}, but against the subject the subscription was opened with, since
+   * there is no security context on websocket threads, nor on those the changes are pushed from.
+   */
+  public Publisher<ApiQueueChange> queueChanged(UUID facilityId, DataFetchingEnvironment dfe) {
+    Subject subject =
+        Optional.ofNullable(dfe.getContext())
+            .filter(GraphQLContext.class::isInstance)
+            .map(GraphQLContext.class::cast)
+            .flatMap(GraphQLContext::getSubject)
+            .orElseThrow(() -> new AccessDeniedException("Access is denied"));
+    if (!canStartTestsAt(subject, facilityId)) {
+      throw new AccessDeniedException("Access is denied");
+    }
+    // subscribers that cannot keep up miss changes, rather than holding up everyone else
+    return _facilityChanges.computeIfAbsent(facilityId, this::loadChanges).onBackpressureDrop();
+  }
+
+  private Flux<ApiQueueChange> loadChanges(UUID facilityId) {
+    return _queueChanges
+        .changes(facilityId)
+        // loading the order goes to the database, which must not hold up the listener
+        .publishOn(Schedulers.boundedElastic())
+        .<ApiQueueChange>handle(
+            (change, sink) -> {
+              if (change.getType() == QueueChangeType.REMOVED) {
+                sink.next(new ApiQueueChange(change, null));
+                return;
+              }
+              try {
+                // an order that has already left the queue again is reported when it is removed
+                _tos.getQueueItemForSubscribers(change.getTestOrderId())
+                    .ifPresent(order -> sink.next(new ApiQueueChange(change, order)));
+              } catch (RuntimeException e) {
+                // the stream is shared: one bad load must not end it for every subscriber
+                LOG.warn("Unable to load changed test order [{}]", change.getTestOrderId(), e);
+              }
+            })
+        // stops listening when the last subscriber leaves, and starts again with the next one
+        .publish()
+        .refCount();
+  }
+
+  private static boolean canStartTestsAt(Subject subject, UUID facilityId) {
+    return subject.getPrincipals(UserPermission.class).contains(UserPermission.START_TEST)
+        && subject.getPrincipals(FacilityPrincipal.class).stream()
+            .anyMatch(p -> facilityId.equals(p.getFacility().getInternalId()));
+  }
+}
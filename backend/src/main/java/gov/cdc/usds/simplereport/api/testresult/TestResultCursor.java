@@ -0,0 +1,57 @@
+package gov.cdc.usds.simplereport.api.testresult;
+
+import gov.cdc.usds.simplereport.api.model.errors.IllegalGraphqlArgumentException;
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * The position of a test result in the list of results, newest first: its date tested, and then its
+ * ID to tell apart results tested at the same time. Clients only ever see it encoded, as an opaque
+ * string.
+ */
+class TestResultCursor {
+  private static final String SEPARATOR = "|";
+
+  private final Date _dateTested;
+  private final UUID _internalId;
+
+  private TestResultCursor(Date dateTested, UUID internalId) {
+    this._dateTested = dateTested;
+    this._internalId = internalId;
+  }
+
+  static String encode(TestEvent event) {
+    // Timestamp.toInstant keeps the microseconds, which a cursor must not lose: otherwise results
+    // tested in the same millisecond as the last one on a page could be skipped
+    String position = event.getDateTested().toInstant() + SEPARATOR + event.getInternalId();
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static TestResultCursor decode(String cursor) {
+    try {
+      String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = position.indexOf(SEPARATOR);
+      return new TestResultCursor(
+          Timestamp.from(Instant.parse(position.substring(0, separator))),
+          UUID.fromString(position.substring(separator + 1)));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+      throw new IllegalGraphqlArgumentException("Invalid cursor: " + cursor);
+    }
+  }
+
+  Date getDateTested() {
+    return _dateTested;
+  }
+
+  UUID getInternalId() {
+    return _internalId;
+  }
+}
@@ -1,13 +1,20 @@
 package gov.cdc.usds.simplereport.api.testresult;
 
 import gov.cdc.usds.simplereport.api.Translators;
+import gov.cdc.usds.simplereport.api.model.TestResultEdge;
+import gov.cdc.usds.simplereport.api.model.TestResultsConnection;
+import gov.cdc.usds.simplereport.api.model.TestResultsPage;
 import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestResultDailyCount;
 import gov.cdc.usds.simplereport.service.TestOrderService;
+import gov.cdc.usds.simplereport.service.TestResultRollupService;
 import graphql.kickstart.tools.GraphQLMutationResolver;
 import graphql.kickstart.tools.GraphQLQueryResolver;
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -16,6 +23,7 @@ public class TestResultResolver implements GraphQLQueryResolver, GraphQLMutation
   public static final String MISSING_ARG = "Must provide either facility ID or patient ID";
 
   @Autowired private TestOrderService tos;
+  @Autowired private TestResultRollupService rollup;
 
   public List<TestEvent> getTestResults(
       UUID facilityId,
@@ -44,6 +52,69 @@ public class TestResultResolver implements GraphQLQueryResolver, GraphQLMutation
         pageSize);
   }
 
+  public TestResultsPage getTestResultsPage(
+      UUID facilityId,
+      UUID patientId,
+      String result,
+      String role,
+      Date startDate,
+      Date endDate,
+      int pageNumber,
+      int pageSize) {
+    if (pageNumber < 0) {
+      pageNumber = TestOrderService.DEFAULT_PAGINATION_PAGEOFFSET;
+    }
+    if (pageSize < 1) {
+      pageSize = TestOrderService.DEFAULT_PAGINATION_PAGESIZE;
+    }
+
+    return new TestResultsPage(
+        tos.getTestEventsResultsPage(
+            facilityId,
+            patientId,
+            Translators.parseTestResult(result),
+            Translators.parsePersonRole(role, true),
+            startDate,
+            endDate,
+            pageNumber,
+            pageSize));
+  }
+
+  public TestResultsConnection getTestResultsConnection(
+      UUID facilityId,
+      UUID patientId,
+      String result,
+      String role,
+      Date startDate,
+      Date endDate,
+      Integer first,
+      String after) {
+    int pageSize =
+        first == null || first < 1
+            ? TestOrderService.DEFAULT_CONNECTION_PAGESIZE
+            : Math.min(first, TestOrderService.MAX_CONNECTION_PAGESIZE);
+    TestResultCursor cursor = after == null ? null : TestResultCursor.decode(after);
+
+    // one more than was asked for, to tell whether there is another page
+    List<TestEvent> events =
+        tos.getTestEventsResultsAfter(
+            facilityId,
+            patientId,
+            Translators.parseTestResult(result),
+            Translators.parsePersonRole(role, true),
+            startDate,
+            endDate,
+            cursor == null ? null : cursor.getDateTested(),
+            cursor == null ? null : cursor.getInternalId(),
+            pageSize + 1);
+    List<TestResultEdge> edges =
+        events.stream()
+            .limit(pageSize)
+            .map(e -> new TestResultEdge(TestResultCursor.encode(e), e))
+            .collect(Collectors.toList());
+    return new TestResultsConnection(edges, events.size() > pageSize);
+  }
+
   public int testResultsCount(
       UUID facilityId, UUID patientId, String result, String role, Date startDate, Date endDate) {
     return tos.getTestResultsCount(
@@ -55,6 +126,11 @@ public class TestResultResolver implements GraphQLQueryResolver, GraphQLMutation
         endDate);
   }
 
+  public List<TestResultDailyCount> getTestResultSummary(
+      UUID facilityId, LocalDate startDate, LocalDate endDate) {
+    return rollup.getSummary(facilityId, startDate, endDate);
+  }
+
   public TestEvent correctTestMarkAsError(UUID id, String reasonForCorrection) {
     return tos.correctTestMarkAsError(id, reasonForCorrection);
   }
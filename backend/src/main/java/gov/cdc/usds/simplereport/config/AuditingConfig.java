@@ -10,21 +10,64 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Configuration
 @EnableJpaAuditing
 public class AuditingConfig {
 
   private static final Logger LOG = LoggerFactory.getLogger(AuditingConfig.class);
+  private static final Object CURRENT_AUDITOR = AuditingConfig.class.getName() + ".auditor";
 
   @Autowired private ApiUserService _userService;
 
   @Bean
   public AuditorAware<ApiUser> getCurrentApiUserProvider() {
     return () -> {
-      LOG.debug("Fetching current user for audit");
-      Optional<ApiUser> user = Optional.of(_userService.getCurrentApiUserInContainedTransaction());
-      return user;
+      if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+        return Optional.of(fetchCurrentUser());
+      }
+      // every audited write asks for the current user, and looking the user up runs a query, which
+      // flushes the writes waiting before it: so look them up only once in each transaction, to
+      // keep those writes together in one JDBC batch
+      ApiUser user = (ApiUser) TransactionSynchronizationManager.getResource(CURRENT_AUDITOR);
+      if (user == null) {
+        user = fetchCurrentUser();
+        auditAs(user);
+      }
+      return Optional.of(user);
     };
   }
+
+  /**
+   * Attribute the audited writes made from now on in the current transaction to this user, rather
+   * than to the user making the current request. This is for work done in the background on behalf
+   * of a user, where there is no request (or user) to look up.
+   */
+  public static void auditAs(ApiUser user) {
+    if (TransactionSynchronizationManager.unbindResourceIfPossible(CURRENT_AUDITOR) == null) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              TransactionSynchronizationManager.unbindResourceIfPossible(CURRENT_AUDITOR);
+            }
+          });
+    }
+    TransactionSynchronizationManager.bindResource(CURRENT_AUDITOR, user);
+  }
+
+  /**
+   * Stop attributing audited writes to the user given to {@link #auditAs}. Audit fields are filled
+   * in as writes are flushed, so flush any that should be attributed to that user first.
+   */
+  public static void stopAuditingAs() {
+    TransactionSynchronizationManager.unbindResourceIfPossible(CURRENT_AUDITOR);
+  }
+
+  private ApiUser fetchCurrentUser() {
+    LOG.debug("Fetching current user for audit");
+    return _userService.getCurrentApiUserInContainedTransaction();
+  }
 }
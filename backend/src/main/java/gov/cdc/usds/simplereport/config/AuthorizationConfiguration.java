@@ -104,6 +104,9 @@ public class AuthorizationConfiguration {
   private static final String SPEL_CAN_ACCESS_PATIENT_LINK =
       "@" + AUTHORIZER_BEAN + ".userCanAccessPatientLink(#patientLinkId)";
 
+  private static final String SPEL_CAN_ACCESS_PATIENT_LINKS =
+      "@" + AUTHORIZER_BEAN + ".userCanAccessPatientLinks(#textsByPatientLinkId.keySet())";
+
   private static final String SPEL_CAN_EXECUTE_SPECIFIC_PATIENT_SEARCH =
       "@"
           + AUTHORIZER_BEAN
@@ -364,6 +367,23 @@ public class AuthorizationConfiguration {
           + SPEL_CAN_ACCESS_PATIENT_LINK)
   public @interface RequirePermissionStartTestWithPatientLink {}
 
+  /**
+   * Require the current user to have the {@link UserPermission#START_TEST} permission with access
+   * to every patient link whose UUID is a key of {@code textsByPatientLinkId}.
+   *
+   * <p>NOTE: any method with this annotation must have a {@link java.util.Map} parameter {@code
+   * textsByPatientLinkId}.
+   */
+  @Retention(RUNTIME)
+  @Target(METHOD)
+  @PreAuthorize(
+      SPEL_IS_VALID
+          + " && "
+          + SPEL_HAS_PERMISSION_START_TEST
+          + " && "
+          + SPEL_CAN_ACCESS_PATIENT_LINKS)
+  public @interface RequirePermissionStartTestWithPatientLinks {}
+
   /**
    * Require the current user to have the {@link UserPermission#UPDATE_TEST} permission for the
    * queue item for patient with UUID {@code patientId}.
@@ -419,4 +439,15 @@ public class AuthorizationConfiguration {
           + " && "
           + SPEL_CAN_VIEW_QUEUE_ITEM_FOR_PATIENT)
   public @interface RequirePermissionSubmitTestForPatient {}
+
+  /**
+   * Require the current user to have the {@link UserPermission#SUBMIT_TEST} permission.
+   *
+   * <p>NOTE: this does not check access to any queue item, so any method with this annotation must
+   * itself check that the user can see each of the queue items it acts on.
+   */
+  @Retention(RUNTIME)
+  @Target(METHOD)
+  @PreAuthorize(SPEL_IS_VALID + " && " + SPEL_HAS_PERMISSION_SUBMIT_TEST)
+  public @interface RequirePermissionSubmitTest {}
 }
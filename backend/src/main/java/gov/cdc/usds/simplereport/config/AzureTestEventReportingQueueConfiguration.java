@@ -4,27 +4,56 @@ import com.azure.storage.queue.QueueAsyncClient;
 import com.azure.storage.queue.QueueClientBuilder;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import gov.cdc.usds.simplereport.db.repository.TestEventOutboxRepository;
+import gov.cdc.usds.simplereport.db.repository.TestEventQueueMessageRepository;
 import gov.cdc.usds.simplereport.properties.AzureStorageQueueReportingProperties;
 import gov.cdc.usds.simplereport.service.AzureStorageQueueTestEventReportingService;
+import gov.cdc.usds.simplereport.service.OutboxTestEventReportingService;
 import gov.cdc.usds.simplereport.service.TestEventReportingService;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
+/**
+ * Reports test events to an Azure storage queue, if one is configured, or nowhere at all. Not
+ * enabled when {@link LocalTestEventReportingQueueConfiguration} is.
+ */
 @Configuration
+@ConditionalOnProperty(
+    name = "simple-report.local-reporting-queue.enabled",
+    havingValue = "false",
+    matchIfMissing = true)
 class AzureTestEventReportingQueueConfiguration {
   @Bean
   @Primary
   @ConditionalOnBean
   TestEventReportingService storageQueueReportingService(
-      ObjectMapper mapper, QueueAsyncClient queueClient) {
-    return new AzureStorageQueueTestEventReportingService(mapper, queueClient);
+      ObjectMapper mapper,
+      QueueAsyncClient queueClient,
+      AzureStorageQueueReportingProperties properties,
+      TestEventOutboxRepository outboxRepo,
+      TestEventQueueMessageRepository messageRepo,
+      @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+          Executor taskExecutor) {
+    AzureStorageQueueTestEventReportingService queueReporting =
+        new AzureStorageQueueTestEventReportingService(
+            mapper, queueClient, messageRepo, taskExecutor);
+    if (properties.getUseOutbox()) {
+      return new OutboxTestEventReportingService(queueReporting, outboxRepo);
+    }
+    return queueReporting;
   }
 
   @Bean
@@ -55,7 +84,15 @@ class AzureTestEventReportingQueueConfiguration {
     }
 
     @Override
-    public void markTestEventsAsReported(Set<TestEvent> testEvents) {
+    public CompletableFuture<Void> reportAsync(TestEventExportRecord exportRecord) {
+      LOG.warn(
+          "No TestEventReportingService configured; defaulting to no-op reporting for TestEvent [{}]",
+          exportRecord.getTestEventId());
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void markTestEventIdsAsReported(Set<UUID> testEventIds) {
       LOG.warn("No TestEventReportingService configured; defaulting to no-op reporting");
     }
   }
@@ -0,0 +1,32 @@
+package gov.cdc.usds.simplereport.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.cdc.usds.simplereport.properties.LocalReportingQueueProperties;
+import gov.cdc.usds.simplereport.service.LocalFileTestEventReportingService;
+import gov.cdc.usds.simplereport.service.TestEventReportingService;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Reports test events to a queue kept in local files, for running (and load testing) the reporting
+ * path without a storage account. Only enabled if simple-report.local-reporting-queue.enabled is
+ * true, in which case {@link AzureTestEventReportingQueueConfiguration} is not.
+ */
+@Configuration
+@ConditionalOnProperty(name = "simple-report.local-reporting-queue.enabled", havingValue = "true")
+@EnableConfigurationProperties(LocalReportingQueueProperties.class)
+class LocalTestEventReportingQueueConfiguration {
+  @Bean
+  TestEventReportingService localFileReportingService(
+      ObjectMapper mapper, LocalReportingQueueProperties properties) throws IOException {
+    return new LocalFileTestEventReportingService(
+        mapper,
+        Path.of(properties.getDirectory()),
+        properties.getSegmentSize(),
+        properties.getLatency());
+  }
+}
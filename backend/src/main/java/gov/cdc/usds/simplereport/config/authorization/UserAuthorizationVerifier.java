@@ -24,7 +24,9 @@ import gov.cdc.usds.simplereport.service.OrganizationService;
 import gov.cdc.usds.simplereport.service.model.IdentityAttributes;
 import gov.cdc.usds.simplereport.service.model.IdentitySupplier;
 import gov.cdc.usds.simplereport.service.model.OrganizationRoles;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -244,6 +246,18 @@ public class UserAuthorizationVerifier {
     }
   }
 
+  public boolean userCanAccessPatientLinks(Collection<UUID> patientLinkIds) {
+    Optional<OrganizationRoles> currentOrgRoles = _orgService.getCurrentOrganizationRoles();
+    if (currentOrgRoles.isEmpty()) {
+      return false;
+    }
+    OrganizationRoles orgRoles = currentOrgRoles.get();
+    List<PatientLink> patientLinks = _patientLinkRepo.findAllByInternalIdIn(patientLinkIds);
+    return patientLinks.size() == new HashSet<>(patientLinkIds).size()
+        && patientLinks.stream()
+            .allMatch(pl -> orgRoles.containsFacility(pl.getTestOrder().getFacility()));
+  }
+
   public boolean userHasSpecificPatientSearchPermission(
       UUID facilityId, boolean isArchived, String namePrefixMatch) {
     Set<UserPermission> perms = new HashSet<>();
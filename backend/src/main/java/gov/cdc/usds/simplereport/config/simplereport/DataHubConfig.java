@@ -27,8 +27,33 @@ public final class DataHubConfig {
   private List<String> uploadSchedule;
   /** The time zone for the cron expressions in the schedule (default: GMT) */
   private TimeZone uploadTimezone;
+  /**
+   * whether to stream each batch from a database cursor straight into a chunked request body,
+   * rather than building the whole CSV document in memory first
+   */
+  private final boolean streamingUpload;
+  /**
+   * whether each run should keep uploading batches until it has caught up, rather than stopping
+   * after a single batch of maxCsvRows
+   */
+  private final boolean drainBacklog;
+  /**
+   * if positive, each batch is split into gzip-compressed CSV documents of at most this many rows,
+   * which are tracked and retried individually (this takes precedence over streamingUpload)
+   */
+  private final int uploadChunkRows;
+  /**
+   * if positive, large batches are rendered to CSV in partitions on a pool of this many threads,
+   * rather than on the uploader's own thread
+   */
+  private final int csvRenderThreads;
+  /**
+   * whether to read batches from the test_event_export rows written alongside each test event
+   * (writing any that are missing first), rather than building each row from the event
+   */
+  private final boolean useExportTable;
 
-  @ConstructorBinding
+  /** A config with every optional upload mode turned off, as the uploader originally worked. */
   public DataHubConfig(
       boolean uploadEnabled,
       String uploadUrl,
@@ -37,6 +62,35 @@ public final class DataHubConfig {
       String secretSlackNotifyWebhookUrl,
       List<String> uploadSchedule,
       String uploadTimezone) {
+    this(
+        uploadEnabled,
+        uploadUrl,
+        maxCsvRows,
+        apiKey,
+        secretSlackNotifyWebhookUrl,
+        uploadSchedule,
+        uploadTimezone,
+        false,
+        false,
+        0,
+        0,
+        false);
+  }
+
+  @ConstructorBinding
+  public DataHubConfig(
+      boolean uploadEnabled,
+      String uploadUrl,
+      int maxCsvRows,
+      String apiKey,
+      String secretSlackNotifyWebhookUrl,
+      List<String> uploadSchedule,
+      String uploadTimezone,
+      boolean streamingUpload,
+      boolean drainBacklog,
+      int uploadChunkRows,
+      int csvRenderThreads,
+      boolean useExportTable) {
     this.uploadEnabled = uploadEnabled;
     this.uploadUrl = uploadUrl;
     this.maxCsvRows = maxCsvRows;
@@ -44,6 +98,11 @@ public final class DataHubConfig {
     this.secretSlackNotifyWebhookUrl = secretSlackNotifyWebhookUrl;
     this.uploadSchedule = uploadSchedule;
     this.uploadTimezone = TimeZone.getTimeZone(null != uploadTimezone ? uploadTimezone : "GMT");
+    this.streamingUpload = streamingUpload;
+    this.drainBacklog = drainBacklog;
+    this.uploadChunkRows = uploadChunkRows;
+    this.csvRenderThreads = csvRenderThreads;
+    this.useExportTable = useExportTable;
   }
 
   // to change go into application-dev.yaml and/or application-test.yaml and change uploadEnabled
@@ -74,4 +133,24 @@ public final class DataHubConfig {
   public TimeZone getUploadTimezone() {
     return uploadTimezone;
   }
+
+  public boolean getStreamingUpload() {
+    return streamingUpload;
+  }
+
+  public boolean getDrainBacklog() {
+    return drainBacklog;
+  }
+
+  public int getUploadChunkRows() {
+    return uploadChunkRows;
+  }
+
+  public int getCsvRenderThreads() {
+    return csvRenderThreads;
+  }
+
+  public boolean getUseExportTable() {
+    return useExportTable;
+  }
 }
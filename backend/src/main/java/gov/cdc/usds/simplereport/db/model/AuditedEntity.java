@@ -60,4 +60,8 @@ public abstract class AuditedEntity implements DatabaseEntity {
   public Date getUpdatedAt() {
     return updatedAt;
   }
+
+  public ApiUser getCreatedBy() {
+    return createdBy;
+  }
 }
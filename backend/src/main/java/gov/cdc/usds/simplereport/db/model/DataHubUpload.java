@@ -1,7 +1,10 @@
 package gov.cdc.usds.simplereport.db.model;
 
+import gov.cdc.usds.simplereport.db.model.auxiliary.DataHubUploadChunk;
 import gov.cdc.usds.simplereport.db.model.auxiliary.DataHubUploadStatus;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
@@ -33,12 +36,25 @@ public class DataHubUpload extends SystemManagedEntity {
 
   @Column private Date earliestRecordedTimestamp;
 
+  // together with earliestRecordedTimestamp, the keyset the batch started after
+  @Column(columnDefinition = "uuid")
+  private UUID earliestRecordedInternalId;
+
   @Column private Date latestRecordedTimestamp;
 
+  // together with latestRecordedTimestamp, the keyset of the last test event sent
+  @Column(columnDefinition = "uuid")
+  private UUID latestRecordedInternalId;
+
   @Column
   @Type(type = "jsonb")
   private String responseData;
 
+  // only set for chunked uploads, in upload order
+  @Column
+  @Type(type = "jsonb")
+  private List<DataHubUploadChunk> chunks;
+
   public DataHubUploadStatus getJobStatus() {
     return jobStatus;
   }
@@ -66,6 +82,15 @@ public class DataHubUpload extends SystemManagedEntity {
     return this;
   }
 
+  public UUID getEarliestRecordedInternalId() {
+    return earliestRecordedInternalId;
+  }
+
+  public DataHubUpload setEarliestRecordedInternalId(UUID earliestRecordedInternalId) {
+    this.earliestRecordedInternalId = earliestRecordedInternalId;
+    return this;
+  }
+
   public Date getLatestRecordedTimestamp() {
     return latestRecordedTimestamp;
   }
@@ -75,6 +100,15 @@ public class DataHubUpload extends SystemManagedEntity {
     return this;
   }
 
+  public UUID getLatestRecordedInternalId() {
+    return latestRecordedInternalId;
+  }
+
+  public DataHubUpload setLatestRecordedInternalId(UUID latestRecordedInternalId) {
+    this.latestRecordedInternalId = latestRecordedInternalId;
+    return this;
+  }
+
   public String getErrorMessage() {
     return errorMessage;
   }
@@ -92,4 +126,13 @@ public class DataHubUpload extends SystemManagedEntity {
     this.responseData = responseData;
     return this;
   }
+
+  public List<DataHubUploadChunk> getChunks() {
+    return chunks;
+  }
+
+  public DataHubUpload setChunks(List<DataHubUploadChunk> chunks) {
+    this.chunks = chunks;
+    return this;
+  }
 }
@@ -0,0 +1,103 @@
+package gov.cdc.usds.simplereport.db.model;
+
+import gov.cdc.usds.simplereport.db.model.auxiliary.PersonName;
+import gov.cdc.usds.simplereport.db.model.auxiliary.PersonRole;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Just enough of a {@link Person} to show them in the patient list, with their facility and primary
+ * phone number, all read in one statement. Unlike a {@link Person}, this is not an entity: it is
+ * read-only, and nothing else is loaded when it is read.
+ */
+public class PersonSummary implements DatabaseEntity, PersonEntity {
+  private final UUID _internalId;
+  private final String _lookupId;
+  private final PersonName _nameInfo;
+  private final LocalDate _birthDate;
+  private final PersonRole _role;
+  private final boolean _isDeleted;
+  // both null if the person belongs to every facility of their organization
+  private final UUID _facilityId;
+  private final String _facilityName;
+  // null if the person has no phone number
+  private final String _telephone;
+
+  public PersonSummary(
+      UUID internalId,
+      String lookupId,
+      String firstName,
+      String middleName,
+      String lastName,
+      String suffix,
+      LocalDate birthDate,
+      PersonRole role,
+      boolean isDeleted,
+      UUID facilityId,
+      String facilityName,
+      String telephone) {
+    this._internalId = internalId;
+    this._lookupId = lookupId;
+    this._nameInfo = new PersonName(firstName, middleName, lastName, suffix);
+    this._birthDate = birthDate;
+    this._role = role;
+    this._isDeleted = isDeleted;
+    this._facilityId = facilityId;
+    this._facilityName = facilityName;
+    this._telephone = telephone;
+  }
+
+  @Override
+  public UUID getInternalId() {
+    return _internalId;
+  }
+
+  public String getLookupId() {
+    return _lookupId;
+  }
+
+  @Override
+  public PersonName getNameInfo() {
+    return _nameInfo;
+  }
+
+  public String getFirstName() {
+    return _nameInfo.getFirstName();
+  }
+
+  public String getMiddleName() {
+    return _nameInfo.getMiddleName();
+  }
+
+  public String getLastName() {
+    return _nameInfo.getLastName();
+  }
+
+  public String getSuffix() {
+    return _nameInfo.getSuffix();
+  }
+
+  public LocalDate getBirthDate() {
+    return _birthDate;
+  }
+
+  public PersonRole getRole() {
+    return _role;
+  }
+
+  public boolean isDeleted() {
+    return _isDeleted;
+  }
+
+  public UUID getFacilityId() {
+    return _facilityId;
+  }
+
+  public String getFacilityName() {
+    return _facilityName;
+  }
+
+  public String getTelephone() {
+    return _telephone;
+  }
+}
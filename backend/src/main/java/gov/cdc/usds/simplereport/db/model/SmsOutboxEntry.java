@@ -0,0 +1,110 @@
+package gov.cdc.usds.simplereport.db.model;
+
+import java.util.Date;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+/**
+ * A text message about a {@link PatientLink} that has been committed along with the request that
+ * sent it, but not yet handed to the SMS provider.
+ */
+@Entity
+@Table(name = "sms_outbox")
+public class SmsOutboxEntry extends AuditedEntity {
+
+  @ManyToOne(optional = false, fetch = FetchType.LAZY)
+  @JoinColumn(name = "patient_link_internal_id", nullable = false, updatable = false)
+  private PatientLink patientLink;
+
+  @Column(nullable = false, updatable = false)
+  private String toNumber;
+
+  @Column(nullable = false, updatable = false)
+  private String fromNumber;
+
+  @Column(nullable = false, updatable = false)
+  private String message;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(nullable = false)
+  private Date nextAttemptAt;
+
+  @Column private String lastError;
+
+  @Column(nullable = false)
+  private boolean failed;
+
+  protected SmsOutboxEntry() {
+    /* for hibernate */
+  }
+
+  public SmsOutboxEntry(
+      PatientLink patientLink, String toNumber, String fromNumber, String message) {
+    this.patientLink = patientLink;
+    this.toNumber = toNumber;
+    this.fromNumber = fromNumber;
+    this.message = message;
+    this.attempts = 0;
+    this.nextAttemptAt = new Date();
+  }
+
+  public PatientLink getPatientLink() {
+    return patientLink;
+  }
+
+  public String getToNumber() {
+    return toNumber;
+  }
+
+  public String getFromNumber() {
+    return fromNumber;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public Date getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public boolean isFailed() {
+    return failed;
+  }
+
+  /** Record a failed attempt to send the message, and when the next one should be made. */
+  public SmsOutboxEntry markFailed(String error, Date retryAt) {
+    this.attempts++;
+    this.lastError = error;
+    this.nextAttemptAt = retryAt;
+    return this;
+  }
+
+  /** Record the last failed attempt to send the message: no more attempts will be made. */
+  public SmsOutboxEntry markGivenUp(String error) {
+    this.attempts++;
+    this.lastError = error;
+    this.failed = true;
+    return this;
+  }
+
+  /** Put off the next attempt to send the message, without counting this one as a failure. */
+  public SmsOutboxEntry postpone(Date retryAt) {
+    this.nextAttemptAt = retryAt;
+    return this;
+  }
+}
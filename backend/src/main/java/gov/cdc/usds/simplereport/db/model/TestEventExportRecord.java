@@ -0,0 +1,65 @@
+package gov.cdc.usds.simplereport.db.model;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.MapsId;
+import javax.persistence.OneToOne;
+import javax.persistence.Table;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Type;
+
+/**
+ * The flattened row that a {@link TestEvent} is exported as, written in the same transaction as the
+ * event itself so that exports can read it back without loading the event, its snapshots, or any
+ * of the entities it refers to.
+ */
+@Entity
+@Immutable
+@Table(name = "test_event_export")
+public class TestEventExportRecord {
+
+  @Id private UUID testEventId;
+
+  @OneToOne(fetch = FetchType.LAZY)
+  @MapsId
+  @JoinColumn(name = "test_event_id")
+  private TestEvent testEvent;
+
+  // the event's creation time, so that exports can page on the same keyset as the events
+  @Column(nullable = false, updatable = false)
+  private Date createdAt;
+
+  @Column(nullable = false, updatable = false)
+  @Type(type = "jsonb")
+  private Map<String, String> exportValues;
+
+  protected TestEventExportRecord() {
+    /* for hibernate */
+  }
+
+  public TestEventExportRecord(TestEvent testEvent, Map<String, String> exportValues) {
+    this.testEvent = testEvent;
+    this.testEventId = testEvent.getInternalId();
+    this.createdAt = testEvent.getCreatedAt();
+    this.exportValues = exportValues;
+  }
+
+  public UUID getTestEventId() {
+    return testEventId;
+  }
+
+  public Date getCreatedAt() {
+    return createdAt;
+  }
+
+  /** The exported value of each column, by column name. */
+  public Map<String, String> getExportValues() {
+    return exportValues;
+  }
+}
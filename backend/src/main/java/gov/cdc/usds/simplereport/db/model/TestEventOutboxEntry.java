@@ -0,0 +1,69 @@
+package gov.cdc.usds.simplereport.db.model;
+
+import java.util.Date;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import org.hibernate.annotations.DynamicUpdate;
+
+/**
+ * A queue message about a {@link TestEvent} that has been committed along with the event, but not
+ * yet delivered to the reporting queue.
+ */
+@Entity
+@DynamicUpdate
+public class TestEventOutboxEntry extends SystemManagedEntity {
+
+  @Column(nullable = false, updatable = false, columnDefinition = "uuid")
+  private UUID testEventId;
+
+  @Column(nullable = false, updatable = false)
+  private String message;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(nullable = false)
+  private Date nextAttemptAt;
+
+  @Column private String lastError;
+
+  protected TestEventOutboxEntry() {
+    /* for hibernate */
+  }
+
+  public TestEventOutboxEntry(UUID testEventId, String message) {
+    this.testEventId = testEventId;
+    this.message = message;
+    this.attempts = 0;
+    this.nextAttemptAt = new Date();
+  }
+
+  public UUID getTestEventId() {
+    return testEventId;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public Date getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  /** Record a failed delivery attempt, and when the next one should be made. */
+  public TestEventOutboxEntry markFailed(String error, Date retryAt) {
+    this.attempts++;
+    this.lastError = error;
+    this.nextAttemptAt = retryAt;
+    return this;
+  }
+}
@@ -0,0 +1,56 @@
+package gov.cdc.usds.simplereport.db.model;
+
+import java.util.Date;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The reporting queue message most recently sent for a {@link TestEvent}, identified the way the
+ * queue needs it to be deleted, so that reported events can be removed from the queue without
+ * searching it for them.
+ */
+@Entity
+@Table(name = "test_event_queue_message")
+public class TestEventQueueMessage {
+
+  @Id private UUID testEventId;
+
+  @Column(nullable = false)
+  private String messageId;
+
+  @Column(nullable = false)
+  private String popReceipt;
+
+  @Column(nullable = false)
+  private Date sentAt;
+
+  protected TestEventQueueMessage() {
+    /* for hibernate */
+  }
+
+  public TestEventQueueMessage(UUID testEventId, String messageId, String popReceipt) {
+    this.testEventId = testEventId;
+    this.messageId = messageId;
+    this.popReceipt = popReceipt;
+    this.sentAt = new Date();
+  }
+
+  public UUID getTestEventId() {
+    return testEventId;
+  }
+
+  public String getMessageId() {
+    return messageId;
+  }
+
+  public String getPopReceipt() {
+    return popReceipt;
+  }
+
+  public Date getSentAt() {
+    return sentAt;
+  }
+}
@@ -4,8 +4,11 @@ import gov.cdc.usds.simplereport.db.model.auxiliary.OrderStatus;
 import gov.cdc.usds.simplereport.db.model.auxiliary.TestCorrectionStatus;
 import gov.cdc.usds.simplereport.db.model.auxiliary.TestResult;
 import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
@@ -13,8 +16,9 @@ import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
-import org.hibernate.annotations.JoinFormula;
+import javax.persistence.OneToMany;
 import org.hibernate.annotations.Type;
+import org.hibernate.annotations.Where;
 import org.json.JSONObject;
 
 @Entity
@@ -35,16 +39,17 @@ public class TestOrder extends BaseTestInfo {
   @JoinColumn(name = "test_event_id")
   private TestEvent testEvent;
 
-  @ManyToOne
-  @JoinFormula(
-      "("
-          + "SELECT pl.internal_id "
-          + "FROM {h-schema}patient_link pl "
-          + "WHERE pl.test_order_id = internal_id "
-          + "ORDER BY pl.created_at DESC "
-          + "LIMIT 1"
-          + ")")
-  private PatientLink patientLink;
+  // only the newest link generated for this order is still of any use, so that is all this
+  // loads; mapping it as a collection lets a whole queue's worth be fetched along with the queue
+  @OneToMany(mappedBy = "testOrder")
+  @Where(
+      clause =
+          "created_at = ("
+              + "SELECT max(pl.created_at) "
+              + "FROM {h-schema}patient_link pl "
+              + "WHERE pl.test_order_id = test_order_id"
+              + ")")
+  private Set<PatientLink> patientLinks = new HashSet<>();
 
   protected TestOrder() {
     /* for hibernate */ }
@@ -150,11 +155,17 @@ public class TestOrder extends BaseTestInfo {
     super.setReasonForCorrection(reasonForCorrection);
   }
 
+  /** The most recently generated link for this order, if there is one. */
   public PatientLink getPatientLink() {
-    return patientLink;
+    // a link that has not been saved yet has no creation time, and is newer than any that has
+    return patientLinks.stream()
+        .max(
+            Comparator.comparing(
+                PatientLink::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder())))
+        .orElse(null);
   }
 
   public void setPatientLink(PatientLink patientLink) {
-    this.patientLink = patientLink;
+    patientLinks.add(patientLink);
   }
 }
@@ -0,0 +1,107 @@
+package gov.cdc.usds.simplereport.db.model;
+
+import gov.cdc.usds.simplereport.db.model.auxiliary.TestResult;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import org.hibernate.annotations.Type;
+
+/**
+ * The number of test results of one kind at a facility on one day, not counting results that have
+ * been removed. These counts are kept up to date as results are recorded and removed, so that they
+ * can be read without counting the results themselves.
+ */
+@Entity
+@Table(name = "test_result_daily_rollup")
+@IdClass(TestResultDailyCount.Key.class)
+public class TestResultDailyCount {
+
+  @Id private UUID facilityId;
+
+  @Id private LocalDate testDate;
+
+  @Id
+  @Type(type = "pg_enum")
+  @Enumerated(EnumType.STRING)
+  private TestResult result;
+
+  @Column(nullable = false)
+  private int resultCount;
+
+  protected TestResultDailyCount() {
+    /* for hibernate */
+  }
+
+  public UUID getFacilityId() {
+    return facilityId;
+  }
+
+  public LocalDate getDate() {
+    return testDate;
+  }
+
+  public TestResult getResult() {
+    return result;
+  }
+
+  public int getCount() {
+    return resultCount;
+  }
+
+  public static class Key implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private UUID facilityId;
+    private LocalDate testDate;
+    private TestResult result;
+
+    protected Key() {
+      /* for hibernate */
+    }
+
+    public Key(UUID facilityId, LocalDate testDate, TestResult result) {
+      this.facilityId = facilityId;
+      this.testDate = testDate;
+      this.result = result;
+    }
+
+    public UUID getFacilityId() {
+      return facilityId;
+    }
+
+    public LocalDate getTestDate() {
+      return testDate;
+    }
+
+    public TestResult getResult() {
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Objects.equals(facilityId, other.facilityId)
+          && Objects.equals(testDate, other.testDate)
+          && result == other.result;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(facilityId, testDate, result);
+    }
+  }
+}
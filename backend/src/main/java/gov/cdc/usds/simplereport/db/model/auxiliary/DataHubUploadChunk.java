@@ -0,0 +1,75 @@
+package gov.cdc.usds.simplereport.db.model.auxiliary;
+
+/**
+ * The tracking record for one chunk of a chunked DataHub upload, stored as part of a JSON array on
+ * the upload itself. A chunk is identified by its position in the batch (the rows it covers) and by
+ * the checksum of its uncompressed CSV contents.
+ */
+public class DataHubUploadChunk {
+
+  private int firstRow;
+  private int rowCount;
+  private String checksum;
+  private DataHubUploadStatus status;
+  private int attempts;
+  private String errorMessage;
+
+  protected DataHubUploadChunk() {
+    /* for Jackson */
+  }
+
+  public DataHubUploadChunk(int firstRow, int rowCount, String checksum) {
+    this.firstRow = firstRow;
+    this.rowCount = rowCount;
+    this.checksum = checksum;
+    this.status = DataHubUploadStatus.IN_PROGRESS;
+    this.attempts = 0;
+    this.errorMessage = "";
+  }
+
+  /** Whether this chunk holds exactly the same rows, and contents, as the other chunk. */
+  public boolean hasSameContents(DataHubUploadChunk other) {
+    return firstRow == other.firstRow
+        && rowCount == other.rowCount
+        && checksum.equals(other.checksum);
+  }
+
+  public int getFirstRow() {
+    return firstRow;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public String getChecksum() {
+    return checksum;
+  }
+
+  public DataHubUploadStatus getStatus() {
+    return status;
+  }
+
+  public DataHubUploadChunk setStatus(DataHubUploadStatus status) {
+    this.status = status;
+    return this;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public DataHubUploadChunk setAttempts(int attempts) {
+    this.attempts = attempts;
+    return this;
+  }
+
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  public DataHubUploadChunk setErrorMessage(String errorMessage) {
+    this.errorMessage = errorMessage;
+    return this;
+  }
+}
@@ -22,6 +22,9 @@ public interface DataHubUploadRespository
   public DataHubUpload findDistinctTopByJobStatusOrderByLatestRecordedTimestampDesc(
       DataHubUploadStatus jobStatus);
 
+  /** The most recent upload attempt, whatever its status. */
+  public DataHubUpload findFirstByOrderByCreatedAtDesc();
+
   // used by unit tests
   public List<DataHubUpload> findAll();
 
@@ -3,6 +3,7 @@ package gov.cdc.usds.simplereport.db.repository;
 import gov.cdc.usds.simplereport.db.model.DeviceSpecimenType;
 import gov.cdc.usds.simplereport.db.model.DeviceType;
 import gov.cdc.usds.simplereport.db.model.SpecimenType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -29,4 +30,9 @@ public interface DeviceSpecimenTypeRepository
       UUID deviceTypeId); // IGNORES
   // DELETION
 
+  // the same shim, for many device types at once: the first one for each device type is its default
+  @Deprecated
+  @EntityGraph(attributePaths = {"deviceType", "specimenType"})
+  public List<DeviceSpecimenType> findAllByDeviceTypeInternalIdInOrderByCreatedAt(
+      Collection<UUID> deviceTypeIds);
 }
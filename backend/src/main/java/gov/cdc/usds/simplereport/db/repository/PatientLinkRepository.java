@@ -2,9 +2,16 @@ package gov.cdc.usds.simplereport.db.repository;
 
 import gov.cdc.usds.simplereport.db.model.PatientLink;
 import gov.cdc.usds.simplereport.db.model.TestOrder;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.EntityGraph;
 
 public interface PatientLinkRepository extends EternalAuditedEntityRepository<PatientLink> {
 
   public Optional<PatientLink> findByTestOrder(TestOrder to);
+
+  @EntityGraph(attributePaths = {"testOrder", "testOrder.patient", "testOrder.facility"})
+  public List<PatientLink> findAllByInternalIdIn(Collection<UUID> internalIds);
 }
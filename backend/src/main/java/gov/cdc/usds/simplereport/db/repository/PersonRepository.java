@@ -2,6 +2,7 @@ package gov.cdc.usds.simplereport.db.repository;
 
 import gov.cdc.usds.simplereport.db.model.Organization;
 import gov.cdc.usds.simplereport.db.model.Person;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,10 +15,15 @@ public interface PersonRepository extends EternalAuditedEntityRepository<Person>
 
   public List<Person> findAll(Specification<Person> searchSpec, Pageable p);
 
+  public List<Person> findAll(Specification<Person> searchSpec);
+
   public int count(Specification<Person> searchSpec);
 
   @Query(
       BASE_ALLOW_DELETED_QUERY
           + " e.isDeleted = :isDeleted AND e.internalId = :id and e.organization = :org")
   public Optional<Person> findByIdAndOrganization(UUID id, Organization org, boolean isDeleted);
+
+  @Query(BASE_QUERY + " and e.internalId in :ids and e.organization = :org")
+  public List<Person> findAllByIdInAndOrganization(Collection<UUID> ids, Organization org);
 }
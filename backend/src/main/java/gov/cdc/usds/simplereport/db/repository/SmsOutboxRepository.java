@@ -0,0 +1,35 @@
+package gov.cdc.usds.simplereport.db.repository;
+
+import gov.cdc.usds.simplereport.db.model.SmsOutboxEntry;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+
+public interface SmsOutboxRepository extends Repository<SmsOutboxEntry, UUID> {
+
+  public SmsOutboxEntry save(SmsOutboxEntry entity);
+
+  public Iterable<SmsOutboxEntry> saveAll(Iterable<SmsOutboxEntry> entities);
+
+  public void delete(SmsOutboxEntry entity);
+
+  /** Write out every change waiting in the current transaction, not just those to this table. */
+  public void flush();
+
+  /**
+   * Lock and return (at most limit of) the oldest entries that are due to be sent, never those that
+   * have failed, skipping any that another transaction already holds, so that any number of workers
+   * can drain the outbox at once. Must be called inside a transaction.
+   */
+  @Query(
+      nativeQuery = true,
+      value =
+          "SELECT * FROM {h-schema}sms_outbox WHERE NOT failed AND next_attempt_at <= :now"
+              + " ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED")
+  public List<SmsOutboxEntry> lockDueEntries(Date now, int limit);
+
+  // used by unit tests
+  public List<SmsOutboxEntry> findAll();
+}
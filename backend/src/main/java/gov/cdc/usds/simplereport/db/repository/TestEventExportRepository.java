@@ -0,0 +1,49 @@
+package gov.cdc.usds.simplereport.db.repository;
+
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Read access to the export rows that are projected from each {@link
+ * gov.cdc.usds.simplereport.db.model.TestEvent} when it is created. Rows are keyed, and paged, the
+ * same way as the events themselves: see {@link TestEventRepository#queryMatchAllAfterKey}.
+ */
+public interface TestEventExportRepository extends Repository<TestEventExportRecord, UUID> {
+
+  String KEYSET_QUERY =
+      "FROM #{#entityName} r"
+          + " WHERE (r.createdAt > :lastTimestamp"
+          + " OR (r.createdAt = :lastTimestamp AND r.testEventId > :lastId))"
+          + " AND r.createdAt <= :cutoff"
+          + " ORDER BY r.createdAt, r.testEventId";
+
+  /** The export rows of the events after the keyset, no later than the cutoff, in keyset order. */
+  @Query(KEYSET_QUERY)
+  public List<TestEventExportRecord> queryMatchAllAfterKey(
+      Date lastTimestamp, UUID lastId, Date cutoff, Pageable p);
+
+  /**
+   * The same range as {@link #queryMatchAllAfterKey}, read through a forward-only cursor. Must be
+   * called inside a transaction, and the returned stream must be closed.
+   */
+  @QueryHints({
+    @QueryHint(
+        name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE,
+        value = "" + TestEventRepository.EXPORT_FETCH_SIZE),
+    @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"),
+  })
+  @Query(KEYSET_QUERY)
+  public Stream<TestEventExportRecord> streamMatchAllAfterKey(
+      Date lastTimestamp, UUID lastId, Date cutoff);
+
+  // used by unit tests
+  public TestEventExportRecord findByTestEventId(UUID testEventId);
+}
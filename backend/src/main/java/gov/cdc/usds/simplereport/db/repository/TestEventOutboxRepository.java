@@ -0,0 +1,55 @@
+package gov.cdc.usds.simplereport.db.repository;
+
+import gov.cdc.usds.simplereport.db.model.TestEventOutboxEntry;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface TestEventOutboxRepository
+    extends Repository<TestEventOutboxEntry, UUID>, AdvisoryLockManager {
+
+  /**
+   * The lock identifier for the advisory lock for the outbox relay. (Use as the second argument to
+   * the postgresql two-argument locking functions.)
+   */
+  int OUTBOX_RELAY_LOCK = 50718343; // arbitrary 32-bit integer for our lock
+
+  public TestEventOutboxEntry save(TestEventOutboxEntry entity);
+
+  public void delete(TestEventOutboxEntry entity);
+
+  /**
+   * Lock and return (at most limit of) the oldest entries that are due for delivery, skipping any
+   * that another transaction already holds. Must be called inside a transaction.
+   */
+  @Query(
+      nativeQuery = true,
+      value =
+          "SELECT * FROM {h-schema}test_event_outbox WHERE next_attempt_at <= :now"
+              + " ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED")
+  public List<TestEventOutboxEntry> lockDueEntries(Date now, int limit);
+
+  /** Remove the entries for these test events, which no longer need to be delivered. */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM #{#entityName} e WHERE e.testEventId IN :testEventIds")
+  public int deleteByTestEventIds(Collection<UUID> testEventIds);
+
+  // used by unit tests
+  public List<TestEventOutboxEntry> findAll();
+
+  /**
+   * Try to obtain the lock for the outbox relay. (It will be released automatically when the
+   * current transaction closes.)
+   *
+   * @return true if the lock was obtained, false otherwise.
+   */
+  default boolean tryRelayLock() {
+    return tryLock(CORE_API_LOCK_SCOPE, OUTBOX_RELAY_LOCK);
+  }
+}
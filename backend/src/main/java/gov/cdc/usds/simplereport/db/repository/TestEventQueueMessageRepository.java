@@ -0,0 +1,32 @@
+package gov.cdc.usds.simplereport.db.repository;
+
+import gov.cdc.usds.simplereport.db.model.TestEventQueueMessage;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository for the queue messages sent for test events. Messages are recorded from queue
+ * callbacks, and removed by callers that may be in read-only transactions, so every write is made
+ * in a transaction of its own.
+ */
+public interface TestEventQueueMessageRepository extends Repository<TestEventQueueMessage, UUID> {
+
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public TestEventQueueMessage save(TestEventQueueMessage entity);
+
+  public List<TestEventQueueMessage> findAllByTestEventIdIn(Collection<UUID> testEventIds);
+
+  @Modifying
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Query("DELETE FROM #{#entityName} m WHERE m.testEventId IN :testEventIds")
+  public int deleteByTestEventIds(Collection<UUID> testEventIds);
+
+  // used by unit tests
+  public List<TestEventQueueMessage> findAll();
+}
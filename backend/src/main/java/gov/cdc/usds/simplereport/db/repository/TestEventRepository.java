@@ -8,12 +8,15 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 /**
  * Note: over time, replace the specialized methods below with new uses of <code>findAll()</code>
@@ -21,6 +24,24 @@ import org.springframework.data.jpa.repository.Query;
  */
 public interface TestEventRepository
     extends AuditedEntityRepository<TestEvent>, JpaSpecificationExecutor<TestEvent> {
+
+  /** The number of rows the JDBC driver fetches per round trip when streaming exports. */
+  int EXPORT_FETCH_SIZE = 200;
+
+  /** The greatest possible UUID: no internal_id sorts after it. */
+  UUID KEYSET_MAX_ID = new UUID(-1L, -1L);
+
+  /**
+   * Keyset pagination across all Orgs/facilities (for the datahub uploader) on (createdAt,
+   * internalId), which is backed by an index.
+   */
+  String KEYSET_QUERY =
+      "FROM #{#entityName} q"
+          + " WHERE (q.createdAt > :lastTimestamp"
+          + " OR (q.createdAt = :lastTimestamp AND q.internalId > :lastId))"
+          + " AND q.createdAt <= :cutoff"
+          + " ORDER BY q.createdAt, q.internalId";
+
   @Deprecated
   /** @deprecated (for sonar) */
   @Query("FROM #{#entityName} e WHERE e.patient = :p and e.facility in :facilities")
@@ -42,9 +63,11 @@ public interface TestEventRepository
   /** @deprecated (for sonar) */
   @Query(
       value =
-          " SELECT DISTINCT ON (patient_id) *, COALESCE(date_tested_backdate, created_at) AS coalesced_last_test_date FROM {h-schema}test_event"
+          " SELECT DISTINCT ON (patient_id) * FROM {h-schema}test_event"
               + " WHERE patient_id IN :patientIds"
-              + " ORDER BY patient_id, coalesced_last_test_date DESC",
+              // the expression test_event is indexed on, so each patient's last test is read from
+              // the index rather than sorting all their tests
+              + " ORDER BY patient_id, COALESCE(date_tested_backdate, created_at) DESC",
       nativeQuery = true)
   public List<TestEvent> findLastTestsByPatient(Collection<UUID> patientIds);
 
@@ -61,6 +84,68 @@ public interface TestEventRepository
       "FROM #{#entityName} q WHERE q.createdAt > :before AND q.createdAt <= :after ORDER BY q.createdAt")
   public List<TestEvent> queryMatchAllBetweenDates(Date before, Date after, Pageable p);
 
+  /**
+   * Page through the events created after the keyset {@code (lastTimestamp, lastId)} and no later
+   * than {@code cutoff}, in keyset order. Unlike {@link #queryMatchAllBetweenDates}, events that
+   * share a creation timestamp with the last event of a full page are not skipped.
+   *
+   * <p>Pass {@link #KEYSET_MAX_ID} as {@code lastId} to resume from a boundary that was recorded
+   * as a timestamp only.
+   *
+   * <p>Everything that TestEventExport reads is fetched along with the events, so that exporting a
+   * page does not issue further statements for each event.
+   */
+  @EntityGraph(
+      attributePaths = {
+        "facility.organization",
+        "facility.orderingProvider",
+        "deviceSpecimen.deviceType",
+        "deviceSpecimen.specimenType"
+      })
+  @Query(KEYSET_QUERY)
+  public List<TestEvent> queryMatchAllAfterKey(
+      Date lastTimestamp, UUID lastId, Date cutoff, Pageable p);
+
+  /**
+   * The same range as {@link #queryMatchAllAfterKey}, but read through a forward-only cursor so
+   * that rows can be written out (and detached) one at a time. Must be called inside a
+   * transaction, and the returned stream must be closed.
+   */
+  @QueryHints({
+    @QueryHint(
+        name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE,
+        value = "" + EXPORT_FETCH_SIZE),
+    @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"),
+  })
+  @EntityGraph(
+      attributePaths = {
+        "facility.organization",
+        "facility.orderingProvider",
+        "deviceSpecimen.deviceType",
+        "deviceSpecimen.specimenType"
+      })
+  @Query(KEYSET_QUERY)
+  public Stream<TestEvent> streamMatchAllAfterKey(Date lastTimestamp, UUID lastId, Date cutoff);
+
+  /**
+   * Events created no later than the cutoff that do not have an export row yet (because they were
+   * created before export rows were written), oldest first, fetched the same way as {@link
+   * #queryMatchAllAfterKey}.
+   */
+  @EntityGraph(
+      attributePaths = {
+        "facility.organization",
+        "facility.orderingProvider",
+        "deviceSpecimen.deviceType",
+        "deviceSpecimen.specimenType"
+      })
+  @Query(
+      "FROM #{#entityName} q WHERE q.createdAt <= :cutoff"
+          + " AND NOT EXISTS"
+          + " (SELECT r FROM TestEventExportRecord r WHERE r.testEventId = q.internalId)"
+          + " ORDER BY q.createdAt, q.internalId")
+  public List<TestEvent> findWithoutExportRecord(Date cutoff, Pageable p);
+
   // @Query("FROM #{#entityName} q WHERE q.facility = :facility and q.createdAt >
   // :newerThanDate
   // ORDER BY q.createdAt DESC")
@@ -5,14 +5,22 @@ import gov.cdc.usds.simplereport.db.model.Organization;
 import gov.cdc.usds.simplereport.db.model.Person;
 import gov.cdc.usds.simplereport.db.model.TestEvent;
 import gov.cdc.usds.simplereport.db.model.TestOrder;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 public interface TestOrderRepository extends AuditedEntityRepository<TestOrder> {
 
+  // fetching a collection along with the orders repeats each order once per element: this removes
+  // the repeats in memory, leaving the database to return the rows as they are
+  public static final String DISTINCT_ORDERS = "select distinct q ";
+  public static final String NO_DISTINCT_IN_SQL =
+      org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
   public static final String BASE_QUERY =
       "from #{#entityName} q "
           + "where q.organization.isDeleted = false "
@@ -24,14 +32,31 @@ public interface TestOrderRepository extends AuditedEntityRepository<TestOrder>
   public static final String ORDER_CREATION_ORDER = " order by q.createdAt ";
   public static final String RESULT_RECENT_ORDER = " order by updatedAt desc ";
 
-  @Query(FACILITY_QUERY + IS_PENDING + ORDER_CREATION_ORDER)
-  @EntityGraph(attributePaths = {"patient", "patientLink"})
+  /**
+   * The queue for a facility, with everything the queue shows about each order fetched in the same
+   * statement, so that the number of statements it takes does not grow with the queue.
+   */
+  @Query(DISTINCT_ORDERS + FACILITY_QUERY + IS_PENDING + ORDER_CREATION_ORDER)
+  @EntityGraph(
+      attributePaths = {
+        "patient",
+        "patient.primaryPhone",
+        "askOnEntrySurvey",
+        "deviceType",
+        "patientLinks"
+      })
+  @QueryHints(@QueryHint(name = NO_DISTINCT_IN_SQL, value = "false"))
   public List<TestOrder> fetchQueue(Organization org, Facility facility);
 
   @Query(BASE_ORG_QUERY + IS_PENDING + " and q.patient = :patient")
   @EntityGraph(attributePaths = "patient")
   public Optional<TestOrder> fetchQueueItem(Organization org, Person patient);
 
+  @Query(DISTINCT_ORDERS + BASE_ORG_QUERY + IS_PENDING + " and q.patient.internalId in :patientIds")
+  @EntityGraph(attributePaths = {"patient", "facility", "askOnEntrySurvey", "patientLinks"})
+  @QueryHints(@QueryHint(name = NO_DISTINCT_IN_SQL, value = "false"))
+  public List<TestOrder> fetchQueueItemsForPatients(Organization org, Collection<UUID> patientIds);
+
   @Query(BASE_QUERY + IS_PENDING + " and q.id = :id")
   public Optional<TestOrder> fetchQueueItemById(UUID id);
 
@@ -0,0 +1,37 @@
+package gov.cdc.usds.simplereport.db.repository;
+
+import gov.cdc.usds.simplereport.db.model.TestResultDailyCount;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+
+/** Repository for the daily counts of test results at each facility. */
+public interface TestResultDailyCountRepository
+    extends Repository<TestResultDailyCount, TestResultDailyCount.Key> {
+
+  /**
+   * Add {@code delta} (which may be negative) to the count of results of this kind at this facility
+   * on this day, starting it at zero if there is no count yet. The count's row stays locked until
+   * the transaction ends.
+   */
+  @Modifying
+  @Query(
+      nativeQuery = true,
+      value =
+          "INSERT INTO {h-schema}test_result_daily_rollup AS r"
+              + " (facility_id, test_date, result, result_count)"
+              + " VALUES (:facilityId, :testDate, CAST(:result AS {h-schema}test_result), :delta)"
+              + " ON CONFLICT (facility_id, test_date, result)"
+              + " DO UPDATE SET result_count = r.result_count + EXCLUDED.result_count")
+  public int addToCount(UUID facilityId, LocalDate testDate, String result, int delta);
+
+  @Query(
+      "FROM #{#entityName} c WHERE c.facilityId = :facilityId"
+          + " AND c.testDate BETWEEN :startDate AND :endDate AND c.resultCount <> 0"
+          + " ORDER BY c.testDate, c.result")
+  public List<TestResultDailyCount> findCounts(
+      UUID facilityId, LocalDate startDate, LocalDate endDate);
+}
@@ -10,13 +10,26 @@ public final class AzureStorageQueueReportingProperties {
   private final String accountName;
   private final String sasToken;
   private final String queueName;
+  /**
+   * whether to write each message to the test_event_outbox table in the reporting transaction, to
+   * be delivered to the queue in the background, rather than sending it while the request waits
+   */
+  private final boolean useOutbox;
+  /** the most outbox messages the relay delivers in each transaction */
+  private final int outboxBatchSize;
 
   @ConstructorBinding
   public AzureStorageQueueReportingProperties(
-      String accountName, String sasToken, String queueName) {
+      String accountName,
+      String sasToken,
+      String queueName,
+      boolean useOutbox,
+      int outboxBatchSize) {
     this.accountName = accountName;
     this.sasToken = sasToken;
     this.queueName = queueName;
+    this.useOutbox = useOutbox;
+    this.outboxBatchSize = outboxBatchSize;
   }
 
   public String getAccountName() {
@@ -34,4 +47,12 @@ public final class AzureStorageQueueReportingProperties {
   public String getQueueName() {
     return queueName;
   }
+
+  public boolean getUseOutbox() {
+    return useOutbox;
+  }
+
+  public int getOutboxBatchSize() {
+    return outboxBatchSize;
+  }
 }
@@ -0,0 +1,38 @@
+package gov.cdc.usds.simplereport.properties;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "simple-report.local-reporting-queue")
+public final class LocalReportingQueueProperties {
+  /** the directory the segment files are kept in */
+  private final String directory;
+  /** the size of each segment file, in bytes */
+  private final int segmentSize;
+  /** how long each message takes to be "sent", to stand in for the latency of a real queue */
+  private final Duration latency;
+
+  @ConstructorBinding
+  public LocalReportingQueueProperties(
+      String directory,
+      @DefaultValue("67108864") int segmentSize,
+      @DefaultValue("PT0S") Duration latency) {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.latency = latency;
+  }
+
+  public String getDirectory() {
+    return directory;
+  }
+
+  public int getSegmentSize() {
+    return segmentSize;
+  }
+
+  public Duration getLatency() {
+    return latency;
+  }
+}
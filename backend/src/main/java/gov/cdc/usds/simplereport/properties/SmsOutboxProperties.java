@@ -0,0 +1,62 @@
+package gov.cdc.usds.simplereport.properties;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "simple-report.sms-outbox")
+public final class SmsOutboxProperties {
+  /** the number of worker threads sending messages from the outbox (none at all if zero) */
+  private final int workers;
+  /** the most outbox messages a worker sends in each transaction */
+  private final int batchSize;
+  /** how long a worker waits before looking again, when it finds nothing due to be sent */
+  private final Duration pollInterval;
+  /** the number of messages each sending number may send per second, on average */
+  private final double messagesPerSecond;
+  /** the number of messages each sending number may send at once, after it has been idle */
+  private final int burst;
+  /** the number of failed attempts to send a message after which it is given up on */
+  private final int maxAttempts;
+
+  @ConstructorBinding
+  public SmsOutboxProperties(
+      @DefaultValue("2") int workers,
+      @DefaultValue("10") int batchSize,
+      @DefaultValue("PT1S") Duration pollInterval,
+      @DefaultValue("1") double messagesPerSecond,
+      @DefaultValue("5") int burst,
+      @DefaultValue("10") int maxAttempts) {
+    this.workers = workers;
+    this.batchSize = batchSize;
+    this.pollInterval = pollInterval;
+    this.messagesPerSecond = messagesPerSecond;
+    this.burst = burst;
+    this.maxAttempts = maxAttempts;
+  }
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public Duration getPollInterval() {
+    return pollInterval;
+  }
+
+  public double getMessagesPerSecond() {
+    return messagesPerSecond;
+  }
+
+  public int getBurst() {
+    return burst;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+}
@@ -0,0 +1,79 @@
+package gov.cdc.usds.simplereport.service;
+
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Reports test events recorded in the current transaction once, and only if, that transaction
+ * commits, without making the caller wait for delivery. A delivery that fails is tried again a few
+ * times, a little later each time; after that the event is left to the data hub upload, which sends
+ * every test event whether or not it was reported here.
+ */
+@Service
+public class AfterCommitTestEventReporter {
+  private static final Logger LOG = LoggerFactory.getLogger(AfterCommitTestEventReporter.class);
+
+  // five attempts in all, waiting 1, 2, 4 and then 8 seconds between them
+  private static final int MAX_ATTEMPTS = 5;
+
+  private final TestEventReportingService _reporting;
+
+  public AfterCommitTestEventReporter(TestEventReportingService reporting) {
+    _reporting = reporting;
+  }
+
+  public void reportOnCommit(TestEventExportRecord exportRecord) {
+    if (_reporting.reportsInTransaction()) {
+      // the commit is what delivers the event, and the service does its own retrying
+      _reporting.reportAsync(exportRecord);
+    } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              reportWithRetries(exportRecord, 1);
+            }
+          });
+    } else {
+      reportWithRetries(exportRecord, 1);
+    }
+  }
+
+  private void reportWithRetries(TestEventExportRecord exportRecord, int attempt) {
+    CompletableFuture<Void> delivery;
+    try {
+      delivery = _reporting.reportAsync(exportRecord);
+    } catch (RuntimeException e) {
+      // some clients throw rather than returning a failed future: that must neither escape the
+      // commit nor be lost on the retry executor
+      delivery = CompletableFuture.failedFuture(e);
+    }
+    delivery.whenComplete(
+        (delivered, failure) -> {
+          if (failure == null) {
+            return;
+          }
+          if (attempt < MAX_ATTEMPTS) {
+            LOG.warn(
+                "Unable to report TestEvent [{}] (attempt {}): trying again",
+                exportRecord.getTestEventId(),
+                attempt,
+                failure);
+            CompletableFuture.delayedExecutor(1L << (attempt - 1), TimeUnit.SECONDS)
+                .execute(() -> reportWithRetries(exportRecord, attempt + 1));
+          } else {
+            LOG.error(
+                "Unable to report TestEvent [{}] after {} attempts",
+                exportRecord.getTestEventId(),
+                attempt,
+                failure);
+          }
+        });
+  }
+}
@@ -1,14 +1,26 @@
 package gov.cdc.usds.simplereport.service;
 
 import com.azure.storage.queue.QueueAsyncClient;
+import com.azure.storage.queue.models.SendMessageResult;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import gov.cdc.usds.simplereport.api.model.TestEventExport;
+import gov.cdc.usds.simplereport.api.model.TestEventExportWriter;
 import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import gov.cdc.usds.simplereport.db.model.TestEventQueueMessage;
+import gov.cdc.usds.simplereport.db.repository.TestEventQueueMessageRepository;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,27 +30,109 @@ public final class AzureStorageQueueTestEventReportingService implements TestEve
       LoggerFactory.getLogger(AzureStorageQueueTestEventReportingService.class);
   private static final int MAX_QUEUE_MESSAGES_TO_RECEIVE = 32;
   private final ObjectMapper mapper;
+  private final ObjectWriter messageWriter;
+  private final TestEventExportWriter exportWriter;
   private final QueueAsyncClient queueClient;
+  private final TestEventQueueMessageRepository messageRepo;
+  // records sent messages, which blocks on the database, off the queue client's threads
+  private final Executor recordingExecutor;
 
   public AzureStorageQueueTestEventReportingService(
-      ObjectMapper mapper, QueueAsyncClient queueClient) {
+      ObjectMapper mapper,
+      QueueAsyncClient queueClient,
+      TestEventQueueMessageRepository messageRepo,
+      Executor recordingExecutor) {
     this.mapper = mapper;
+    this.messageWriter = mapper.writer();
+    this.exportWriter = TestEventExportWriter.forJson(mapper);
     this.queueClient = queueClient;
+    this.messageRepo = messageRepo;
+    this.recordingExecutor = recordingExecutor;
   }
 
   @Override
   public CompletableFuture<Void> reportAsync(TestEvent testEvent) {
     LOG.trace("Dispatching TestEvent [{}] to Azure storage queue", testEvent.getInternalId());
-    return queueClient.sendMessage(toBuffer(testEvent)).toFuture().thenApply(result -> null);
+    return queueClient
+        .sendMessage(toBuffer(testEvent))
+        .toFuture()
+        .thenAcceptAsync(
+            result -> recordMessage(testEvent.getInternalId(), result), recordingExecutor);
   }
 
   @Override
-  public void markTestEventsAsReported(Set<TestEvent> testEvents) {
-    var idsToComplete =
-        testEvents.stream()
-            .map(TestEvent::getInternalId)
-            .map(UUID::toString)
+  public CompletableFuture<Void> reportAsync(TestEventExportRecord exportRecord) {
+    LOG.trace("Dispatching TestEvent [{}] to Azure storage queue", exportRecord.getTestEventId());
+    return queueClient
+        .sendMessage(toBuffer(exportRecord))
+        .toFuture()
+        .thenAcceptAsync(
+            result -> recordMessage(exportRecord.getTestEventId(), result), recordingExecutor);
+  }
+
+  /**
+   * Remember which queue message was sent for a test event, so that {@link
+   * #markTestEventIdsAsReported} can delete it directly. The message has been sent by the time this
+   * is called, so failing to remember it is not a failure to report the event: the message will
+   * just have to be found the slow way.
+   */
+  private void recordMessage(UUID testEventId, SendMessageResult result) {
+    try {
+      messageRepo.save(
+          new TestEventQueueMessage(testEventId, result.getMessageId(), result.getPopReceipt()));
+    } catch (RuntimeException e) {
+      LOG.warn("Unable to record the queue message sent for TestEvent [{}]", testEventId, e);
+    }
+  }
+
+  @Override
+  public void markTestEventIdsAsReported(Set<UUID> testEventIds) {
+    if (testEventIds.isEmpty()) {
+      // nothing to look up, and an empty IN list is not valid SQL
+      return;
+    }
+    List<TestEventQueueMessage> sentMessages = messageRepo.findAllByTestEventIdIn(testEventIds);
+    Set<UUID> deleted = ConcurrentHashMap.newKeySet();
+    var outstandingRequests = new ArrayList<CompletableFuture<Void>>();
+    for (var message : sentMessages) {
+      outstandingRequests.add(
+          queueClient
+              .deleteMessage(message.getMessageId(), message.getPopReceipt())
+              .toFuture()
+              .thenAccept(voidValue -> deleted.add(message.getTestEventId()))
+              .exceptionally(
+                  t -> {
+                    // most likely the message has been received since it was sent, which gives it
+                    // a new pop receipt: it will have to be found the slow way
+                    LOG.warn(
+                        "Unable to delete queue message concerning test [{}]",
+                        message.getTestEventId());
+                    return null;
+                  }));
+    }
+    CompletableFuture.allOf(outstandingRequests.toArray(new CompletableFuture[0])).join();
+
+    // sent before their messages were recorded, the recording failed, or the delete failed
+    Set<UUID> undeleted = new HashSet<>(testEventIds);
+    undeleted.removeAll(deleted);
+    if (!undeleted.isEmpty()) {
+      deleted.addAll(searchQueueAndDelete(undeleted));
+    }
+    // a recorded message that is still on the queue keeps its record, to be tried again
+    Set<UUID> deletedRecorded =
+        sentMessages.stream()
+            .map(TestEventQueueMessage::getTestEventId)
+            .filter(deleted::contains)
             .collect(Collectors.toSet());
+    if (!deletedRecorded.isEmpty()) {
+      messageRepo.deleteByTestEventIds(deletedRecorded);
+    }
+  }
+
+  /** @return the IDs of the test events whose messages were found and deleted. */
+  private Set<UUID> searchQueueAndDelete(Set<UUID> testEventIds) {
+    var idsToComplete = testEventIds.stream().map(UUID::toString).collect(Collectors.toSet());
+    Set<UUID> deleted = ConcurrentHashMap.newKeySet();
 
     // This is a best effort cleanup that is only in place while migrating from a cron job to a
     // queue worker. As such, we'll only poll the queue as many times as needed to see each
@@ -63,7 +157,11 @@ public final class AzureStorageQueueTestEventReportingService implements TestEve
               queueClient
                   .deleteMessage(message.getMessageId(), message.getPopReceipt())
                   .toFuture()
-                  .thenAccept(voidValue -> idsToComplete.remove(resultId))
+                  .thenAccept(
+                      voidValue -> {
+                        idsToComplete.remove(resultId);
+                        deleted.add(UUID.fromString(resultId));
+                      })
                   .exceptionally(
                       t -> {
                         LOG.warn("Unable to delete queue message concerning test [{}]", resultId);
@@ -74,13 +172,26 @@ public final class AzureStorageQueueTestEventReportingService implements TestEve
 
       CompletableFuture.allOf(outstandingRequests.toArray(new CompletableFuture[0])).join();
     }
+    return deleted;
   }
 
-  private String toBuffer(TestEvent testEvent) {
-    try {
-      return mapper.writeValueAsString(new TestEventExport(testEvent));
+  String toBuffer(TestEvent testEvent) {
+    StringWriter buffer = new StringWriter();
+    try (JsonGenerator gen = messageWriter.createGenerator(buffer)) {
+      exportWriter.write(gen, new TestEventExport(testEvent));
     } catch (IOException e) {
       throw new IllegalArgumentException("Failed to serialize test event", e);
     }
+    return buffer.toString();
+  }
+
+  String toBuffer(TestEventExportRecord exportRecord) {
+    StringWriter buffer = new StringWriter();
+    try (JsonGenerator gen = messageWriter.createGenerator(buffer)) {
+      exportWriter.write(gen, exportRecord.getExportValues());
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to serialize exported test event", e);
+    }
+    return buffer.toString();
   }
 }
@@ -1,37 +1,54 @@
 package gov.cdc.usds.simplereport.service;
 
-import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.core.JsonGenerator;
 import gov.cdc.usds.simplereport.api.model.TestEventExport;
 import gov.cdc.usds.simplereport.config.simplereport.DataHubConfig;
 import gov.cdc.usds.simplereport.db.model.DataHubUpload;
 import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import gov.cdc.usds.simplereport.db.model.auxiliary.DataHubUploadChunk;
 import gov.cdc.usds.simplereport.db.model.auxiliary.DataHubUploadStatus;
 import gov.cdc.usds.simplereport.db.repository.DataHubUploadRespository;
+import gov.cdc.usds.simplereport.db.repository.TestEventExportRepository;
 import gov.cdc.usds.simplereport.db.repository.TestEventRepository;
+import gov.cdc.usds.simplereport.utils.RetryBackoff;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -40,33 +57,55 @@ import org.springframework.web.util.UriComponentsBuilder;
 @Transactional(readOnly = true)
 public class DataHubUploaderService {
   private static final Logger LOG = LoggerFactory.getLogger(DataHubUploaderService.class);
+  // size of each chunk of the request body in streaming mode
+  private static final int STREAMING_CHUNK_SIZE = 64 * 1024;
+  // how many times each chunk of a chunked upload is tried, per run
+  private static final int MAX_CHUNK_ATTEMPTS = 3;
+  private static final Duration MAX_CHUNK_RETRY_DELAY = Duration.ofMinutes(1);
 
   private final DataHubConfig _config;
   private final TestEventRepository _testReportEventsRepo;
+  private final TestEventExportRepository _testEventExportRepo;
+  private final TestEventExportService _testEventExportService;
   private final DataHubUploadRespository _dataHubUploadRepo;
   private final UploadTrackingService _trackingService;
   private final SlackMessageService _slack;
   private final TestEventReportingService _testEventReportingService;
+  private final TestEventCsvRenderer _csvRenderer;
+  private final RestTemplateBuilder _restTemplateBuilder;
+  private final RetryBackoff _chunkRetryBackoff;
 
   private String _fileContents;
   private Date _nextTimestamp;
+  private UUID _nextInternalId;
   private String _warnMessage;
   private String _resultJson;
   private int _rowCount;
 
+  @PersistenceContext private EntityManager _entityManager;
+
   public DataHubUploaderService(
       DataHubConfig config,
       TestEventRepository testReportEventsRepo,
+      TestEventExportRepository testEventExportRepo,
+      TestEventExportService testEventExportService,
       DataHubUploadRespository dataHubUploadRepo,
       UploadTrackingService trackingService,
       SlackMessageService slack,
-      TestEventReportingService testEventReportingService) {
+      TestEventReportingService testEventReportingService,
+      RestTemplateBuilder restTemplateBuilder,
+      @Value("${simple-report.data-hub.upload-chunk-retry-delay:PT2S}") Duration chunkRetryDelay) {
     _config = config;
     _testReportEventsRepo = testReportEventsRepo;
+    _testEventExportRepo = testEventExportRepo;
+    _testEventExportService = testEventExportService;
     _trackingService = trackingService;
     _dataHubUploadRepo = dataHubUploadRepo;
     _slack = slack;
     _testEventReportingService = testEventReportingService;
+    _csvRenderer = new TestEventCsvRenderer(config.getCsvRenderThreads());
+    _restTemplateBuilder = restTemplateBuilder;
+    _chunkRetryBackoff = new RetryBackoff(chunkRetryDelay, MAX_CHUNK_RETRY_DELAY);
 
     LOG.info("Datahub scheduling uploader enable state: {}", config.getUploadEnabled());
 
@@ -76,7 +115,7 @@ public class DataHubUploaderService {
     if (config.getApiKey().startsWith("MISSING")) {
       LOG.warn("DataHub API key is not configured.");
     }
-    if (!config.getUploadUrl().startsWith("https://")) {
+    if (!isUploadUrlConfigured(config.getUploadUrl())) {
       LOG.warn("DataHub upload URL is not configured.");
     }
     if (!config.getSlackNotifyWebhookUrl().startsWith("https://")) {
@@ -84,16 +123,26 @@ public class DataHubUploaderService {
     }
   }
 
+  @PreDestroy
+  void stop() {
+    _csvRenderer.close();
+  }
+
   private void init() {
     // because we are a service these need to be reset each time through.
     // this needs a refactor. This is ONLY here until we can get rid of running the schedule via a
     // webaddress
     _nextTimestamp = null;
+    _nextInternalId = null;
     _warnMessage = "";
     _resultJson = "{}";
     _rowCount = 0;
   }
 
+  private static boolean isUploadUrlConfigured(String uploadUrl) {
+    return uploadUrl.startsWith("https://");
+  }
+
   // todo: move to these somewhere common
   private static String dateToUTCString(Date d) {
     if (d == null) {
@@ -105,12 +154,12 @@ public class DataHubUploaderService {
   }
 
   // we put this in a function because the query can return null and it abstracts it out
-  private Date getLatestRecordedTimestamp() {
+  private DataHubUpload getLatestSuccessfulUpload() {
     DataHubUpload lastUpload =
         _dataHubUploadRepo.findDistinctTopByJobStatusOrderByLatestRecordedTimestampDesc(
             DataHubUploadStatus.SUCCESS);
     if (lastUpload != null) {
-      return lastUpload.getLatestRecordedTimestamp();
+      return lastUpload;
     } else {
       // This should only happen when database is empty, throw?
       LOG.error(
@@ -119,66 +168,256 @@ public class DataHubUploaderService {
     }
   }
 
-  private List<TestEvent> createTestEventCSV(Date earlistCreatedAt, Date latestCreateOn)
+  private List<TestEventExportRecord> createTestEventCSV(
+      Date earlistCreatedAt, UUID earliestInternalId, Date latestCreateOn)
       throws IOException, DateTimeParseException {
-    List<TestEvent> events =
-        _testReportEventsRepo.queryMatchAllBetweenDates(
-            earlistCreatedAt, latestCreateOn, PageRequest.of(0, _config.getMaxCsvRows()));
+    PageRequest batch = PageRequest.of(0, _config.getMaxCsvRows());
+    List<TestEventExportRecord> events;
+    if (_config.getUseExportTable()) {
+      events =
+          _testEventExportRepo.queryMatchAllAfterKey(
+              earlistCreatedAt, earliestInternalId, latestCreateOn, batch);
+    } else {
+      events = new ArrayList<>();
+      for (TestEvent e :
+          _testReportEventsRepo.queryMatchAllAfterKey(
+              earlistCreatedAt, earliestInternalId, latestCreateOn, batch)) {
+        events.add(_testEventExportService.toRecord(e));
+      }
+    }
     if (events.size() == 0) {
       // next end timerange stays the same as the last. NOTE: This will not change until there are
       // new events
       this._nextTimestamp = earlistCreatedAt;
+      this._nextInternalId = earliestInternalId;
       return events;
-    } else if (events.size() == _config.getMaxCsvRows()) {
+    } else if (events.size() == _config.getMaxCsvRows() && !_config.getDrainBacklog()) {
       this._warnMessage += "More rows were found than can be uploaded in a single batch.";
     }
 
     this._rowCount = events.size();
-    // timestamp of last matched entry, used for the next query.
-    this._nextTimestamp = events.get(_rowCount - 1).getCreatedAt();
-
-    this.setFileContents(events);
+    // key of last matched entry, used for the next query.
+    TestEventExportRecord lastEvent = events.get(_rowCount - 1);
+    this._nextTimestamp = lastEvent.getCreatedAt();
+    this._nextInternalId = lastEvent.getTestEventId();
 
     return events;
   }
 
-  private void setFileContents(List<TestEvent> events) throws IOException {
-    List<TestEventExport> eventsToExport = new ArrayList<>();
-    events.forEach(e -> eventsToExport.add(new TestEventExport(e)));
-    CsvMapper mapper = new CsvMapper();
-    mapper
-        .enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING)
-        .enable(CsvGenerator.Feature.ALWAYS_QUOTE_STRINGS)
-        .enable(CsvGenerator.Feature.ALWAYS_QUOTE_EMPTY_STRINGS);
-    // You would think `withNullValue` and `ALWAYS_QUOTE_EMPTY_STRINGS` would be enough, but it's
-    // not.
-    // we have to return `""` withNullValue to keep `,,,` out of the the csv
-    CsvSchema schema = mapper.schemaFor(TestEventExport.class).withHeader().withNullValue("\"\"");
-    this._fileContents = mapper.writer(schema).writeValueAsString(eventsToExport);
+  private static void addUploadHeaders(HttpHeaders headers, String apiKey) {
+    headers.setContentType(new MediaType("text", "csv"));
+    headers.add("x-functions-key", apiKey);
+    headers.add("client", "simple_report");
+    headers.add("x-api-version", TestEventExport.CSV_API_VERSION);
   }
 
   private void uploadCSVDocument(String apiKey) throws RestClientException {
-    ByteArrayResource contentsAsResource =
-        new ByteArrayResource(this._fileContents.getBytes(StandardCharsets.UTF_8));
+    _resultJson =
+        postCSVDocument(this._fileContents.getBytes(StandardCharsets.UTF_8), false, apiKey);
+  }
+
+  private String postCSVDocument(byte[] contents, boolean gzipped, String apiKey)
+      throws RestClientException {
+    ByteArrayResource contentsAsResource = new ByteArrayResource(contents);
 
     RestTemplate restTemplate =
-        new RestTemplateBuilder(
-                rt ->
-                    rt.getInterceptors()
-                        .add(
-                            (request, body, execution) -> {
-                              HttpHeaders headers = request.getHeaders();
-                              headers.setContentType(new MediaType("text", "csv"));
-                              headers.add("x-functions-key", apiKey);
-                              headers.add("client", "simple_report");
-                              headers.add("x-api-version", TestEventExport.CSV_API_VERSION);
-                              return execution.execute(request, body);
-                            }))
+        _restTemplateBuilder
+            .additionalInterceptors(
+                (request, body, execution) -> {
+                  addUploadHeaders(request.getHeaders(), apiKey);
+                  if (gzipped) {
+                    request.getHeaders().add(HttpHeaders.CONTENT_ENCODING, "gzip");
+                  }
+                  return execution.execute(request, body);
+                })
             .build();
 
     URI url = UriComponentsBuilder.fromUriString(_config.getUploadUrl()).build().toUri();
 
-    _resultJson = restTemplate.postForObject(url, contentsAsResource, String.class);
+    return restTemplate.postForObject(url, contentsAsResource, String.class);
+  }
+
+  /**
+   * Upload a batch as a series of gzipped CSV documents of at most upload-chunk-rows rows each,
+   * tracking every chunk on the upload record. A chunk that fails is retried a few times, waiting
+   * twice as long before each retry, and the remaining chunks are still sent; if any chunk still
+   * fails, the upload fails as a whole, and the next run starts from the same place. Chunks that an
+   * earlier attempt at the same batch already delivered, with exactly the same contents, are not
+   * sent again.
+   */
+  private void uploadChunks(
+      DataHubUpload upload,
+      List<TestEventExportRecord> events,
+      DataHubUpload previousAttempt,
+      String apiKey)
+      throws IOException, RestClientException {
+    int chunkRows = _config.getUploadChunkRows();
+    List<DataHubUploadChunk> chunks = new ArrayList<>();
+    List<byte[]> chunkContents = new ArrayList<>();
+    for (int firstRow = 0; firstRow < events.size(); firstRow += chunkRows) {
+      List<TestEventExportRecord> rows =
+          events.subList(firstRow, Math.min(firstRow + chunkRows, events.size()));
+      byte[] csv = _csvRenderer.render(rows).getBytes(StandardCharsets.UTF_8);
+      // the checksum leaves out the release date, which changes if the batch is retried tomorrow
+      chunks.add(new DataHubUploadChunk(firstRow, rows.size(), _csvRenderer.checksum(rows)));
+      chunkContents.add(gzip(csv));
+    }
+
+    List<DataHubUploadChunk> previousChunks =
+        previousAttempt == null || previousAttempt.getChunks() == null
+            ? List.of()
+            : previousAttempt.getChunks();
+    for (int i = 0; i < chunks.size() && i < previousChunks.size(); i++) {
+      DataHubUploadChunk previous = previousChunks.get(i);
+      if (previous.getStatus() == DataHubUploadStatus.SUCCESS
+          && previous.hasSameContents(chunks.get(i))) {
+        chunks.get(i).setStatus(DataHubUploadStatus.SUCCESS);
+      }
+    }
+    _trackingService.markChunks(upload, chunks);
+
+    List<String> responses = new ArrayList<>();
+    int failedChunks = 0;
+    RestClientException lastError = null;
+    for (int i = 0; i < chunks.size(); i++) {
+      if (chunks.get(i).getStatus() == DataHubUploadStatus.SUCCESS) {
+        LOG.info("Chunk {} was already uploaded by an earlier attempt, skipping it.", i);
+        continue;
+      }
+      boolean sent = false;
+      for (int attempt = 1; !sent && attempt <= MAX_CHUNK_ATTEMPTS; attempt++) {
+        if (attempt > 1 && !waitToRetry(attempt - 1)) {
+          break;
+        }
+        try {
+          responses.add(postCSVDocument(chunkContents.get(i), true, apiKey));
+          _trackingService.markChunkSucceeded(upload, i);
+          sent = true;
+        } catch (RestClientException err) {
+          _trackingService.markChunkFailed(upload, i, err);
+          lastError = err;
+        }
+      }
+      if (!sent) {
+        failedChunks++;
+      }
+    }
+    _resultJson = "[" + String.join(",", responses) + "]";
+
+    if (failedChunks > 0) {
+      throw new RestClientException(
+          failedChunks + " of " + chunks.size() + " chunks could not be uploaded", lastError);
+    }
+  }
+
+  // gives a struggling receiver time to recover; false if the upload is being shut down
+  private boolean waitToRetry(int failedAttempts) {
+    try {
+      Thread.sleep(_chunkRetryBackoff.delay(failedAttempts).toMillis());
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static byte[] gzip(byte[] contents) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(contents);
+    }
+    return compressed.toByteArray();
+  }
+
+  /**
+   * Streaming alternative to {@link #createTestEventCSV} followed by {@link #uploadCSVDocument}:
+   * events are read from a database cursor, written one row at a time into a chunked request body,
+   * and detached from the persistence context as soon as they have been written, so that memory use
+   * does not grow with the size of the batch.
+   *
+   * @return the IDs of the events that were uploaded.
+   */
+  private Set<UUID> streamTestEventCSV(
+      Date earlistCreatedAt, UUID earliestInternalId, Date latestCreateOn, String apiKey)
+      throws RestClientException {
+    Set<UUID> eventIds = new HashSet<>();
+    try (Stream<TestEventExportRecord> events =
+        streamExportRecords(earlistCreatedAt, earliestInternalId, latestCreateOn)) {
+      Iterator<TestEventExportRecord> rows = events.limit(_config.getMaxCsvRows()).iterator();
+      if (!rows.hasNext()) {
+        this._nextTimestamp = earlistCreatedAt;
+        this._nextInternalId = earliestInternalId;
+        return eventIds;
+      }
+
+      // interceptors buffer the whole request body, so the headers are set in the callback instead
+      SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+      requestFactory.setBufferRequestBody(false);
+      requestFactory.setChunkSize(STREAMING_CHUNK_SIZE);
+      RestTemplate restTemplate =
+          new RestTemplateBuilder().requestFactory(() -> requestFactory).build();
+
+      URI url = UriComponentsBuilder.fromUriString(_config.getUploadUrl()).build().toUri();
+
+      _resultJson =
+          restTemplate.execute(
+              url,
+              HttpMethod.POST,
+              request -> {
+                addUploadHeaders(request.getHeaders(), apiKey);
+                try (JsonGenerator gen = _csvRenderer.createGenerator(request.getBody())) {
+                  while (rows.hasNext()) {
+                    TestEventExportRecord event = rows.next();
+                    _csvRenderer.writeRow(gen, event);
+                    eventIds.add(event.getTestEventId());
+                    this._nextTimestamp = event.getCreatedAt();
+                    this._nextInternalId = event.getTestEventId();
+                    _entityManager.detach(event);
+                  }
+                }
+              },
+              response -> StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    this._rowCount = eventIds.size();
+    if (_rowCount == _config.getMaxCsvRows() && !_config.getDrainBacklog()) {
+      this._warnMessage += "More rows were found than can be uploaded in a single batch.";
+    }
+    return eventIds;
+  }
+
+  private Stream<TestEventExportRecord> streamExportRecords(
+      Date earlistCreatedAt, UUID earliestInternalId, Date latestCreateOn) {
+    if (_config.getUseExportTable()) {
+      return _testEventExportRepo.streamMatchAllAfterKey(
+          earlistCreatedAt, earliestInternalId, latestCreateOn);
+    }
+    return _testReportEventsRepo
+        .streamMatchAllAfterKey(earlistCreatedAt, earliestInternalId, latestCreateOn)
+        .map(
+            event -> {
+              TestEventExportRecord exportRecord = _testEventExportService.toRecord(event);
+              _entityManager.detach(event);
+              return exportRecord;
+            });
+  }
+
+  /**
+   * Write the export rows of any events up to the cutoff that do not have one yet (which is every
+   * event created before export rows were written), a batch at a time, so that reading the batches
+   * from the export table does not skip them.
+   */
+  private void backfillExportRecords(Date cutoff) {
+    int batchSize = _config.getMaxCsvRows();
+    int backfilled = 0;
+    int written;
+    do {
+      written = _testEventExportService.backfillExportRecords(cutoff, batchSize);
+      backfilled += written;
+    } while (written == batchSize);
+    if (backfilled > 0) {
+      LOG.info("Backfilled {} missing test event export rows before uploading.", backfilled);
+    }
   }
 
   public void dataHubUploaderTask() {
@@ -204,7 +443,7 @@ public class DataHubUploaderService {
     if (_config.getApiKey().startsWith("MISSING")) {
       msgs.add("> DataHub API key is not configured.");
     }
-    if (!_config.getUploadUrl().startsWith("https://")) {
+    if (!isUploadUrlConfigured(_config.getUploadUrl())) {
       msgs.add("> DataHub upload URL is not configured.");
     }
     if (!msgs.isEmpty()) {
@@ -212,26 +451,89 @@ public class DataHubUploaderService {
       return;
     }
 
-    // The start date is the last end date. Can be null for empty database.
-    Date lastTimestamp = getLatestRecordedTimestamp();
-    if (lastTimestamp == null) {
+    // The start key is the last end key. Can be null for empty database.
+    DataHubUpload lastUpload = getLatestSuccessfulUpload();
+    if (lastUpload == null || lastUpload.getLatestRecordedTimestamp() == null) {
       // this happens if EVERYTHING in the db would be matched.
       LOG.error("No earliest_recorded_timestamp found. EVERYTHING would be matched and sent");
       return;
     }
+    Date lastTimestamp = lastUpload.getLatestRecordedTimestamp();
+    // uploads recorded before the keyset was tracked only have a timestamp boundary: resume
+    // strictly after it, as we always used to.
+    UUID lastInternalId =
+        lastUpload.getLatestRecordedInternalId() != null
+            ? lastUpload.getLatestRecordedInternalId()
+            : TestEventRepository.KEYSET_MAX_ID;
 
-    DataHubUpload newUpload = _trackingService.startUpload(lastTimestamp);
-    try {
-      // end range is back 1 minute, to avoid complications involving open
-      // transactions
-      Timestamp dateOneMinAgo = Timestamp.from(Instant.now().minus(1, ChronoUnit.MINUTES));
+    // end range is back 1 minute, to avoid complications involving open
+    // transactions. In drain mode, we keep going batch after batch (all under the same advisory
+    // lock) until we reach it.
+    Timestamp dateOneMinAgo = Timestamp.from(Instant.now().minus(1, ChronoUnit.MINUTES));
+    if (_config.getUseExportTable()) {
+      backfillExportRecords(dateOneMinAgo);
+    }
+    int batchCount = 0;
+    while (true) {
+      if (batchCount > 0) {
+        this.init();
+        // nothing from the previous batch is needed anymore
+        _entityManager.clear();
+      }
+      DataHubUpload newUpload = uploadBatch(lastTimestamp, lastInternalId, dateOneMinAgo);
+      batchCount++;
+      sendUploadResult(newUpload);
+      if (!_config.getDrainBacklog()
+          || newUpload.getJobStatus() != DataHubUploadStatus.SUCCESS
+          || _rowCount < _config.getMaxCsvRows()) {
+        break;
+      }
+      lastTimestamp = _nextTimestamp;
+      lastInternalId = _nextInternalId;
+    }
+    if (_config.getDrainBacklog()) {
+      LOG.info("Data hub upload drained the backlog in {} batch(es).", batchCount);
+    }
 
-      var eventsReported = this.createTestEventCSV(lastTimestamp, dateOneMinAgo);
-      _trackingService.markRowCount(newUpload, _rowCount, _nextTimestamp);
+    // should this sleep for some period of time? If no rows match it may be really fast
+    // and other server instances not overlap and get blocked by tryUploadLock() otherwise.
+  }
 
-      if (_rowCount > 0) {
-        this.uploadCSVDocument(_config.getApiKey());
+  /**
+   * Upload a single batch of (at most max-csv-rows) events, starting after the supplied key, and
+   * record it in its own {@link DataHubUpload} tracking row.
+   */
+  private DataHubUpload uploadBatch(Date lastTimestamp, UUID lastInternalId, Date cutoff) {
+    DataHubUpload failedAttempt =
+        _config.getUploadChunkRows() > 0
+            ? findFailedAttemptAt(lastTimestamp, lastInternalId)
+            : null;
+    DataHubUpload newUpload = _trackingService.startUpload(lastTimestamp, lastInternalId);
+    try {
+      Set<UUID> eventsReported;
+      if (_config.getStreamingUpload() && _config.getUploadChunkRows() <= 0) {
+        // the row count is only known once the batch has been streamed out
+        eventsReported =
+            this.streamTestEventCSV(lastTimestamp, lastInternalId, cutoff, _config.getApiKey());
+        _trackingService.markRowCount(newUpload, _rowCount, _nextTimestamp, _nextInternalId);
       } else {
+        List<TestEventExportRecord> events =
+            this.createTestEventCSV(lastTimestamp, lastInternalId, cutoff);
+        eventsReported = new HashSet<>();
+        for (TestEventExportRecord e : events) {
+          eventsReported.add(e.getTestEventId());
+        }
+        _trackingService.markRowCount(newUpload, _rowCount, _nextTimestamp, _nextInternalId);
+
+        if (_rowCount > 0 && _config.getUploadChunkRows() > 0) {
+          this.uploadChunks(newUpload, events, failedAttempt, _config.getApiKey());
+        } else if (_rowCount > 0) {
+          this._fileContents = _csvRenderer.render(events);
+          this.uploadCSVDocument(_config.getApiKey());
+        }
+      }
+
+      if (_rowCount == 0) {
         LOG.info("No new tests found since previous successful data hub upload.");
       }
 
@@ -239,11 +541,31 @@ public class DataHubUploaderService {
       _trackingService.markSucceeded(newUpload, _resultJson, _warnMessage);
 
       // Clear the reported items from the testing queue
-      _testEventReportingService.markTestEventsAsReported(new HashSet<>(eventsReported));
+      _testEventReportingService.markTestEventIdsAsReported(eventsReported);
     } catch (RestClientException | IOException err) {
       _trackingService.markFailed(newUpload, _resultJson, err);
     }
+    return newUpload;
+  }
+
+  /**
+   * If the most recent upload failed, and started from the same place (both the timestamp and the
+   * internal ID of the keyset) as the batch we are about to send, return it: any chunks it managed
+   * to deliver do not need to be sent again.
+   */
+  private DataHubUpload findFailedAttemptAt(Date lastTimestamp, UUID lastInternalId) {
+    DataHubUpload lastAttempt = _dataHubUploadRepo.findFirstByOrderByCreatedAtDesc();
+    if (lastAttempt == null
+        || lastAttempt.getJobStatus() != DataHubUploadStatus.FAIL
+        || lastAttempt.getEarliestRecordedTimestamp() == null
+        || lastAttempt.getEarliestRecordedTimestamp().getTime() != lastTimestamp.getTime()
+        || !Objects.equals(lastAttempt.getEarliestRecordedInternalId(), lastInternalId)) {
+      return null;
+    }
+    return lastAttempt;
+  }
 
+  private void sendUploadResult(DataHubUpload newUpload) {
     if (_rowCount > 0) {
       // Build and send message to slackChannel
       ArrayList<String> message = new ArrayList<>();
@@ -256,8 +578,5 @@ public class DataHubUploaderService {
       message.add("> ``` " + newUpload.getResponseData() + " ```");
       _slack.sendSlackChannelMessage("DataHubUpload result", message, false);
     }
-
-    // should this sleep for some period of time? If no rows match it may be really fast
-    // and other server instances not overlap and get blocked by tryUploadLock() otherwise.
   }
 }
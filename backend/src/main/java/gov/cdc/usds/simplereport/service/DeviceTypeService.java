@@ -11,7 +11,10 @@ import gov.cdc.usds.simplereport.db.repository.DeviceSpecimenTypeRepository;
 import gov.cdc.usds.simplereport.db.repository.DeviceTypeRepository;
 import gov.cdc.usds.simplereport.db.repository.SpecimenTypeRepository;
 import gov.cdc.usds.simplereport.service.model.DeviceSpecimenTypeHolder;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import org.springframework.stereotype.Service;
@@ -71,6 +74,20 @@ public class DeviceTypeService {
                     "Device is not configured with a specimen type"));
   }
 
+  /**
+   * Like {@link #getDefaultForDeviceId}, for many device types at once, by device type ID. Device
+   * types that are not configured with a specimen type are left out.
+   */
+  @Deprecated // this is a backward-compatibility shim!
+  public Map<UUID, DeviceSpecimenType> getDefaultsForDeviceIds(Collection<UUID> deviceIds) {
+    Map<UUID, DeviceSpecimenType> defaults = new HashMap<>();
+    for (DeviceSpecimenType deviceSpecimen :
+        _deviceSpecimenRepo.findAllByDeviceTypeInternalIdInOrderByCreatedAt(deviceIds)) {
+      defaults.putIfAbsent(deviceSpecimen.getDeviceType().getInternalId(), deviceSpecimen);
+    }
+    return defaults;
+  }
+
   @Transactional(readOnly = false)
   @AuthorizationConfiguration.RequireGlobalAdminUser
   public DeviceType updateDeviceType(
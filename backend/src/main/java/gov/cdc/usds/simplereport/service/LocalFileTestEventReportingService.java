@@ -0,0 +1,253 @@
+package gov.cdc.usds.simplereport.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import gov.cdc.usds.simplereport.api.model.TestEventExport;
+import gov.cdc.usds.simplereport.api.model.TestEventExportWriter;
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TestEventReportingService} that stands in for the Azure storage queue when running
+ * locally, so that the reporting path can be exercised (and load tested) without a storage account.
+ * Each message is appended, exactly as it would be sent to the queue, to a series of memory-mapped
+ * segment files, and can be read back in order by any number of {@link Consumer}s.
+ *
+ * <p>Each record in a segment is the length of the message, as a 4-byte int, followed by the
+ * message in UTF-8; a length of zero (or the end of the file) marks the end of the segment. Full
+ * segments are kept, so the queue survives restarts and can always be replayed from the start.
+ */
+public class LocalFileTestEventReportingService implements TestEventReportingService, Closeable {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(LocalFileTestEventReportingService.class);
+  private static final String SEGMENT_FILE_FORMAT = "segment-%08d.log";
+  private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{8})\\.log");
+  private static final int LENGTH_BYTES = Integer.BYTES;
+
+  private final Path directory;
+  private final int segmentSize;
+  // null when messages are appended without any delay
+  private final Executor delayedExecutor;
+  private final ObjectWriter messageWriter;
+  private final TestEventExportWriter exportWriter;
+  // oldest first: only the last one is ever appended to
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+  private int lastSegmentNumber;
+
+  /**
+   * @param directory where to keep the segment files; any segments already there are appended to.
+   * @param segmentSize the size of each new segment file, which is the limit on the size of a
+   *     message.
+   * @param latency how long to wait before appending each message, to simulate a remote queue.
+   */
+  public LocalFileTestEventReportingService(
+      ObjectMapper mapper, Path directory, int segmentSize, Duration latency) throws IOException {
+    if (segmentSize <= LENGTH_BYTES) {
+      throw new IllegalArgumentException("Segment size must be more than " + LENGTH_BYTES);
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.delayedExecutor =
+        latency.isZero()
+            ? null
+            : CompletableFuture.delayedExecutor(latency.toNanos(), TimeUnit.NANOSECONDS);
+    this.messageWriter = mapper.writer();
+    this.exportWriter = TestEventExportWriter.forJson(mapper);
+
+    Files.createDirectories(directory);
+    List<Integer> existing = existingSegmentNumbers(directory);
+    if (existing.isEmpty()) {
+      openSegment(0, true);
+    } else {
+      for (int segmentNumber : existing) {
+        openSegment(segmentNumber, false);
+      }
+      MappedByteBuffer last = segments.get(segments.size() - 1);
+      last.position(endOfRecords(last));
+    }
+    LOG.info("Appending reported test events to segment {} in {}", lastSegmentNumber, directory);
+  }
+
+  @Override
+  public CompletableFuture<Void> reportAsync(TestEvent testEvent) {
+    LOG.trace("Appending TestEvent [{}] to local queue", testEvent.getInternalId());
+    return send(toBuffer(testEvent));
+  }
+
+  @Override
+  public CompletableFuture<Void> reportAsync(TestEventExportRecord exportRecord) {
+    LOG.trace("Appending TestEvent [{}] to local queue", exportRecord.getTestEventId());
+    return send(toBuffer(exportRecord));
+  }
+
+  @Override
+  public void markTestEventIdsAsReported(Set<UUID> testEventIds) {
+    // nothing to clean up: the local queue keeps every message, so consumers can replay it
+    LOG.debug("Leaving {} reported test events in the local queue", testEventIds.size());
+  }
+
+  /** A new consumer, which will read every message in the queue from the oldest one on. */
+  public Consumer consumer() {
+    return new Consumer();
+  }
+
+  @Override
+  public synchronized void close() {
+    segments.get(segments.size() - 1).force();
+  }
+
+  /**
+   * Reads the messages in the queue in the order they were appended. Each consumer keeps its own
+   * place in the queue, and does not affect what any other consumer reads.
+   */
+  public final class Consumer {
+    private int segmentIndex;
+    private int offset;
+
+    private Consumer() {}
+
+    /** The next (at most maxMessages) messages, or none if there are no more yet. */
+    public List<String> poll(int maxMessages) {
+      List<String> messages = new ArrayList<>();
+      synchronized (LocalFileTestEventReportingService.this) {
+        while (messages.size() < maxMessages) {
+          ByteBuffer segment = segments.get(segmentIndex);
+          int length = recordLength(segment, offset);
+          if (length == 0) {
+            if (segmentIndex == segments.size() - 1) {
+              break;
+            }
+            segmentIndex++;
+            offset = 0;
+            continue;
+          }
+          byte[] message = new byte[length];
+          segment.duplicate().position(offset + LENGTH_BYTES).get(message);
+          offset += LENGTH_BYTES + length;
+          messages.add(new String(message, StandardCharsets.UTF_8));
+        }
+      }
+      return messages;
+    }
+  }
+
+  private CompletableFuture<Void> send(String message) {
+    byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+    if (delayedExecutor == null) {
+      append(bytes);
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.runAsync(() -> append(bytes), delayedExecutor);
+  }
+
+  private synchronized void append(byte[] message) {
+    if (LENGTH_BYTES + message.length > segmentSize) {
+      throw new IllegalArgumentException("Message is larger than a queue segment");
+    }
+    MappedByteBuffer segment = segments.get(segments.size() - 1);
+    if (segment.remaining() < LENGTH_BYTES + message.length) {
+      try {
+        segment.force();
+        segment = openSegment(lastSegmentNumber + 1, true);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to start a new queue segment", e);
+      }
+    }
+    segment.putInt(message.length).put(message);
+  }
+
+  private MappedByteBuffer openSegment(int segmentNumber, boolean create) throws IOException {
+    Path path = directory.resolve(String.format(SEGMENT_FILE_FORMAT, segmentNumber));
+    MappedByteBuffer segment;
+    if (create) {
+      try (FileChannel channel =
+          FileChannel.open(
+              path,
+              StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE)) {
+        // the mapping stays valid once the channel is closed; the file is zero-filled to size
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+      }
+    } else {
+      try (FileChannel channel =
+          FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      }
+    }
+    segments.add(segment);
+    lastSegmentNumber = segmentNumber;
+    return segment;
+  }
+
+  private static int endOfRecords(ByteBuffer segment) {
+    int offset = 0;
+    for (int length = recordLength(segment, offset);
+        length != 0;
+        length = recordLength(segment, offset)) {
+      offset += LENGTH_BYTES + length;
+    }
+    return offset;
+  }
+
+  private static int recordLength(ByteBuffer segment, int offset) {
+    return offset + LENGTH_BYTES <= segment.capacity() ? segment.getInt(offset) : 0;
+  }
+
+  private static List<Integer> existingSegmentNumbers(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .map(file -> SEGMENT_FILE.matcher(file.getFileName().toString()))
+          .filter(Matcher::matches)
+          .map(match -> Integer.valueOf(match.group(1)))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private String toBuffer(TestEvent testEvent) {
+    StringWriter buffer = new StringWriter();
+    try (JsonGenerator gen = messageWriter.createGenerator(buffer)) {
+      exportWriter.write(gen, new TestEventExport(testEvent));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to serialize test event", e);
+    }
+    return buffer.toString();
+  }
+
+  private String toBuffer(TestEventExportRecord exportRecord) {
+    StringWriter buffer = new StringWriter();
+    try (JsonGenerator gen = messageWriter.createGenerator(buffer)) {
+      exportWriter.write(gen, exportRecord.getExportValues());
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to serialize exported test event", e);
+    }
+    return buffer.toString();
+  }
+}
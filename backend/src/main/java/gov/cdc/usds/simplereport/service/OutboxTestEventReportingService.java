@@ -0,0 +1,73 @@
+package gov.cdc.usds.simplereport.service;
+
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import gov.cdc.usds.simplereport.db.model.TestEventOutboxEntry;
+import gov.cdc.usds.simplereport.db.repository.TestEventOutboxRepository;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * A {@link TestEventReportingService} that does not talk to the queue at all while reporting: each
+ * queue message is written to the test_event_outbox table, in the caller's transaction, and is
+ * delivered later by the {@link TestEventOutboxRelay}. A message is therefore sent if, and only if,
+ * the transaction that created the test event commits, and the caller never waits on the queue.
+ */
+public class OutboxTestEventReportingService implements TestEventReportingService {
+  private static final Logger LOG = LoggerFactory.getLogger(OutboxTestEventReportingService.class);
+
+  private final AzureStorageQueueTestEventReportingService queueReporting;
+  private final TestEventOutboxRepository outboxRepo;
+
+  public OutboxTestEventReportingService(
+      AzureStorageQueueTestEventReportingService queueReporting,
+      TestEventOutboxRepository outboxRepo) {
+    this.queueReporting = queueReporting;
+    this.outboxRepo = outboxRepo;
+  }
+
+  @Override
+  public CompletableFuture<Void> reportAsync(TestEvent testEvent) {
+    LOG.trace("Adding TestEvent [{}] to the reporting outbox", testEvent.getInternalId());
+    outboxRepo.save(
+        new TestEventOutboxEntry(testEvent.getInternalId(), queueReporting.toBuffer(testEvent)));
+    return CompletableFuture.completedFuture(null);
+  }
+
+  @Override
+  public CompletableFuture<Void> reportAsync(TestEventExportRecord exportRecord) {
+    LOG.trace("Adding TestEvent [{}] to the reporting outbox", exportRecord.getTestEventId());
+    outboxRepo.save(
+        new TestEventOutboxEntry(
+            exportRecord.getTestEventId(), queueReporting.toBuffer(exportRecord)));
+    return CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * Unlike the other services, this only writes the message to the outbox, in the current
+   * transaction: it is the commit that hands it to the relay, which also does the retrying.
+   */
+  @Override
+  public boolean reportsInTransaction() {
+    return true;
+  }
+
+  @Override
+  @Transactional(propagation = Propagation.REQUIRES_NEW) // callers may be in read-only transactions
+  public void markTestEventIdsAsReported(Set<UUID> testEventIds) {
+    if (testEventIds.isEmpty()) {
+      // an upload with no new test events: there is nothing to remove, and an empty IN list is
+      // not valid SQL
+      return;
+    }
+    // anything still in the outbox never has to be sent; anything that was sent is on the queue
+    int removed = outboxRepo.deleteByTestEventIds(testEventIds);
+    LOG.info("Removed {} already reported test events from the reporting outbox", removed);
+    queueReporting.markTestEventIdsAsReported(testEventIds);
+  }
+}
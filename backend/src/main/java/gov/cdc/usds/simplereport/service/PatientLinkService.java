@@ -11,7 +11,10 @@ import gov.cdc.usds.simplereport.db.repository.PatientLinkFailedAttemptRepositor
 import gov.cdc.usds.simplereport.db.repository.PatientLinkRepository;
 import gov.cdc.usds.simplereport.db.repository.TestOrderRepository;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -109,6 +112,20 @@ public class PatientLinkService {
     return plrepo.save(pl);
   }
 
+  /** The patient links with these IDs, with their test orders and patients loaded. */
+  public List<PatientLink> getPatientLinks(Collection<UUID> internalIds) {
+    return plrepo.findAllByInternalIdIn(internalIds);
+  }
+
+  /** Like {@link #createPatientLink}, for many test orders that are already loaded. */
+  public List<PatientLink> createPatientLinks(Collection<TestOrder> testOrders) {
+    List<PatientLink> links =
+        testOrders.stream().map(PatientLink::new).collect(Collectors.toList());
+    // these are all new, so they are the very entities that are saved
+    plrepo.saveAll(links);
+    return links;
+  }
+
   public PatientLink expireMyPatientLink() {
     PatientLink pl = contextHolder.getPatientLink();
     pl.expire();
@@ -0,0 +1,439 @@
+package gov.cdc.usds.simplereport.service;
+
+import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.db.model.Person;
+import java.text.Collator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the names of the patients of each organization in memory, sorted, so that searching for
+ * patients by the start of their name (see {@link PersonService#getPatients}) is a binary search
+ * rather than a query.
+ *
+ * <p>The names of an organization are loaded the first time they are searched, and after that are
+ * kept up to date by {@link #patientChanged}, which {@link PersonService} calls whenever it adds,
+ * changes or archives a patient. Once the transaction that made the changes commits, the
+ * organization's version in the patient_list_version table is moved forward, once for all of them,
+ * in a short transaction of its own: writes to the patients of an organization do not wait on each
+ * other for the version. The changed patients are read again after the version is locked, so the
+ * newest version always comes with the newest of them. Other instances of the application check
+ * the version at most once per check interval, and load the names again when it has moved, so a
+ * change made by another instance can be missing from searches here for about that long. Patients
+ * changed other than through {@link PersonService} are not seen until the next change that is.
+ */
+@Service
+@Transactional
+public class PatientNameIndexService {
+  private static final Logger LOG = LoggerFactory.getLogger(PatientNameIndexService.class);
+
+  private final EntityManager _entityManager;
+  private final TransactionTemplate _versionTransaction;
+  private final boolean _enabled;
+  private final long _checkIntervalMillis;
+  private final Map<UUID, Snapshot> _snapshots = new ConcurrentHashMap<>();
+
+  public PatientNameIndexService(
+      EntityManager entityManager,
+      PlatformTransactionManager transactionManager,
+      @Value("${simple-report.patient-name-index.enabled:true}") boolean enabled,
+      @Value("${simple-report.patient-name-index.version-check-interval:PT1S}")
+          Duration checkInterval) {
+    _entityManager = entityManager;
+    _versionTransaction = new TransactionTemplate(transactionManager);
+    _versionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    _enabled = enabled;
+    _checkIntervalMillis = checkInterval.toMillis();
+  }
+
+  public boolean isEnabled() {
+    return _enabled;
+  }
+
+  /**
+   * Find the patients of this organization who are not archived, and whose first, middle or last
+   * name starts with this prefix (ignoring case).
+   *
+   * @param facilityIds the facilities the patients may belong to: patients who do not belong to any
+   *     facility are always found.
+   * @return the IDs of the patients found, in the order of their names.
+   */
+  public List<UUID> findPatients(Organization org, String namePrefix, Set<UUID> facilityIds) {
+    return currentSnapshot(org).find(namePrefix.toLowerCase(Locale.ROOT), facilityIds);
+  }
+
+  /**
+   * Record that this patient has been added, or has had their name, facility or archived status
+   * changed. The names kept here reflect the change once the transaction commits.
+   */
+  public void patientChanged(Person person) {
+    UUID orgId = person.getOrganization().getInternalId();
+    UUID patientId = person.getInternalId();
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      publishChanges(orgId, Set.of(patientId));
+      return;
+    }
+    PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      pending = new PendingChanges();
+      TransactionSynchronizationManager.bindResource(this, pending);
+      TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+    pending.patientIds.computeIfAbsent(orgId, id -> new LinkedHashSet<>()).add(patientId);
+  }
+
+  // Moves the organization's version forward once for these changes, reading the patients again
+  // while the version is locked, and then applies them to the names kept here.
+  private void publishChanges(UUID orgId, Set<UUID> patientIds) {
+    try {
+      Published published =
+          _versionTransaction.execute(
+              status -> new Published(nextVersion(orgId), loadPatients(orgId, patientIds)));
+      applyChanges(orgId, published.version, patientIds, published.patients);
+    } catch (RuntimeException e) {
+      // the changes themselves have been committed: other instances will see them with the next
+      // change that gets published, and this one when it loads the names again
+      LOG.error("Could not publish changes to the patients of organization {}", orgId, e);
+      _snapshots.remove(orgId);
+    }
+  }
+
+  private Snapshot currentSnapshot(Organization org) {
+    UUID orgId = org.getInternalId();
+    long now = System.currentTimeMillis();
+    Snapshot snapshot = _snapshots.get(orgId);
+    if (snapshot != null && now - snapshot.checkedAt < _checkIntervalMillis) {
+      return snapshot;
+    }
+    long version = currentVersion(orgId);
+    if (snapshot != null && snapshot.version == version) {
+      snapshot.checkedAt = now;
+      return snapshot;
+    }
+    // the names are read after the version, so they are at least as new as it is
+    Snapshot loaded = new Snapshot(version, sortedByName(loadPatients(orgId, null)), now);
+    // a change that committed while loading may have already moved the kept snapshot past this one
+    return _snapshots.merge(orgId, loaded, (kept, l) -> kept.version > l.version ? kept : l);
+  }
+
+  // Changes can only be applied to the snapshot of the version just before theirs: any other
+  // snapshot has missed a change, and is dropped to be loaded again the next time it is searched.
+  // The changed patients that are not among the current ones have been archived.
+  private void applyChanges(
+      UUID orgId, long version, Set<UUID> patientIds, List<Patient> currentPatients) {
+    Map<UUID, Patient> current =
+        currentPatients.stream().collect(Collectors.toMap(p -> p.id, Function.identity()));
+    _snapshots.computeIfPresent(
+        orgId,
+        (id, snapshot) -> {
+          if (snapshot.version != version - 1) {
+            return null;
+          }
+          Snapshot changed = snapshot;
+          for (UUID patientId : patientIds) {
+            changed = changed.with(version, patientId, current.get(patientId));
+          }
+          return changed;
+        });
+  }
+
+  private long currentVersion(UUID orgId) {
+    List<?> found =
+        _entityManager
+            .createNativeQuery(
+                "SELECT version FROM {h-schema}patient_list_version WHERE organization_id = :org")
+            .setParameter("org", orgId)
+            .getResultList();
+    return found.isEmpty() ? 0 : ((Number) found.get(0)).longValue();
+  }
+
+  private long nextVersion(UUID orgId) {
+    return ((Number)
+            _entityManager
+                .createNativeQuery(
+                    "INSERT INTO {h-schema}patient_list_version AS v (organization_id, version)"
+                        + " VALUES (:org, 1) ON CONFLICT (organization_id)"
+                        + " DO UPDATE SET version = v.version + 1 RETURNING version")
+                .setParameter("org", orgId)
+                .getSingleResult())
+        .longValue();
+  }
+
+  // the patients of the organization who are not archived: all of them, or only these ones
+  private List<Patient> loadPatients(UUID orgId, Collection<UUID> onlyIds) {
+    TypedQuery<Object[]> query =
+        _entityManager
+            .createQuery(
+                "select p.internalId, f.internalId, p.nameInfo.firstName, p.nameInfo.middleName,"
+                    + " p.nameInfo.lastName, p.nameInfo.suffix from Person p"
+                    + " left join p.facility f where p.organization.internalId = :org"
+                    + " and p.isDeleted = false"
+                    + (onlyIds == null ? "" : " and p.internalId in :ids"),
+                Object[].class)
+            .setParameter("org", orgId);
+    if (onlyIds != null) {
+      query.setParameter("ids", onlyIds);
+    }
+    return query.getResultList().stream()
+        .map(
+            r ->
+                new Patient(
+                    (UUID) r[0],
+                    (UUID) r[1],
+                    (String) r[2],
+                    (String) r[3],
+                    (String) r[4],
+                    (String) r[5]))
+        .collect(Collectors.toList());
+  }
+
+  private static Patient[] sortedByName(List<Patient> patients) {
+    Patient[] sorted = patients.toArray(new Patient[0]);
+    Arrays.sort(sorted, nameOrder());
+    return sorted;
+  }
+
+  // The order of the patient list (last, first, middle name and suffix), compared the way US
+  // English sorts: this is as close as we can get to the order the database sorts them in.
+  private static Comparator<Patient> nameOrder() {
+    // each Collator.getInstance is a new copy, which is needed since collators are not thread-safe
+    Collator collator = Collator.getInstance(Locale.US);
+    Comparator<String> names = Comparator.nullsLast(collator::compare);
+    return Comparator.comparing((Patient p) -> p.lastName, names)
+        .thenComparing(p -> p.firstName, names)
+        .thenComparing(p -> p.middleName, names)
+        .thenComparing(p -> p.suffix, names)
+        .thenComparing(p -> p.id);
+  }
+
+  /**
+   * The patients changed in one transaction, by organization, to be published once it commits. It
+   * is bound to the transaction while that is active, so that a transaction suspended for a new
+   * one does not collect the new one's changes.
+   */
+  private final class PendingChanges implements TransactionSynchronization {
+    private final Map<UUID, Set<UUID>> patientIds = new HashMap<>();
+
+    @Override
+    public void suspend() {
+      TransactionSynchronizationManager.unbindResource(PatientNameIndexService.this);
+    }
+
+    @Override
+    public void resume() {
+      TransactionSynchronizationManager.bindResource(PatientNameIndexService.this, this);
+    }
+
+    @Override
+    public void afterCommit() {
+      patientIds.forEach(PatientNameIndexService.this::publishChanges);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(PatientNameIndexService.this);
+    }
+  }
+
+  private static final class Published {
+    private final long version;
+    private final List<Patient> patients;
+
+    private Published(long version, List<Patient> patients) {
+      this.version = version;
+      this.patients = patients;
+    }
+  }
+
+  private static final class Patient {
+    private final UUID id;
+    private final UUID facilityId;
+    private final String firstName;
+    private final String middleName;
+    private final String lastName;
+    private final String suffix;
+    // the names a search can match, lowercased and sorted
+    private final String[] searchNames;
+
+    private Patient(
+        UUID id,
+        UUID facilityId,
+        String firstName,
+        String middleName,
+        String lastName,
+        String suffix) {
+      this.id = id;
+      this.facilityId = facilityId;
+      this.firstName = firstName;
+      this.middleName = middleName;
+      this.lastName = lastName;
+      this.suffix = suffix;
+      this.searchNames =
+          Stream.of(firstName, middleName, lastName)
+              .filter(Objects::nonNull)
+              .map(n -> n.toLowerCase(Locale.ROOT))
+              .sorted()
+              .toArray(String[]::new);
+    }
+  }
+
+  /**
+   * The patients of an organization as of one version, which is never changed once made: a change
+   * makes a new snapshot from the old one.
+   */
+  private static final class Snapshot {
+    private final long version;
+    // in the order of their names
+    private final Patient[] patients;
+    // every name a search can match, sorted, with the position in patients of the patient it is for
+    private final String[] names;
+    private final int[] owners;
+    // when the version was last found to be current
+    private volatile long checkedAt;
+
+    private Snapshot(long version, Patient[] patients, long checkedAt) {
+      this.version = version;
+      this.patients = patients;
+      this.checkedAt = checkedAt;
+      List<String> allNames = new ArrayList<>();
+      List<Integer> allOwners = new ArrayList<>();
+      for (int p = 0; p < patients.length; p++) {
+        for (String name : patients[p].searchNames) {
+          allNames.add(name);
+          allOwners.add(p);
+        }
+      }
+      Integer[] byName = new Integer[allNames.size()];
+      Arrays.setAll(byName, k -> k);
+      Arrays.sort(byName, Comparator.comparing(allNames::get));
+      this.names = new String[byName.length];
+      this.owners = new int[byName.length];
+      for (int k = 0; k < byName.length; k++) {
+        names[k] = allNames.get(byName[k]);
+        owners[k] = allOwners.get(byName[k]);
+      }
+    }
+
+    private Snapshot(
+        long version, Patient[] patients, String[] names, int[] owners, long checkedAt) {
+      this.version = version;
+      this.patients = patients;
+      this.names = names;
+      this.owners = owners;
+      this.checkedAt = checkedAt;
+    }
+
+    private List<UUID> find(String prefix, Set<UUID> facilityIds) {
+      // a patient can have more than one matching name, and should be found only once
+      BitSet matches = new BitSet(patients.length);
+      for (int k = firstNotBefore(prefix); k < names.length && names[k].startsWith(prefix); k++) {
+        matches.set(owners[k]);
+      }
+      List<UUID> found = new ArrayList<>(matches.cardinality());
+      for (int p = matches.nextSetBit(0); p >= 0; p = matches.nextSetBit(p + 1)) {
+        UUID facilityId = patients[p].facilityId;
+        if (facilityId == null || facilityIds.contains(facilityId)) {
+          found.add(patients[p].id);
+        }
+      }
+      return found;
+    }
+
+    private int firstNotBefore(String prefix) {
+      int low = 0;
+      int high = names.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (names[mid].compareTo(prefix) < 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * The snapshot for the next version, in which this patient has been changed to the given one
+     * (or has been archived, if that is null).
+     */
+    private Snapshot with(long nextVersion, UUID patientId, Patient changed) {
+      int removed = -1;
+      for (int p = 0; p < patients.length && removed < 0; p++) {
+        if (patients[p].id.equals(patientId)) {
+          removed = p;
+        }
+      }
+      List<Patient> nextPatients = new ArrayList<>(Arrays.asList(patients));
+      if (removed >= 0) {
+        nextPatients.remove(removed);
+      }
+      int inserted = -1;
+      String[] added = new String[0];
+      if (changed != null) {
+        int found = Collections.binarySearch(nextPatients, changed, nameOrder());
+        inserted = found < 0 ? -(found + 1) : found;
+        nextPatients.add(inserted, changed);
+        added = changed.searchNames;
+      }
+      int removedNames = removed < 0 ? 0 : patients[removed].searchNames.length;
+      String[] nextNames = new String[names.length - removedNames + added.length];
+      int[] nextOwners = new int[nextNames.length];
+      int n = 0;
+      int a = 0;
+      for (int k = 0; k < names.length; k++) {
+        int owner = owners[k];
+        if (owner == removed) {
+          continue;
+        }
+        if (removed >= 0 && owner > removed) {
+          owner--;
+        }
+        if (inserted >= 0 && owner >= inserted) {
+          owner++;
+        }
+        while (a < added.length && added[a].compareTo(names[k]) <= 0) {
+          nextNames[n] = added[a++];
+          nextOwners[n++] = inserted;
+        }
+        nextNames[n] = names[k];
+        nextOwners[n++] = owner;
+      }
+      while (a < added.length) {
+        nextNames[n] = added[a++];
+        nextOwners[n++] = inserted;
+      }
+      return new Snapshot(
+          nextVersion, nextPatients.toArray(new Patient[0]), nextNames, nextOwners, checkedAt);
+    }
+  }
+}
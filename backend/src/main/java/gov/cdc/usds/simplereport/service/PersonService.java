@@ -4,13 +4,21 @@ import com.microsoft.applicationinsights.core.dependencies.apachecommons.lang3.S
 import gov.cdc.usds.simplereport.api.model.errors.IllegalGraphqlArgumentException;
 import gov.cdc.usds.simplereport.api.pxp.CurrentPatientContextHolder;
 import gov.cdc.usds.simplereport.config.AuthorizationConfiguration;
+import gov.cdc.usds.simplereport.db.model.AuditedEntity_;
+import gov.cdc.usds.simplereport.db.model.EternalAuditedEntity_;
 import gov.cdc.usds.simplereport.db.model.Facility;
+import gov.cdc.usds.simplereport.db.model.Facility_;
 import gov.cdc.usds.simplereport.db.model.Organization;
 import gov.cdc.usds.simplereport.db.model.PatientPreferences;
 import gov.cdc.usds.simplereport.db.model.PatientSelfRegistrationLink;
 import gov.cdc.usds.simplereport.db.model.Person;
 import gov.cdc.usds.simplereport.db.model.Person.SpecField;
+import gov.cdc.usds.simplereport.db.model.PersonSummary;
+import gov.cdc.usds.simplereport.db.model.Person_;
 import gov.cdc.usds.simplereport.db.model.PhoneNumber;
+import gov.cdc.usds.simplereport.db.model.PhoneNumber_;
+import gov.cdc.usds.simplereport.db.model.auxiliary.PersonName;
+import gov.cdc.usds.simplereport.db.model.auxiliary.PersonName_;
 import gov.cdc.usds.simplereport.db.model.auxiliary.PersonRole;
 import gov.cdc.usds.simplereport.db.model.auxiliary.StreetAddress;
 import gov.cdc.usds.simplereport.db.model.auxiliary.TestResultDeliveryPreference;
@@ -19,10 +27,22 @@ import gov.cdc.usds.simplereport.db.repository.PersonRepository;
 import gov.cdc.usds.simplereport.db.repository.PhoneNumberRepository;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 import javax.validation.constraints.Size;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -39,9 +59,14 @@ public class PersonService {
   private final PersonRepository _repo;
   private final PatientPreferencesRepository _prefRepo;
   private final PhoneNumberRepository _phoneRepo;
+  private final PatientNameIndexService _nameIndex;
+  @PersistenceContext private EntityManager _entityManager;
 
   public static final int DEFAULT_PAGINATION_PAGEOFFSET = 0;
   public static final int DEFAULT_PAGINATION_PAGESIZE = 5000; // this is high because the searchBar
+  // for keyset pagination, where callers ask for a page at a time rather than everything at once
+  public static final int DEFAULT_CONNECTION_PAGESIZE = 20;
+  public static final int MAX_CONNECTION_PAGESIZE = 100;
   static final int MINIMUM_CHAR_FOR_SEARCH = 2;
 
   private static final Sort NAME_SORT =
@@ -52,12 +77,14 @@ public class PersonService {
       PersonRepository repo,
       PatientPreferencesRepository prefRepo,
       CurrentPatientContextHolder patientContext,
-      PhoneNumberRepository phoneRepo) {
+      PhoneNumberRepository phoneRepo,
+      PatientNameIndexService nameIndex) {
     _patientContext = patientContext;
     _os = os;
     _repo = repo;
     _prefRepo = prefRepo;
     _phoneRepo = phoneRepo;
+    _nameIndex = nameIndex;
   }
 
   private void updatePersonFacility(Person person, UUID facilityId) {
@@ -95,9 +122,12 @@ public class PersonService {
                 cb.equal(root.get(SpecField.FACILITY).get(SpecField.INTERNAL_ID), facilityId)));
   }
 
+  // Each name is matched as lower(column) LIKE 'prefix%', the form the person name prefix indexes
+  // (on organization, is_deleted and the lowercased name) can serve. LIKE wildcards in the search
+  // are escaped, so that the pattern is always a plain prefix, which is what the index needs.
   private Specification<Person> nameMatchesFilter(
       @Size(min = MINIMUM_CHAR_FOR_SEARCH) String namePrefixMatch) {
-    String likeString = namePrefixMatch.trim().toLowerCase() + "%";
+    String likeString = escapeLikePattern(namePrefixMatch.trim().toLowerCase()) + "%";
     return (root, query, cb) ->
         cb.or(
             cb.like(
@@ -108,6 +138,11 @@ public class PersonService {
                 cb.lower(root.get(SpecField.PERSON_NAME).get(SpecField.LAST_NAME)), likeString));
   }
 
+  // backslash is the default LIKE escape character in Postgres
+  private static String escapeLikePattern(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
   private Specification<Person> isDeletedFilter(boolean isDeleted) {
     return (root, query, cb) -> cb.equal(root.get(SpecField.IS_DELETED), isDeleted);
   }
@@ -129,6 +164,40 @@ public class PersonService {
     return filter;
   }
 
+  // Searches by name for patients who are not archived are answered by the name index, rather than
+  // by a query, whenever it is enabled.
+  private boolean useNameIndex(boolean isArchived, String namePrefixMatch) {
+    return !isArchived && StringUtils.isNotBlank(namePrefixMatch) && _nameIndex.isEnabled();
+  }
+
+  // the facilities whose patients a search may find, as buildPersonSearchFilter would limit them
+  // (patients who do not belong to any facility may always be found)
+  private Set<UUID> searchFacilityIds(UUID facilityId) {
+    if (facilityId != null) {
+      return Set.of(facilityId);
+    }
+    return _os.getAccessibleFacilities().stream()
+        .map(Facility::getInternalId)
+        .collect(Collectors.toSet());
+  }
+
+  private Specification<Person> idInFilter(Collection<UUID> ids) {
+    return (root, query, cb) -> root.get(SpecField.INTERNAL_ID).in(ids);
+  }
+
+  // The name index can be a little behind, so the patients it finds are checked again against the
+  // same filter a search without it would use: a patient it should not have found is left out,
+  // rather than shown. Counts are checked the same way, so that they agree with the lists.
+  private List<Person> getPatientsInOrder(List<UUID> ids, Specification<Person> search) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    Map<UUID, Person> found =
+        _repo.findAll(search.and(idInFilter(ids))).stream()
+            .collect(Collectors.toMap(Person::getInternalId, p -> p));
+    return ids.stream().map(found::get).filter(Objects::nonNull).collect(Collectors.toList());
+  }
+
   /**
    * @param facilityId If null, then it means across whole organization
    * @param pageOffset Pagination offset is zero based
@@ -152,6 +221,20 @@ public class PersonService {
       return List.of(); // empty list
     }
 
+    if (useNameIndex(isArchived, namePrefixMatch)) {
+      Set<UUID> facilityIds = searchFacilityIds(facilityId);
+      List<UUID> ids =
+          _nameIndex.findPatients(
+              _os.getCurrentOrganization(), namePrefixMatch.trim(), facilityIds);
+      long first = (long) pageOffset * pageSize;
+      if (first >= ids.size()) {
+        return List.of();
+      }
+      List<UUID> page = ids.subList((int) first, (int) Math.min(ids.size(), first + pageSize));
+      return getPatientsInOrder(
+          page, buildPersonSearchFilter(facilityId, isArchived, namePrefixMatch));
+    }
+
     return _repo.findAll(
         buildPersonSearchFilter(facilityId, isArchived, namePrefixMatch),
         PageRequest.of(pageOffset, pageSize, NAME_SORT));
@@ -162,7 +245,103 @@ public class PersonService {
     if (namePrefixMatch != null && namePrefixMatch.trim().length() < MINIMUM_CHAR_FOR_SEARCH) {
       return 0;
     }
-    return _repo.count(buildPersonSearchFilter(facilityId, isArchived, namePrefixMatch));
+    Specification<Person> search = buildPersonSearchFilter(facilityId, isArchived, namePrefixMatch);
+    if (useNameIndex(isArchived, namePrefixMatch)) {
+      List<UUID> ids =
+          _nameIndex.findPatients(
+              _os.getCurrentOrganization(), namePrefixMatch.trim(), searchFacilityIds(facilityId));
+      return ids.isEmpty() ? 0 : _repo.count(search.and(idInFilter(ids)));
+    }
+    return _repo.count(search);
+  }
+
+  /**
+   * Get summaries of the patients matching these filters, in the order of their names (as for
+   * {@link #getPatients}, and then by ID to tell apart patients with the same name), that come
+   * after the given position in that order. Unlike {@link #getPatients}, this costs the same
+   * however deep into the list the position is, because there is no offset for the database to
+   * skip over, and each patient's facility and primary phone number are read in the same
+   * statement.
+   *
+   * @param afterName the name of the last patient already seen, or null to start from the first.
+   * @param afterId the ID of the last patient already seen, or null to start from the first.
+   * @param limit the maximum number of patients to return.
+   */
+  @Transactional(readOnly = true)
+  @AuthorizationConfiguration.RequireSpecificPatientSearchPermission
+  public List<PersonSummary> getPatientSummariesAfter(
+      UUID facilityId,
+      boolean isArchived,
+      String namePrefixMatch,
+      PersonName afterName,
+      UUID afterId,
+      int limit) {
+    if (namePrefixMatch != null && namePrefixMatch.trim().length() < MINIMUM_CHAR_FOR_SEARCH) {
+      return List.of();
+    }
+    CriteriaBuilder cb = _entityManager.getCriteriaBuilder();
+    CriteriaQuery<PersonSummary> query = cb.createQuery(PersonSummary.class);
+    Root<Person> root = query.from(Person.class);
+    Join<Person, Facility> facility = root.join(Person_.facility, JoinType.LEFT);
+    Join<Person, PhoneNumber> phone = root.join(Person_.primaryPhone, JoinType.LEFT);
+    Path<PersonName> name = root.get(Person_.nameInfo);
+    Path<String> lastName = name.get(PersonName_.lastName);
+    Path<String> firstName = name.get(PersonName_.firstName);
+    Path<String> middleName = name.get(PersonName_.middleName);
+    Path<String> suffix = name.get(PersonName_.suffix);
+    Path<UUID> internalId = root.get(AuditedEntity_.internalId);
+    Predicate p =
+        buildPersonSearchFilter(facilityId, isArchived, namePrefixMatch)
+            .toPredicate(root, query, cb);
+    if (afterName != null && afterId != null) {
+      // (last, first, middle, suffix, ID) > the position, comparing one column at a time, since
+      // only the last name cannot be null
+      Predicate after = cb.greaterThan(internalId, afterId);
+      after = comesAfter(cb, suffix, afterName.getSuffix(), after);
+      after = comesAfter(cb, middleName, afterName.getMiddleName(), after);
+      after = comesAfter(cb, firstName, afterName.getFirstName(), after);
+      after = comesAfter(cb, lastName, afterName.getLastName(), after);
+      // implied by the above, but lets the database start reading the name sort index from here
+      p = cb.and(p, cb.greaterThanOrEqualTo(lastName, afterName.getLastName()), after);
+    }
+    query
+        .select(
+            cb.construct(
+                PersonSummary.class,
+                internalId,
+                root.get(Person_.lookupId),
+                firstName,
+                middleName,
+                lastName,
+                suffix,
+                root.get(Person_.birthDate),
+                root.get(Person_.role),
+                root.get(EternalAuditedEntity_.isDeleted),
+                facility.get(AuditedEntity_.internalId),
+                facility.get(Facility_.facilityName),
+                phone.get(PhoneNumber_.number)))
+        .where(p)
+        .orderBy(
+            cb.asc(lastName),
+            cb.asc(firstName),
+            cb.asc(middleName),
+            cb.asc(suffix),
+            cb.asc(internalId));
+    return _entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+
+  // A name comes after the position if this part of it does, or if this part is the same and the
+  // rest of it (orAfterThat) comes after. Names are sorted ascending with nulls last, as Postgres
+  // sorts them: so nothing comes after a null, and a null comes after anything else.
+  private static Predicate comesAfter(
+      CriteriaBuilder cb, Path<String> part, String position, Predicate orAfterThat) {
+    if (position == null) {
+      return cb.and(cb.isNull(part), orAfterThat);
+    }
+    return cb.or(
+        cb.greaterThan(part, position),
+        cb.isNull(part),
+        cb.and(cb.equal(part, position), orAfterThat));
   }
 
   // NO PERMISSION CHECK (make sure the caller has one!) getPatient()
@@ -178,6 +357,11 @@ public class PersonService {
             () -> new IllegalGraphqlArgumentException("No patient with that ID was found"));
   }
 
+  // NO PERMISSION CHECK (make sure the caller has one!)
+  public List<Person> getPatientsNoPermissionsCheck(Collection<UUID> ids, Organization org) {
+    return _repo.findAllByIdInAndOrganization(ids, org);
+  }
+
   @AuthorizationConfiguration.RequirePermissionArchiveTargetPatient
   public Person getArchivedPatient(UUID patientId) {
     return _repo
@@ -228,6 +412,7 @@ public class PersonService {
     Person savedPerson = _repo.save(newPatient);
     upsertPreferredLanguage(savedPerson, preferredLanguage);
     updatePhoneNumbers(newPatient, phoneNumbers);
+    _nameIndex.patientChanged(savedPerson);
     return savedPerson;
   }
 
@@ -273,6 +458,7 @@ public class PersonService {
     Person savedPerson = _repo.save(newPatient);
     upsertPreferredLanguage(savedPerson, preferredLanguage);
     updatePhoneNumbers(newPatient, phoneNumbers);
+    _nameIndex.patientChanged(savedPerson);
     return savedPerson;
   }
 
@@ -340,6 +526,22 @@ public class PersonService {
     return _prefRepo.findByPerson(person).orElseGet(() -> new PatientPreferences(person));
   }
 
+  /** Like {@link #getPatientPreferences}, for many patients at once, by patient internal ID. */
+  public Map<UUID, PatientPreferences> getPatientPreferences(Collection<Person> people) {
+    Map<UUID, PatientPreferences> found =
+        _prefRepo
+            .findAllByPersonInternalIdIn(
+                people.stream().map(Person::getInternalId).collect(Collectors.toList()))
+            .stream()
+            .collect(Collectors.toMap(PatientPreferences::getInternalId, p -> p));
+    return people.stream()
+        .collect(
+            Collectors.toMap(
+                Person::getInternalId,
+                p -> found.getOrDefault(p.getInternalId(), new PatientPreferences(p)),
+                (a, b) -> a));
+  }
+
   @AuthorizationConfiguration.RequirePermissionStartTestForPatientById
   public PatientPreferences updateTestResultDeliveryPreference(
       UUID patientId, TestResultDeliveryPreference testResultDelivery) {
@@ -411,13 +613,17 @@ public class PersonService {
     updatePhoneNumbers(patientToUpdate, phoneNumbers);
     upsertPreferredLanguage(patientToUpdate, preferredLanguage);
     updatePersonFacility(patientToUpdate, facilityId);
-    return _repo.save(patientToUpdate);
+    Person savedPerson = _repo.save(patientToUpdate);
+    _nameIndex.patientChanged(savedPerson);
+    return savedPerson;
   }
 
   @AuthorizationConfiguration.RequirePermissionArchiveTargetPatient
   public Person setIsDeleted(UUID patientId, boolean deleted) {
     Person person = this.getPatientNoPermissionsCheck(patientId);
     person.setIsDeleted(deleted);
-    return _repo.save(person);
+    Person savedPerson = _repo.save(person);
+    _nameIndex.patientChanged(savedPerson);
+    return savedPerson;
   }
 }
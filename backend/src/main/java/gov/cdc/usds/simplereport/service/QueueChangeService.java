@@ -0,0 +1,213 @@
+package gov.cdc.usds.simplereport.service;
+
+import gov.cdc.usds.simplereport.db.model.TestOrder;
+import gov.cdc.usds.simplereport.service.model.QueueChange;
+import gov.cdc.usds.simplereport.service.model.QueueChangeType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Announces each change to the queue of a facility to everyone watching that queue, on every
+ * instance of the application. Changes are sent with a postgres NOTIFY from the transaction that
+ * makes them, so they are only delivered if (and once) that transaction commits; each instance
+ * LISTENs for them on a connection that it takes from the pool, and keeps, for as long as it runs.
+ */
+@Service
+public class QueueChangeService {
+  private static final Logger LOG = LoggerFactory.getLogger(QueueChangeService.class);
+  static final String CHANNEL = "queue_changed";
+  // how long to wait for notifications before checking whether to stop listening
+  private static final int POLL_MILLIS = 1000;
+  private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+  private final QueueVersionService _queueVersions;
+  private final DataSource _dataSource;
+  // subscribers that cannot keep up miss changes, rather than holding up everyone else
+  private final Sinks.Many<QueueChange> _changes = Sinks.many().multicast().directBestEffort();
+  private volatile boolean _listening;
+  private Thread _listener;
+
+  @PersistenceContext private EntityManager _entityManager;
+
+  public QueueChangeService(QueueVersionService queueVersions, DataSource dataSource) {
+    _queueVersions = queueVersions;
+    _dataSource = dataSource;
+  }
+
+  /**
+   * Record that a test order in the queue has changed, as part of the transaction that changed it.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void queueChanged(TestOrder order, QueueChangeType type) {
+    queueChanged(List.of(order), type);
+  }
+
+  /** Like {@link #queueChanged(TestOrder, QueueChangeType)}, for many test orders at once. */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void queueChanged(Collection<TestOrder> orders, QueueChangeType type) {
+    if (orders.isEmpty()) {
+      return;
+    }
+    List<QueueChange> changes =
+        orders.stream()
+            .map(o -> new QueueChange(o.getFacility().getInternalId(), o.getInternalId(), type))
+            .collect(Collectors.toList());
+    // this instance sees its own changes straight away, rather than when the notification arrives
+    changes.stream()
+        .map(QueueChange::getFacilityId)
+        .distinct()
+        .forEach(_queueVersions::queueChanged);
+    Object[] payloads = changes.stream().map(QueueChange::toPayload).toArray();
+    _entityManager
+        .unwrap(Session.class)
+        .doWork(
+            connection -> {
+              // one notification per change, but all of them in a single round trip
+              try (PreparedStatement notify =
+                  connection.prepareStatement(
+                      "SELECT pg_notify(?, payload) FROM unnest(?::text[]) AS payload")) {
+                notify.setString(1, CHANNEL);
+                notify.setArray(2, connection.createArrayOf("text", payloads));
+                notify.execute();
+              }
+            });
+  }
+
+  /** Every change to the queue of this facility, made on any instance, from now on. */
+  public Flux<QueueChange> changes(UUID facilityId) {
+    return _changes.asFlux().filter(change -> facilityId.equals(change.getFacilityId()));
+  }
+
+  @PostConstruct
+  void startListening() {
+    _listening = true;
+    _listener = new Thread(this::listen, "queue-change-listener");
+    _listener.setDaemon(true);
+    _listener.start();
+  }
+
+  @PreDestroy
+  void stopListening() {
+    _listening = false;
+    _listener.interrupt();
+  }
+
+  private void listen() {
+    while (_listening) {
+      try (Connection connection = _dataSource.getConnection()) {
+        // LISTEN only takes effect once it is committed
+        connection.setAutoCommit(true);
+        try (Statement listen = connection.createStatement()) {
+          listen.execute("LISTEN " + CHANNEL);
+        }
+        try {
+          NotificationReader notifications = new NotificationReader(connection);
+          LOG.info("Listening for queue changes");
+          while (_listening) {
+            notifications.poll(POLL_MILLIS).forEach(this::received);
+          }
+        } finally {
+          unlisten(connection);
+        }
+      } catch (SQLException | RuntimeException e) {
+        // nothing may end this thread while it should be listening, or changes stop arriving
+        if (_listening) {
+          LOG.warn("Lost the connection listening for queue changes: reconnecting", e);
+          try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+          } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  // the connection goes back to the pool, where nobody else should be sent our notifications
+  private static void unlisten(Connection connection) {
+    try (Statement unlisten = connection.createStatement()) {
+      unlisten.execute("UNLISTEN " + CHANNEL);
+    } catch (SQLException e) {
+      // most likely the connection is broken, and the pool will discard it
+      LOG.debug("Unable to stop listening for queue changes", e);
+    }
+  }
+
+  private void received(String payload) {
+    QueueChange change;
+    try {
+      change = QueueChange.fromPayload(payload);
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Ignoring unreadable queue change [{}]", payload);
+      return;
+    }
+    // this is how the changes made on other instances reach the queue versions of this one
+    _queueVersions.queueChanged(change.getFacilityId());
+    _changes.tryEmitNext(change);
+  }
+
+  /**
+   * Reads notifications from the driver's own API. The driver is only a runtime dependency, so that
+   * API is looked up by name rather than compiled against.
+   */
+  private static final class NotificationReader {
+    private final Object _pgConnection;
+    private final Method _getNotifications;
+    private final Method _getParameter;
+
+    private NotificationReader(Connection connection) throws SQLException {
+      try {
+        Class<?> pgConnection = Class.forName("org.postgresql.PGConnection");
+        _getNotifications = pgConnection.getMethod("getNotifications", int.class);
+        _getParameter = Class.forName("org.postgresql.PGNotification").getMethod("getParameter");
+        _pgConnection = connection.unwrap(pgConnection);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("The postgres driver is not available", e);
+      }
+    }
+
+    /** The payloads of the notifications received within this many milliseconds, if any. */
+    private List<String> poll(int timeoutMillis) throws SQLException {
+      try {
+        Object[] notifications = (Object[]) _getNotifications.invoke(_pgConnection, timeoutMillis);
+        List<String> payloads = new ArrayList<>();
+        if (notifications != null) {
+          for (Object notification : notifications) {
+            payloads.add((String) _getParameter.invoke(notification));
+          }
+        }
+        return payloads;
+      } catch (InvocationTargetException e) {
+        if (e.getCause() instanceof SQLException) {
+          throw (SQLException) e.getCause();
+        }
+        throw new IllegalStateException("Unable to read queue change notifications", e.getCause());
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Unable to read queue change notifications", e);
+      }
+    }
+  }
+}
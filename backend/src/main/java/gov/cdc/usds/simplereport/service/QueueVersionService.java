@@ -0,0 +1,83 @@
+package gov.cdc.usds.simplereport.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps a version number for the queue of each facility, which changes whenever the queue does, so
+ * that a client that already has the current version of a queue can be told so without fetching
+ * the queue again.
+ *
+ * <p>Versions only move forward, and are never reused, even across restarts. Changes made by other
+ * instances of the application arrive by way of {@link QueueChangeService}, which can miss some
+ * while it reconnects, so each version is only trusted for a limited time, after which the queue
+ * gets a new version whether or not it has changed.
+ */
+@Service
+public class QueueVersionService {
+
+  // starting from the clock means a restarted instance never hands out a version it already has
+  private final AtomicLong _lastVersion = new AtomicLong(System.currentTimeMillis());
+  private final Map<UUID, QueueVersion> _versions = new ConcurrentHashMap<>();
+  private final long _maxAgeMillis;
+
+  public QueueVersionService(
+      @Value("${simple-report.queue-version-max-age:PT30S}") Duration maxAge) {
+    _maxAgeMillis = maxAge.toMillis();
+  }
+
+  /** The current version of the queue for this facility. */
+  public long currentVersion(UUID facilityId) {
+    long now = System.currentTimeMillis();
+    return _versions
+        .compute(
+            facilityId,
+            (id, current) ->
+                current == null || now - current.assignedAt > _maxAgeMillis
+                    ? new QueueVersion(_lastVersion.incrementAndGet(), now)
+                    : current)
+        .version;
+  }
+
+  /**
+   * Record that the queue for this facility has changed. If there is a transaction in progress, the
+   * queue gets its new version once the transaction commits: until then, anyone fetching the queue
+   * would not see the change.
+   */
+  public void queueChanged(UUID facilityId) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              newVersion(facilityId);
+            }
+          });
+    } else {
+      newVersion(facilityId);
+    }
+  }
+
+  private void newVersion(UUID facilityId) {
+    _versions.put(
+        facilityId,
+        new QueueVersion(_lastVersion.incrementAndGet(), System.currentTimeMillis()));
+  }
+
+  private static final class QueueVersion {
+    private final long version;
+    private final long assignedAt;
+
+    private QueueVersion(long version, long assignedAt) {
+      this.version = version;
+      this.assignedAt = assignedAt;
+    }
+  }
+}
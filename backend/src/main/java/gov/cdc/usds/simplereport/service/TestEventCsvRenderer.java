@@ -0,0 +1,166 @@
+package gov.cdc.usds.simplereport.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import gov.cdc.usds.simplereport.api.model.TestEventExport;
+import gov.cdc.usds.simplereport.api.model.TestEventExportWriter;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Renders the export rows of test events as the CSV document that is uploaded to DataHub. By
+ * default the whole document is rendered on the calling thread; if a thread count is supplied,
+ * large batches are instead split into partitions that are rendered on a pool of that many threads,
+ * and the fragments are joined back together in order behind the single header line, giving
+ * exactly the same document. A renderer with a pool must be closed when it is no longer needed, to
+ * stop the pool's threads.
+ */
+class TestEventCsvRenderer implements AutoCloseable {
+  private static final CsvMapper CSV_MAPPER = csvMapper();
+  // You would think `withNullValue` and `ALWAYS_QUOTE_EMPTY_STRINGS` would be enough, but it's
+  // not.
+  // we have to return `""` withNullValue to keep `,,,` out of the the csv
+  private static final CsvSchema CSV_SCHEMA =
+      CSV_MAPPER.schemaFor(TestEventExport.class).withHeader().withNullValue("\"\"");
+  // creates generators configured exactly as databind would use them for this schema
+  private static final ObjectWriter CSV_WRITER = CSV_MAPPER.writer(CSV_SCHEMA);
+  // the same, for every partition after the first one
+  private static final ObjectWriter CSV_WRITER_NO_HEADER =
+      CSV_MAPPER.writer(CSV_SCHEMA.withoutHeader());
+  private static final TestEventExportWriter CSV_ROW_WRITER =
+      TestEventExportWriter.forCsv(CSV_SCHEMA);
+  // every column but the one that depends on the day the document is rendered
+  private static final List<String> CHECKSUM_COLUMNS = checksumColumns();
+  // partitions smaller than this cost more to hand off than they save
+  static final int MIN_PARTITION_ROWS = 500;
+  // more partitions than threads, so that a slow partition does not hold up the whole pool
+  private static final int PARTITIONS_PER_THREAD = 4;
+
+  private final ForkJoinPool _pool;
+
+  /**
+   * @param renderThreads the number of threads to render large batches on; zero or less to always
+   *     render on the calling thread.
+   */
+  TestEventCsvRenderer(int renderThreads) {
+    _pool = renderThreads > 0 ? new ForkJoinPool(renderThreads) : null;
+  }
+
+  /** Render a complete CSV document, header included, for these export rows. */
+  String render(List<TestEventExportRecord> rows) throws IOException {
+    // the partitions only read the rows' exported values, never the entities they came from
+    if (_pool == null || rows.size() < 2 * MIN_PARTITION_ROWS) {
+      return renderPartition(rows, true);
+    }
+
+    int partitionCount = _pool.getParallelism() * PARTITIONS_PER_THREAD;
+    int partitionRows =
+        Math.max(MIN_PARTITION_ROWS, (rows.size() + partitionCount - 1) / partitionCount);
+    List<ForkJoinTask<String>> fragments = new ArrayList<>();
+    for (int firstRow = 0; firstRow < rows.size(); firstRow += partitionRows) {
+      List<TestEventExportRecord> partition =
+          rows.subList(firstRow, Math.min(firstRow + partitionRows, rows.size()));
+      boolean withHeader = firstRow == 0;
+      fragments.add(_pool.submit(() -> renderPartition(partition, withHeader)));
+    }
+    StringBuilder csv = new StringBuilder();
+    for (ForkJoinTask<String> fragment : fragments) {
+      // rethrows anything thrown by the partition (wrapped, if it was an IOException)
+      csv.append(fragment.join());
+    }
+    return csv.toString();
+  }
+
+  /**
+   * A SHA-256 digest, in hex, of the values these rows export. Unlike the rendered document, it
+   * leaves out {@link TestEventExport#DATE_RESULT_RELEASED}, so the same rows have the same
+   * checksum whatever day they are rendered on.
+   */
+  String checksum(List<TestEventExportRecord> rows) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    for (TestEventExportRecord row : rows) {
+      Map<String, String> values = row.getExportValues();
+      for (String column : CHECKSUM_COLUMNS) {
+        String value = values.get(column);
+        // each value is preceded by its length (or -1 for null), so no two rows digest the same
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        digest.update(
+            ByteBuffer.allocate(Integer.BYTES).putInt(value == null ? -1 : bytes.length).array());
+        digest.update(bytes);
+      }
+    }
+    return String.format("%064x", new BigInteger(1, digest.digest()));
+  }
+
+  /** Stop the render threads, if there are any; the renderer cannot render in parallel after. */
+  @Override
+  public void close() {
+    if (_pool != null) {
+      _pool.shutdown();
+    }
+  }
+
+  /** A generator that writes the header line, followed by whatever rows are written to it. */
+  JsonGenerator createGenerator(OutputStream out) throws IOException {
+    return CSV_WRITER.createGenerator(out);
+  }
+
+  /** Write one row of the document to a generator from {@link #createGenerator}. */
+  void writeRow(JsonGenerator gen, TestEventExportRecord row) throws IOException {
+    CSV_ROW_WRITER.write(gen, row.getExportValues());
+  }
+
+  private static String renderPartition(List<TestEventExportRecord> rows, boolean withHeader)
+      throws IOException {
+    StringWriter contents = new StringWriter();
+    ObjectWriter writer = withHeader ? CSV_WRITER : CSV_WRITER_NO_HEADER;
+    try (JsonGenerator gen = writer.createGenerator(contents)) {
+      // the same shape databind would write for a List<TestEventExport>
+      gen.writeStartArray();
+      for (TestEventExportRecord row : rows) {
+        CSV_ROW_WRITER.write(gen, row.getExportValues());
+      }
+      gen.writeEndArray();
+    }
+    return contents.toString();
+  }
+
+  private static List<String> checksumColumns() {
+    List<String> columns = new ArrayList<>();
+    for (CsvSchema.Column column : CSV_SCHEMA) {
+      if (!TestEventExport.DATE_RESULT_RELEASED.equals(column.getName())) {
+        columns.add(column.getName());
+      }
+    }
+    return columns;
+  }
+
+  private static CsvMapper csvMapper() {
+    CsvMapper mapper = new CsvMapper();
+    mapper
+        .enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING)
+        .enable(CsvGenerator.Feature.ALWAYS_QUOTE_STRINGS)
+        .enable(CsvGenerator.Feature.ALWAYS_QUOTE_EMPTY_STRINGS);
+    return mapper;
+  }
+}
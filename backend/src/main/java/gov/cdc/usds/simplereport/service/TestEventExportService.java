@@ -0,0 +1,74 @@
+package gov.cdc.usds.simplereport.service;
+
+import gov.cdc.usds.simplereport.api.model.TestEventExport;
+import gov.cdc.usds.simplereport.api.model.TestEventExportWriter;
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import gov.cdc.usds.simplereport.db.repository.TestEventRepository;
+import java.util.Date;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service to write the {@link TestEventExportRecord} for each {@link TestEvent}: the flattened row
+ * the event is exported as, which the DataHub uploader and the reporting queue read instead of
+ * deriving it from the event every time it is sent.
+ */
+@Service
+@Transactional(readOnly = true)
+public class TestEventExportService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TestEventExportService.class);
+
+  private final TestEventRepository _testEventRepo;
+
+  @PersistenceContext private EntityManager _entityManager;
+
+  public TestEventExportService(TestEventRepository testEventRepo) {
+    _testEventRepo = testEventRepo;
+  }
+
+  /** The export row for a test event, without saving it. */
+  public TestEventExportRecord toRecord(TestEvent event) {
+    return new TestEventExportRecord(
+        event, TestEventExportWriter.toValues(new TestEventExport(event)));
+  }
+
+  /**
+   * Write the export row for a test event that has just been saved, as part of the transaction that
+   * saved it.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public TestEventExportRecord recordExport(TestEvent event) {
+    TestEventExportRecord exportRecord = toRecord(event);
+    // the key is the event's, so this can only ever be a new row: no need to check for one first
+    _entityManager.persist(exportRecord);
+    return exportRecord;
+  }
+
+  /**
+   * Write the missing export rows for (at most batchSize of) the oldest test events created no
+   * later than the cutoff, in a transaction of their own.
+   *
+   * @return the number of rows written, which is less than batchSize once there are none left.
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public int backfillExportRecords(Date cutoff, int batchSize) {
+    List<TestEvent> events =
+        _testEventRepo.findWithoutExportRecord(cutoff, PageRequest.of(0, batchSize));
+    for (TestEvent event : events) {
+      _entityManager.persist(toRecord(event));
+    }
+    if (!events.isEmpty()) {
+      LOG.info("Backfilled the export rows of {} test events.", events.size());
+    }
+    return events.size();
+  }
+}
@@ -0,0 +1,119 @@
+package gov.cdc.usds.simplereport.service;
+
+import com.azure.storage.queue.QueueAsyncClient;
+import com.azure.storage.queue.models.SendMessageResult;
+import gov.cdc.usds.simplereport.db.model.TestEventOutboxEntry;
+import gov.cdc.usds.simplereport.db.model.TestEventQueueMessage;
+import gov.cdc.usds.simplereport.db.repository.TestEventOutboxRepository;
+import gov.cdc.usds.simplereport.db.repository.TestEventQueueMessageRepository;
+import gov.cdc.usds.simplereport.properties.AzureStorageQueueReportingProperties;
+import gov.cdc.usds.simplereport.utils.RetryBackoff;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Delivers the messages in the reporting outbox (see {@link OutboxTestEventReportingService}) to
+ * the queue, one batch per transaction. Only one relay runs at a time across all instances of the
+ * application, and the entries of a batch are locked while it is being delivered, so the entries
+ * that are reported as delivered elsewhere in the meantime are simply skipped.
+ *
+ * <p>An entry is deleted once the queue has accepted its message. An entry whose message is not
+ * accepted is tried again later, backing off exponentially. Delivery is at least once: if the
+ * transaction fails to commit after the queue accepted a message, the message is sent again.
+ */
+@Service
+@ConditionalOnProperty("simple-report.azure-reporting-queue.use-outbox")
+@Transactional
+public class TestEventOutboxRelay {
+  private static final Logger LOG = LoggerFactory.getLogger(TestEventOutboxRelay.class);
+  // ten seconds before the first retry of a message, doubling up to an hour
+  static final RetryBackoff RETRY_BACKOFF =
+      new RetryBackoff(Duration.ofSeconds(10), Duration.ofHours(1));
+
+  private final TestEventOutboxRepository _outboxRepo;
+  private final TestEventQueueMessageRepository _messageRepo;
+  private final QueueAsyncClient _queueClient;
+  private final int _batchSize;
+
+  public TestEventOutboxRelay(
+      TestEventOutboxRepository outboxRepo,
+      TestEventQueueMessageRepository messageRepo,
+      QueueAsyncClient queueClient,
+      AzureStorageQueueReportingProperties properties) {
+    _outboxRepo = outboxRepo;
+    _messageRepo = messageRepo;
+    _queueClient = queueClient;
+    _batchSize = properties.getOutboxBatchSize();
+  }
+
+  @Scheduled(fixedDelayString = "${simple-report.azure-reporting-queue.outbox-relay-delay:PT5S}")
+  public void relayDueMessages() {
+    // take the advisory lock for this process. auto released after transaction
+    if (!_outboxRepo.tryRelayLock()) {
+      LOG.debug("Outbox relay locked out by mutex: skipping this run");
+      return;
+    }
+
+    Date now = new Date();
+    List<TestEventOutboxEntry> due = _outboxRepo.lockDueEntries(now, _batchSize);
+    if (due.isEmpty()) {
+      return;
+    }
+
+    // send the whole batch at once, then find out how each message fared
+    List<CompletableFuture<SendMessageResult>> deliveries = new ArrayList<>();
+    for (TestEventOutboxEntry entry : due) {
+      deliveries.add(send(entry.getMessage()));
+    }
+    int delivered = 0;
+    for (int i = 0; i < due.size(); i++) {
+      TestEventOutboxEntry entry = due.get(i);
+      try {
+        SendMessageResult sent = deliveries.get(i).join();
+        _outboxRepo.delete(entry);
+        recordMessage(entry.getTestEventId(), sent);
+        delivered++;
+      } catch (CompletionException e) {
+        Date retryAt =
+            Date.from(now.toInstant().plus(RETRY_BACKOFF.delay(entry.getAttempts() + 1)));
+        entry.markFailed(String.valueOf(e.getCause()), retryAt);
+        _outboxRepo.save(entry);
+        LOG.warn(
+            "Unable to deliver TestEvent [{}] to the queue (attempt {}), retrying at {}",
+            entry.getTestEventId(),
+            entry.getAttempts(),
+            retryAt);
+      }
+    }
+    LOG.info("Delivered {} of {} due outbox messages to the queue", delivered, due.size());
+  }
+
+  private CompletableFuture<SendMessageResult> send(String message) {
+    try {
+      return _queueClient.sendMessage(message).toFuture();
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  // the message is on the queue either way: without this it just has to be found the slow way
+  private void recordMessage(UUID testEventId, SendMessageResult sent) {
+    try {
+      _messageRepo.save(
+          new TestEventQueueMessage(testEventId, sent.getMessageId(), sent.getPopReceipt()));
+    } catch (RuntimeException e) {
+      LOG.warn("Unable to record the queue message sent for TestEvent [{}]", testEventId, e);
+    }
+  }
+}
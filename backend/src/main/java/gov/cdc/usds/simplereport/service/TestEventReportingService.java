@@ -1,9 +1,12 @@
 package gov.cdc.usds.simplereport.service;
 
 import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /** A service that dispatches TestEvents to the appropriate reporting vehicle. */
 public interface TestEventReportingService {
@@ -24,8 +27,40 @@ public interface TestEventReportingService {
    * @throws RuntimeException if the event was not successfully delivered to the reporting vehicle.
    */
   default void report(TestEvent testEvent) {
+    join(reportAsync(testEvent));
+  }
+
+  /**
+   * Like {@link #reportAsync(TestEvent)}, for an event whose export row has already been written:
+   * the row is reported as it was recorded, rather than being derived from the event again.
+   *
+   * @param exportRecord The export row of the test event to report
+   * @return A future that resolves to null if the event was successfully delivered to the reporting
+   *     vehicle. If delivery was not successful, the future will complete exceptionally.
+   */
+  CompletableFuture<Void> reportAsync(TestEventExportRecord exportRecord);
+
+  /**
+   * Like {@link #reportAsync(TestEventExportRecord)} but synchronous.
+   *
+   * @throws RuntimeException if the event was not successfully delivered to the reporting vehicle.
+   */
+  default void report(TestEventExportRecord exportRecord) {
+    join(reportAsync(exportRecord));
+  }
+
+  /**
+   * Whether {@link #reportAsync(TestEventExportRecord)} only writes to the database, in the
+   * caller's transaction, so that it can be called before that transaction commits rather than
+   * after (see {@link AfterCommitTestEventReporter}).
+   */
+  default boolean reportsInTransaction() {
+    return false;
+  }
+
+  private static void join(CompletableFuture<Void> delivery) {
     try {
-      reportAsync(testEvent).join();
+      delivery.join();
     } catch (CompletionException e) {
       var cause = e.getCause();
       if (cause instanceof RuntimeException) {
@@ -42,5 +77,16 @@ public interface TestEventReportingService {
    *
    * @param testEvents The {@link TestEvent}s to mark as already reported.
    */
-  void markTestEventsAsReported(Set<TestEvent> testEvents);
+  default void markTestEventsAsReported(Set<TestEvent> testEvents) {
+    markTestEventIdsAsReported(
+        testEvents.stream().map(TestEvent::getInternalId).collect(Collectors.toSet()));
+  }
+
+  /**
+   * Like {@link #markTestEventsAsReported(Set)}, but for callers that only kept the internal IDs
+   * of the events they reported (for instance, because the events themselves were streamed).
+   *
+   * @param testEventIds The internal IDs of the {@link TestEvent}s to mark as already reported.
+   */
+  void markTestEventIdsAsReported(Set<UUID> testEventIds);
 }
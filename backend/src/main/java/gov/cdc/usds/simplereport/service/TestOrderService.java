@@ -1,10 +1,13 @@
 package gov.cdc.usds.simplereport.service;
 
-import com.google.i18n.phonenumbers.NumberParseException;
-import com.twilio.exception.ApiException;
-import com.twilio.exception.TwilioException;
+import gov.cdc.usds.simplereport.api.model.AddPatientToQueueItemResponse;
 import gov.cdc.usds.simplereport.api.model.AddTestResultResponse;
+import gov.cdc.usds.simplereport.api.model.AddTestResultsItemResponse;
+import gov.cdc.usds.simplereport.api.model.ApiTestOrder;
+import gov.cdc.usds.simplereport.api.model.QueueSnapshot;
+import gov.cdc.usds.simplereport.api.model.TestResultInput;
 import gov.cdc.usds.simplereport.api.model.errors.IllegalGraphqlArgumentException;
+import gov.cdc.usds.simplereport.api.model.errors.MisconfiguredUserException;
 import gov.cdc.usds.simplereport.api.pxp.CurrentPatientContextHolder;
 import gov.cdc.usds.simplereport.config.AuthorizationConfiguration;
 import gov.cdc.usds.simplereport.db.model.AuditedEntity_;
@@ -14,9 +17,11 @@ import gov.cdc.usds.simplereport.db.model.Facility;
 import gov.cdc.usds.simplereport.db.model.Organization;
 import gov.cdc.usds.simplereport.db.model.PatientAnswers;
 import gov.cdc.usds.simplereport.db.model.PatientLink;
+import gov.cdc.usds.simplereport.db.model.PatientPreferences;
 import gov.cdc.usds.simplereport.db.model.Person;
 import gov.cdc.usds.simplereport.db.model.Person_;
 import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
 import gov.cdc.usds.simplereport.db.model.TestEvent_;
 import gov.cdc.usds.simplereport.db.model.TestOrder;
 import gov.cdc.usds.simplereport.db.model.TestOrder_;
@@ -28,22 +33,37 @@ import gov.cdc.usds.simplereport.db.model.auxiliary.TestResultDeliveryPreference
 import gov.cdc.usds.simplereport.db.repository.PatientAnswersRepository;
 import gov.cdc.usds.simplereport.db.repository.TestEventRepository;
 import gov.cdc.usds.simplereport.db.repository.TestOrderRepository;
+import gov.cdc.usds.simplereport.service.model.OrganizationRoles;
+import gov.cdc.usds.simplereport.service.model.QueueChangeType;
 import gov.cdc.usds.simplereport.service.sms.SmsService;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import javax.persistence.criteria.Root;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -63,8 +83,20 @@ public class TestOrderService {
   private PatientLinkService _pls;
   private SmsService _smss;
   private final CurrentPatientContextHolder _patientContext;
-  private static final Logger LOG = LoggerFactory.getLogger(TestOrderService.class);
-  private final TestEventReportingService _testEventReportingService;
+  private static final String NO_ACTIVE_ORDER = "No active test order was found for that patient";
+  private static final String NO_DEVICE_SPECIMEN = "Device is not configured with a specimen type";
+  private static final String NO_SUCH_PATIENT = "No patient with that ID was found";
+  private static final String ALREADY_QUEUED =
+      "Cannot create multiple queue entries for the same patient";
+  private static final String INCOMPATIBLE_FACILITY =
+      "Cannot add patient to this queue: patient's facility and/or organization "
+          + "are incompatible with facility of queue";
+  private final AfterCommitTestEventReporter _testEventReporter;
+  private final TestEventExportService _testEventExportService;
+  private final QueueVersionService _queueVersions;
+  private final QueueChangeService _queueChanges;
+  private final TestResultCountCache _resultCounts;
+  private final TestResultRollupService _resultRollup;
 
   @PersistenceContext EntityManager _entityManager;
 
@@ -73,6 +105,9 @@ public class TestOrderService {
 
   public static final int DEFAULT_PAGINATION_PAGEOFFSET = 0;
   public static final int DEFAULT_PAGINATION_PAGESIZE = 5000;
+  // for keyset pagination, where callers ask for a page at a time rather than everything at once
+  public static final int DEFAULT_CONNECTION_PAGESIZE = 20;
+  public static final int MAX_CONNECTION_PAGESIZE = 100;
 
   public static final String MISSING_ARG = "Must provide either facility ID or patient ID";
 
@@ -86,7 +121,12 @@ public class TestOrderService {
       PatientLinkService pls,
       SmsService smss,
       CurrentPatientContextHolder patientContext,
-      TestEventReportingService testEventReportingService) {
+      AfterCommitTestEventReporter testEventReporter,
+      TestEventExportService testEventExportService,
+      QueueVersionService queueVersions,
+      QueueChangeService queueChanges,
+      TestResultCountCache resultCounts,
+      TestResultRollupService resultRollup) {
     _patientContext = patientContext;
     _os = os;
     _ps = ps;
@@ -96,7 +136,12 @@ public class TestOrderService {
     _terepo = terepo;
     _pls = pls;
     _smss = smss;
-    _testEventReportingService = testEventReportingService;
+    _testEventReporter = testEventReporter;
+    _testEventExportService = testEventExportService;
+    _queueVersions = queueVersions;
+    _queueChanges = queueChanges;
+    _resultCounts = resultCounts;
+    _resultRollup = resultRollup;
   }
 
   @AuthorizationConfiguration.RequirePermissionStartTestAtFacility
@@ -105,6 +150,42 @@ public class TestOrderService {
     return _repo.fetchQueue(fac.getOrganization(), fac);
   }
 
+  /**
+   * The queue for a facility, unless the caller already has its current version (as returned by an
+   * earlier call), in which case the queue is not fetched at all.
+   */
+  @Transactional(readOnly = true)
+  @AuthorizationConfiguration.RequirePermissionStartTestAtFacility
+  public QueueSnapshot getQueueSnapshot(UUID facilityId, Long sinceVersion) {
+    // read the version first: anything that changes while the queue is fetched makes a newer one
+    long version = _queueVersions.currentVersion(facilityId);
+    if (sinceVersion != null && sinceVersion == version) {
+      return QueueSnapshot.unchanged(version);
+    }
+    Facility fac = _os.getFacilityInCurrentOrg(facilityId);
+    return new QueueSnapshot(version, _repo.fetchQueue(fac.getOrganization(), fac));
+  }
+
+  /**
+   * A test order that is still in the queue, with everything the queue shows about it loaded, for
+   * announcing a change to it to the subscribers of its facility's queue: those subscribers were
+   * authorized for that facility when they subscribed, so no further check is made here.
+   */
+  @Transactional(readOnly = true)
+  public Optional<ApiTestOrder> getQueueItemForSubscribers(UUID testOrderId) {
+    return _repo
+        .fetchQueueItemById(testOrderId)
+        .map(
+            order -> {
+              // subscribers read these after this transaction (and its session) is long gone
+              Hibernate.initialize(order.getPatient());
+              Hibernate.initialize(order.getPatient().getPhoneNumbers());
+              Hibernate.initialize(order.getDeviceType());
+              Hibernate.initialize(order.getPatientLink());
+              return new ApiTestOrder(order);
+            });
+  }
+
   // Specifications filters for queries
   private Specification<TestEvent> buildTestEventSearchFilter(
       UUID facilityId,
@@ -143,34 +224,26 @@ public class TestOrderService {
         p = cb.and(p, cb.equal(root.get(BaseTestInfo_.patient).get(Person_.role), role));
       }
       if (startDate != null) {
-        p =
-            cb.and(
-                p,
-                cb.or(
-                    cb.and(
-                        cb.isNotNull(root.get(BaseTestInfo_.dateTestedBackdate)),
-                        cb.greaterThanOrEqualTo(
-                            root.get(BaseTestInfo_.dateTestedBackdate), startDate)),
-                    cb.and(
-                        cb.isNull(root.get(BaseTestInfo_.dateTestedBackdate)),
-                        cb.greaterThanOrEqualTo(root.get(AuditedEntity_.createdAt), startDate))));
+        p = cb.and(p, cb.greaterThanOrEqualTo(dateTested(root, cb), startDate));
       }
       if (endDate != null) {
-        p =
-            cb.and(
-                p,
-                cb.or(
-                    cb.and(
-                        cb.isNotNull(root.get(BaseTestInfo_.dateTestedBackdate)),
-                        cb.lessThanOrEqualTo(root.get(BaseTestInfo_.dateTestedBackdate), endDate)),
-                    cb.and(
-                        cb.isNull(root.get(BaseTestInfo_.dateTestedBackdate)),
-                        cb.lessThanOrEqualTo(root.get(AuditedEntity_.createdAt), endDate))));
+        p = cb.and(p, cb.lessThanOrEqualTo(dateTested(root, cb), endDate));
       }
       return p;
     };
   }
 
+  /**
+   * When a test was done: its backdate if it has one, and when it was recorded if not. This is
+   * exactly the expression that test_event is indexed on, for each facility and each patient, so it
+   * must not be written any other way (for instance as an OR of the two cases) in queries that
+   * filter or sort on it.
+   */
+  private static Expression<Date> dateTested(Root<TestEvent> root, CriteriaBuilder cb) {
+    return cb.coalesce(
+        root.get(BaseTestInfo_.dateTestedBackdate), root.get(AuditedEntity_.createdAt));
+  }
+
   @Transactional(readOnly = true)
   @AuthorizationConfiguration.RequirePermissionReadResultListAtFacility
   public List<TestEvent> getTestEventsResults(
@@ -182,13 +255,103 @@ public class TestOrderService {
       Date endDate,
       int pageOffset,
       int pageSize) {
-    return _terepo
-        .findAll(
+    return findTestEvents(
+        buildTestEventSearchFilter(facilityId, patientId, result, role, startDate, endDate),
+        PageRequest.of(pageOffset, pageSize));
+  }
+
+  /**
+   * Get a page of the test results matching these filters, with the number of them in all: the
+   * same results as {@link #getTestEventsResults}, and the same count as {@link
+   * #getTestResultsCount}, together. The count is only needed (and so only looked up) if this page
+   * is full, because otherwise this page says where the results end.
+   */
+  @Transactional(readOnly = true)
+  @AuthorizationConfiguration.RequirePermissionReadResultListAtFacility
+  public Page<TestEvent> getTestEventsResultsPage(
+      UUID facilityId,
+      UUID patientId,
+      TestResult result,
+      PersonRole role,
+      Date startDate,
+      Date endDate,
+      int pageOffset,
+      int pageSize) {
+    Pageable pageable = PageRequest.of(pageOffset, pageSize);
+    return PageableExecutionUtils.getPage(
+        findTestEvents(
             buildTestEventSearchFilter(facilityId, patientId, result, role, startDate, endDate),
-            PageRequest.of(pageOffset, pageSize))
-        .toList();
+            pageable),
+        pageable,
+        () -> getTestResultsCount(facilityId, patientId, result, role, startDate, endDate));
+  }
+
+  /**
+   * Like {@link TestEventRepository#findAll(Specification, Pageable)}, but without counting every
+   * matching result as well, which that does whenever the page is full.
+   */
+  private List<TestEvent> findTestEvents(Specification<TestEvent> filter, Pageable pageable) {
+    CriteriaBuilder cb = _entityManager.getCriteriaBuilder();
+    CriteriaQuery<TestEvent> query = cb.createQuery(TestEvent.class);
+    Root<TestEvent> root = query.from(TestEvent.class);
+    query.select(root).where(filter.toPredicate(root, query, cb));
+    return _entityManager
+        .createQuery(query)
+        .setFirstResult((int) pageable.getOffset())
+        .setMaxResults(pageable.getPageSize())
+        .getResultList();
   }
 
+  /**
+   * Get the test results matching these filters, newest first, that come after the given position:
+   * that is, that were tested before {@code afterDateTested}, or at the same time but have a lower
+   * ID than {@code afterId}. Unlike {@link #getTestEventsResults}, this costs the same however deep
+   * into the results the position is, because there is no offset for the database to skip over.
+   *
+   * @param afterDateTested the date tested of the last result already seen, or null to start from
+   *     the newest result.
+   * @param afterId the ID of the last result already seen, or null to start from the newest result.
+   * @param limit the maximum number of results to return.
+   */
+  @Transactional(readOnly = true)
+  @AuthorizationConfiguration.RequirePermissionReadResultListAtFacility
+  public List<TestEvent> getTestEventsResultsAfter(
+      UUID facilityId,
+      UUID patientId,
+      TestResult result,
+      PersonRole role,
+      Date startDate,
+      Date endDate,
+      Date afterDateTested,
+      UUID afterId,
+      int limit) {
+    CriteriaBuilder cb = _entityManager.getCriteriaBuilder();
+    CriteriaQuery<TestEvent> query = cb.createQuery(TestEvent.class);
+    Root<TestEvent> root = query.from(TestEvent.class);
+    Predicate p =
+        buildTestEventSearchFilter(facilityId, patientId, result, role, startDate, endDate)
+            .toPredicate(root, query, cb);
+    Expression<Date> dateTested = dateTested(root, cb);
+    Path<UUID> internalId = root.get(AuditedEntity_.internalId);
+    if (afterDateTested != null && afterId != null) {
+      p =
+          cb.and(
+              p,
+              cb.or(
+                  cb.lessThan(dateTested, afterDateTested),
+                  cb.and(
+                      cb.equal(dateTested, afterDateTested), cb.lessThan(internalId, afterId))));
+    }
+    // replaces the search filter's ordering, which is not unique and so cannot be paged through
+    query.select(root).where(p).orderBy(cb.desc(dateTested), cb.desc(internalId));
+    return _entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+
+  /**
+   * Count the test results matching these filters. Counts of a facility's results are cached for a
+   * short while (see {@link TestResultCountCache}), since the results list asks for the same count
+   * again and again as it is paged through.
+   */
   @Transactional(readOnly = true)
   public int getTestResultsCount(
       UUID facilityId,
@@ -197,9 +360,15 @@ public class TestOrderService {
       PersonRole role,
       Date startDate,
       Date endDate) {
-    return (int)
-        _terepo.count(
-            buildTestEventSearchFilter(facilityId, patientId, result, role, startDate, endDate));
+    Specification<TestEvent> filter =
+        buildTestEventSearchFilter(facilityId, patientId, result, role, startDate, endDate);
+    if (facilityId == null) {
+      return (int) _terepo.count(filter);
+    }
+    return _resultCounts.getCount(
+        facilityId,
+        Arrays.asList(patientId, result, role, startDate, endDate),
+        () -> (int) _terepo.count(filter));
   }
 
   @Transactional(readOnly = true)
@@ -245,55 +414,173 @@ public class TestOrderService {
 
     order.setDateTestedBackdate(dateTested);
 
+    _queueChanges.queueChanged(order, QueueChangeType.UPDATED);
     return _repo.save(order);
   }
 
+  /**
+   * Record the result of a patient's test. A patient who asked for their result by text gets a new
+   * patient link, and a text message with it is queued in the SMS outbox, to be sent once this
+   * result has been committed.
+   */
   @AuthorizationConfiguration.RequirePermissionSubmitTestForPatient
   @Deprecated // switch to using device specimen ID, using methods that ... don't exist yet!
-  @Transactional(noRollbackFor = {TwilioException.class, ApiException.class})
   public AddTestResultResponse addTestResult(
       String deviceID, TestResult result, UUID patientId, Date dateTested) {
     DeviceSpecimenType deviceSpecimen = _dts.getDefaultForDeviceId(deviceID);
     Organization org = _os.getCurrentOrganization();
-    Person person = _ps.getPatientNoPermissionsCheck(patientId, org);
+    // the patient and everything else the result needs come along with the order
     TestOrder order =
-        _repo.fetchQueueItem(org, person).orElseThrow(TestOrderService::noSuchOrderFound);
+        _repo.fetchQueueItemsForPatients(org, List.of(patientId)).stream()
+            .findFirst()
+            .orElseThrow(TestOrderService::noSuchOrderFound);
     order.setDeviceSpecimen(deviceSpecimen);
     order.setResult(result);
     order.setDateTestedBackdate(dateTested);
     order.markComplete();
-
     TestEvent testEvent = new TestEvent(order);
-    _terepo.save(testEvent);
-
     order.setTestEventRef(testEvent);
-    TestOrder savedOrder = _repo.save(order);
 
-    _testEventReportingService.report(testEvent);
+    return new AddTestResultResponse(
+        order, recordResults(List.of(order), List.of(testEvent)).get(patientId));
+  }
 
-    if (TestResultDeliveryPreference.SMS
-        == _ps.getPatientPreferences(person).getTestResultDelivery()) {
-      // After adding test result, create a new patient link and text it to the
-      // patient
-      PatientLink patientLink = _pls.createPatientLink(savedOrder.getInternalId());
-      UUID internalId = patientLink.getInternalId();
-      savedOrder.setPatientLink(patientLink);
+  /**
+   * Record the results of many tests at once, for testing events where results come in by the
+   * hundred. Everything the results need is looked up together, rather than one result at a time,
+   * and the new test events are reported without waiting for them to be delivered. The results are
+   * recorded independently of one another: each one either completes its patient's test order or
+   * says why it could not.
+   *
+   * <p>Patients who asked for their results by text get a new patient link, and a text message
+   * with it is queued in the SMS outbox, to be sent once these results have been committed.
+   */
+  @AuthorizationConfiguration.RequirePermissionSubmitTest
+  public List<AddTestResultsItemResponse> addTestResults(List<TestResultInput> results) {
+    OrganizationRoles orgRoles =
+        _os.getCurrentOrganizationRoles().orElseThrow(MisconfiguredUserException::new);
+    Organization org = orgRoles.getOrganization();
+    Set<UUID> deviceIds = new HashSet<>();
+    for (TestResultInput result : results) {
+      parseDeviceId(result.getDeviceId()).ifPresent(deviceIds::add);
+    }
+    Map<UUID, DeviceSpecimenType> devices = _dts.getDefaultsForDeviceIds(deviceIds);
+    Map<UUID, TestOrder> orders =
+        _repo
+            .fetchQueueItemsForPatients(
+                org,
+                results.stream().map(TestResultInput::getPatientId).collect(Collectors.toSet()))
+            .stream()
+            .filter(o -> orgRoles.containsFacility(o.getFacility()))
+            .collect(Collectors.toMap(o -> o.getPatient().getInternalId(), o -> o, (a, b) -> a));
+
+    List<AddTestResultsItemResponse> responses = new ArrayList<>();
+    List<TestOrder> completed = new ArrayList<>();
+    List<TestEvent> testEvents = new ArrayList<>();
+    for (TestResultInput result : results) {
+      UUID patientId = result.getPatientId();
+      DeviceSpecimenType deviceSpecimen =
+          parseDeviceId(result.getDeviceId()).map(devices::get).orElse(null);
+      if (deviceSpecimen == null) {
+        responses.add(AddTestResultsItemResponse.failed(patientId, NO_DEVICE_SPECIMEN));
+        continue;
+      }
+      TestResult testResult;
       try {
-        _smss.sendToPatientLink(
-            internalId,
-            "Your Covid-19 test result is ready to view: " + patientLinkUrl + internalId);
-
-        return new AddTestResultResponse(savedOrder, true);
-      } catch (NumberParseException npe) {
-        LOG.warn("Failed to parse phone number for patient={}", person.getInternalId());
-        return new AddTestResultResponse(savedOrder, false);
-      } catch (TwilioException e) {
-        LOG.warn("Failed to send text message to patient={}", person.getInternalId());
-        return new AddTestResultResponse(savedOrder, false);
+        testResult = TestResult.valueOf(result.getResult());
+      } catch (IllegalArgumentException e) {
+        responses.add(AddTestResultsItemResponse.failed(patientId, "Invalid test result"));
+        continue;
+      }
+      // removing the order means a second result for the same patient finds nothing to complete
+      TestOrder order = orders.remove(patientId);
+      if (order == null) {
+        responses.add(AddTestResultsItemResponse.failed(patientId, NO_ACTIVE_ORDER));
+        continue;
+      }
+      order.setDeviceSpecimen(deviceSpecimen);
+      order.setResult(testResult);
+      order.setDateTestedBackdate(result.getDateTested());
+      order.markComplete();
+      TestEvent testEvent = new TestEvent(order);
+      order.setTestEventRef(testEvent);
+      completed.add(order);
+      testEvents.add(testEvent);
+      responses.add(AddTestResultsItemResponse.recorded(order));
+    }
+    if (completed.isEmpty()) {
+      return responses;
+    }
+
+    Map<UUID, Boolean> queued = recordResults(completed, testEvents);
+    for (AddTestResultsItemResponse response : responses) {
+      if (response.getError() == null) {
+        response.setDeliverySuccess(queued.get(response.getPatientId()));
       }
     }
+    return responses;
+  }
 
-    return new AddTestResultResponse(savedOrder);
+  /**
+   * Write out these completed test orders and their new test events, count the new results in the
+   * daily rollup, and report the events. The inserts and updates all go out in JDBC batches, and
+   * nothing here waits on anything outside the database: the texts to patients who asked for their
+   * results by text are only queued, in the same transaction as the results.
+   *
+   * @return whether a text was queued for each patient who asked for their result by text, by
+   *     patient ID.
+   */
+  private Map<UUID, Boolean> recordResults(
+      List<TestOrder> completed, List<TestEvent> testEvents) {
+    _terepo.saveAll(testEvents);
+    _resultCounts.resultsRecorded(
+        testEvents.stream().map(e -> e.getFacility().getInternalId()).collect(Collectors.toSet()));
+    _resultRollup.resultsRecorded(testEvents);
+    List<TestEventExportRecord> exportRecords =
+        testEvents.stream()
+            .map(_testEventExportService::recordExport)
+            .collect(Collectors.toList());
+    _repo.saveAll(completed);
+    _queueChanges.queueChanged(completed, QueueChangeType.REMOVED);
+
+    // nothing is sent for results that are rolled back
+    exportRecords.forEach(_testEventReporter::reportOnCommit);
+
+    Map<UUID, PatientPreferences> preferences =
+        _ps.getPatientPreferences(
+            completed.stream().map(TestOrder::getPatient).collect(Collectors.toList()));
+    List<TestOrder> texted =
+        completed.stream()
+            .filter(
+                o ->
+                    TestResultDeliveryPreference.SMS
+                        == preferences.get(o.getPatient().getInternalId()).getTestResultDelivery())
+            .collect(Collectors.toList());
+    Map<UUID, UUID> linkPatients = new HashMap<>();
+    Map<UUID, String> texts = new HashMap<>();
+    for (PatientLink patientLink : _pls.createPatientLinks(texted)) {
+      patientLink.getTestOrder().setPatientLink(patientLink);
+      UUID internalId = patientLink.getInternalId();
+      linkPatients.put(internalId, patientLink.getTestOrder().getPatient().getInternalId());
+      texts.put(
+          internalId, "Your Covid-19 test result is ready to view: " + patientLinkUrl + internalId);
+    }
+    if (texts.isEmpty()) {
+      return Map.of();
+    }
+    Map<UUID, Boolean> queued = new HashMap<>();
+    _smss
+        .sendToPatientLinks(texts)
+        .forEach((linkId, success) -> queued.put(linkPatients.get(linkId), success));
+    return queued;
+  }
+
+  private static Optional<UUID> parseDeviceId(String deviceId) {
+    try {
+      return Optional.of(UUID.fromString(deviceId));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
   }
 
   @AuthorizationConfiguration.RequirePermissionStartTestAtFacility
@@ -316,8 +603,7 @@ public class TestOrderService {
     // an exception either way)
     Optional<TestOrder> existingOrder = _repo.fetchQueueItem(_os.getCurrentOrganization(), patient);
     if (existingOrder.isPresent()) {
-      throw new IllegalGraphqlArgumentException(
-          "Cannot create multiple queue entries for the same patient");
+      throw new IllegalGraphqlArgumentException(ALREADY_QUEUED);
     }
     Facility testFacility = _os.getFacilityInCurrentOrg(facilityId);
     if (!patient
@@ -326,9 +612,7 @@ public class TestOrderService {
             .equals(testFacility.getOrganization().getInternalId())
         || (patient.getFacility() != null
             && !patient.getFacility().getInternalId().equals(facilityId))) {
-      throw new IllegalGraphqlArgumentException(
-          "Cannot add patient to this queue: patient's facility and/or organization "
-              + "are incompatible with facility of queue");
+      throw new IllegalGraphqlArgumentException(INCOMPATIBLE_FACILITY);
     }
     TestOrder newOrder = new TestOrder(patient, testFacility);
 
@@ -348,9 +632,65 @@ public class TestOrderService {
     TestOrder savedOrder = _repo.save(newOrder);
     PatientLink patientLink = _pls.createPatientLink(savedOrder.getInternalId());
     savedOrder.setPatientLink(patientLink);
+    _queueChanges.queueChanged(savedOrder, QueueChangeType.ADDED);
     return savedOrder;
   }
 
+  /**
+   * Like {@link #addPatientToQueue}, for many patients at once, each with their answers to the
+   * ask-on-entry questions, in the order given. The patients' existing test orders are all checked
+   * with one query, and the new answers, orders and patient links are written in JDBC batches. Each
+   * patient is added (or not) independently of the others.
+   */
+  @AuthorizationConfiguration.RequirePermissionStartTestAtFacility
+  public List<AddPatientToQueueItemResponse> addPatientsToQueue(
+      UUID facilityId, Map<UUID, AskOnEntrySurvey> surveysByPatientId) {
+    Facility testFacility = _os.getFacilityInCurrentOrg(facilityId);
+    Organization org = testFacility.getOrganization();
+    Map<UUID, Person> patients =
+        _ps.getPatientsNoPermissionsCheck(surveysByPatientId.keySet(), org).stream()
+            .collect(Collectors.toMap(Person::getInternalId, p -> p));
+    Set<UUID> alreadyQueued =
+        _repo.fetchQueueItemsForPatients(org, patients.keySet()).stream()
+            .map(o -> o.getPatient().getInternalId())
+            .collect(Collectors.toSet());
+
+    List<AddPatientToQueueItemResponse> responses = new ArrayList<>();
+    List<PatientAnswers> answers = new ArrayList<>();
+    List<TestOrder> newOrders = new ArrayList<>();
+    surveysByPatientId.forEach(
+        (patientId, survey) -> {
+          Person patient = patients.get(patientId);
+          if (patient == null) {
+            responses.add(AddPatientToQueueItemResponse.failed(patientId, NO_SUCH_PATIENT));
+          } else if (alreadyQueued.contains(patientId)) {
+            responses.add(AddPatientToQueueItemResponse.failed(patientId, ALREADY_QUEUED));
+          } else if (patient.getFacility() != null
+              && !patient.getFacility().getInternalId().equals(facilityId)) {
+            responses.add(AddPatientToQueueItemResponse.failed(patientId, INCOMPATIBLE_FACILITY));
+          } else {
+            PatientAnswers patientAnswers = new PatientAnswers(survey);
+            TestOrder newOrder = new TestOrder(patient, testFacility);
+            newOrder.setAskOnEntrySurvey(patientAnswers);
+            answers.add(patientAnswers);
+            newOrders.add(newOrder);
+            responses.add(AddPatientToQueueItemResponse.added(newOrder));
+          }
+        });
+    if (newOrders.isEmpty()) {
+      return responses;
+    }
+
+    // the inserts go out in JDBC batches, one per table, when the session is flushed
+    _parepo.saveAll(answers);
+    _repo.saveAll(newOrders);
+    for (PatientLink patientLink : _pls.createPatientLinks(newOrders)) {
+      patientLink.getTestOrder().setPatientLink(patientLink);
+    }
+    _queueChanges.queueChanged(newOrders, QueueChangeType.ADDED);
+    return responses;
+  }
+
   @AuthorizationConfiguration.RequirePermissionUpdateTestForPatient
   public void updateTimeOfTestQuestions(
       UUID patientId,
@@ -398,6 +738,7 @@ public class TestOrderService {
     survey.setPriorTestResult(priorTestResult);
     answers.setSurvey(survey);
     _parepo.save(answers);
+    _queueChanges.queueChanged(order, QueueChangeType.UPDATED);
   }
 
   @AuthorizationConfiguration.RequirePermissionUpdateTestForPatient
@@ -405,6 +746,7 @@ public class TestOrderService {
     TestOrder order = retrieveTestOrder(patientId);
     order.cancelOrder();
     _repo.save(order);
+    _queueChanges.queueChanged(order, QueueChangeType.REMOVED);
   }
 
   private TestOrder retrieveTestOrder(UUID patientId) {
@@ -443,6 +785,9 @@ public class TestOrderService {
     TestEvent newRemoveEvent =
         new TestEvent(event, TestCorrectionStatus.REMOVED, reasonForCorrection);
     _terepo.save(newRemoveEvent);
+    _resultCounts.resultsRecorded(List.of(newRemoveEvent.getFacility().getInternalId()));
+    _resultRollup.resultRemoved(event);
+    _testEventExportService.recordExport(newRemoveEvent);
 
     // order having reason text is way more useful when we allow actual corrections
     // not just
@@ -495,6 +840,6 @@ public class TestOrderService {
   }
 
   private static IllegalGraphqlArgumentException noSuchOrderFound() {
-    return new IllegalGraphqlArgumentException("No active test order was found for that patient");
+    return new IllegalGraphqlArgumentException(NO_ACTIVE_ORDER);
   }
 }
@@ -0,0 +1,85 @@
+package gov.cdc.usds.simplereport.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Remembers, for a short while, how many test results at a facility match each search, so that the
+ * results list (which asks for a page of results and for how many there are in all, and asks again
+ * for each page) only has the database count them once.
+ *
+ * <p>A facility's counts are forgotten as soon as a test result recorded there is committed.
+ * Results recorded by other instances of the application are not heard about, so each count is
+ * also only trusted for a limited time.
+ */
+@Service
+public class TestResultCountCache {
+
+  private final Map<UUID, Map<List<Object>, CachedCount>> _counts = new ConcurrentHashMap<>();
+  private final long _maxAgeMillis;
+
+  public TestResultCountCache(
+      @Value("${simple-report.test-result-count-max-age:PT30S}") Duration maxAge) {
+    _maxAgeMillis = maxAge.toMillis();
+  }
+
+  /**
+   * The number of results at this facility that match this search: the cached one, if it is recent
+   * enough, and otherwise a new one from {@code count}.
+   *
+   * @param search everything, besides the facility, that decides which results are counted.
+   */
+  public int getCount(UUID facilityId, List<Object> search, IntSupplier count) {
+    long now = System.currentTimeMillis();
+    // if the facility's counts are forgotten while this one is being counted, it goes into a map
+    // that nobody will read again, rather than being remembered when it may already be out of date
+    Map<List<Object>, CachedCount> counts =
+        _counts.computeIfAbsent(facilityId, id -> new ConcurrentHashMap<>());
+    counts.values().removeIf(cached -> now - cached.countedAt > _maxAgeMillis);
+    CachedCount cached = counts.get(search);
+    if (cached != null) {
+      return cached.count;
+    }
+    int counted = count.getAsInt();
+    counts.put(search, new CachedCount(counted, now));
+    return counted;
+  }
+
+  /**
+   * Record that test results have been recorded at these facilities. If there is a transaction in
+   * progress, their counts are forgotten once it commits: until then, a new count would not include
+   * the new results.
+   */
+  public void resultsRecorded(Collection<UUID> facilityIds) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              facilityIds.forEach(_counts::remove);
+            }
+          });
+    } else {
+      facilityIds.forEach(_counts::remove);
+    }
+  }
+
+  private static final class CachedCount {
+    private final int count;
+    private final long countedAt;
+
+    private CachedCount(int count, long countedAt) {
+      this.count = count;
+      this.countedAt = countedAt;
+    }
+  }
+}
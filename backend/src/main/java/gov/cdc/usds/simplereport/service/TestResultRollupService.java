@@ -0,0 +1,82 @@
+package gov.cdc.usds.simplereport.service;
+
+import gov.cdc.usds.simplereport.config.AuthorizationConfiguration;
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestResultDailyCount;
+import gov.cdc.usds.simplereport.db.repository.TestResultDailyCountRepository;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps the daily counts of test results at each facility (see {@link TestResultDailyCount}) up to
+ * date, in the same transaction as the results they count, and answers summaries of results from
+ * them.
+ *
+ * <p>A result is counted on the day it was tested, as the database records it (so the day of its
+ * backdate, if it has one). Each count being changed is locked until the transaction ends, and
+ * counts are always changed in the same order, so transactions recording results at the same
+ * facility on the same day wait for one another rather than deadlocking.
+ */
+@Service
+@Transactional(readOnly = false)
+public class TestResultRollupService {
+  private static final Comparator<TestResultDailyCount.Key> KEY_ORDER =
+      Comparator.comparing(TestResultDailyCount.Key::getFacilityId)
+          .thenComparing(TestResultDailyCount.Key::getTestDate)
+          .thenComparing(TestResultDailyCount.Key::getResult);
+
+  private final TestResultDailyCountRepository _repo;
+
+  public TestResultRollupService(TestResultDailyCountRepository repo) {
+    _repo = repo;
+  }
+
+  /** Count these newly recorded results. */
+  public void resultsRecorded(Collection<TestEvent> testEvents) {
+    Map<TestResultDailyCount.Key, Integer> deltas = new TreeMap<>(KEY_ORDER);
+    for (TestEvent event : testEvents) {
+      if (event.getResult() != null) {
+        deltas.merge(key(event), 1, Integer::sum);
+      }
+    }
+    deltas.forEach(
+        (key, delta) ->
+            _repo.addToCount(
+                key.getFacilityId(), key.getTestDate(), key.getResult().name(), delta));
+  }
+
+  /** Stop counting this result, which has been removed. */
+  public void resultRemoved(TestEvent removed) {
+    if (removed.getResult() != null) {
+      TestResultDailyCount.Key key = key(removed);
+      _repo.addToCount(key.getFacilityId(), key.getTestDate(), key.getResult().name(), -1);
+    }
+  }
+
+  /**
+   * How many results of each kind there were at this facility on each day from {@code startDate}
+   * through {@code endDate}, by day and then by result. Days without results are left out.
+   */
+  @Transactional(readOnly = true)
+  @AuthorizationConfiguration.RequirePermissionReadResultListAtFacility
+  public List<TestResultDailyCount> getSummary(
+      UUID facilityId, LocalDate startDate, LocalDate endDate) {
+    return _repo.findCounts(facilityId, startDate, endDate);
+  }
+
+  // timestamps are stored in the application's time zone, so that is the zone their days are in
+  private static TestResultDailyCount.Key key(TestEvent event) {
+    LocalDate testDate =
+        event.getDateTested().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    return new TestResultDailyCount.Key(
+        event.getFacility().getInternalId(), testDate, event.getResult());
+  }
+}
@@ -1,9 +1,12 @@
 package gov.cdc.usds.simplereport.service;
 
 import gov.cdc.usds.simplereport.db.model.DataHubUpload;
+import gov.cdc.usds.simplereport.db.model.auxiliary.DataHubUploadChunk;
 import gov.cdc.usds.simplereport.db.model.auxiliary.DataHubUploadStatus;
 import gov.cdc.usds.simplereport.db.repository.DataHubUploadRespository;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,12 +29,55 @@ public class UploadTrackingService {
 
   @Transactional(propagation = Propagation.REQUIRES_NEW)
   public DataHubUpload startUpload(Date earliestRecordedTimestamp) {
-    return _repo.save(new DataHubUpload().setEarliestRecordedTimestamp(earliestRecordedTimestamp));
+    return startUpload(earliestRecordedTimestamp, null);
+  }
+
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public DataHubUpload startUpload(Date earliestRecordedTimestamp, UUID earliestInternalId) {
+    return _repo.save(
+        new DataHubUpload()
+            .setEarliestRecordedTimestamp(earliestRecordedTimestamp)
+            .setEarliestRecordedInternalId(earliestInternalId));
   }
 
   @Transactional(propagation = Propagation.REQUIRES_NEW)
   public void markRowCount(DataHubUpload dhu, int rowsFound, Date nextTimestamp) {
-    dhu.setRecordsProcessed(rowsFound).setLatestRecordedTimestamp(nextTimestamp);
+    markRowCount(dhu, rowsFound, nextTimestamp, null);
+  }
+
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public void markRowCount(
+      DataHubUpload dhu, int rowsFound, Date nextTimestamp, UUID nextInternalId) {
+    dhu.setRecordsProcessed(rowsFound)
+        .setLatestRecordedTimestamp(nextTimestamp)
+        .setLatestRecordedInternalId(nextInternalId);
+    _repo.save(dhu);
+  }
+
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public void markChunks(DataHubUpload dhu, List<DataHubUploadChunk> chunks) {
+    dhu.setChunks(chunks);
+    _repo.save(dhu);
+  }
+
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public void markChunkSucceeded(DataHubUpload dhu, int chunkIndex) {
+    DataHubUploadChunk chunk = dhu.getChunks().get(chunkIndex);
+    chunk
+        .setStatus(DataHubUploadStatus.SUCCESS)
+        .setAttempts(chunk.getAttempts() + 1)
+        .setErrorMessage("");
+    _repo.save(dhu);
+  }
+
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public void markChunkFailed(DataHubUpload dhu, int chunkIndex, Exception err) {
+    LOG.warn("Data hub upload of chunk {} failed", chunkIndex, err);
+    DataHubUploadChunk chunk = dhu.getChunks().get(chunkIndex);
+    chunk
+        .setStatus(DataHubUploadStatus.FAIL)
+        .setAttempts(chunk.getAttempts() + 1)
+        .setErrorMessage(err.toString());
     _repo.save(dhu);
   }
 
@@ -0,0 +1,45 @@
+package gov.cdc.usds.simplereport.service.model;
+
+import java.util.UUID;
+
+/** A change to one test order in the queue of a facility. */
+public final class QueueChange {
+  private static final String SEPARATOR = ",";
+
+  private final UUID facilityId;
+  private final UUID testOrderId;
+  private final QueueChangeType type;
+
+  public QueueChange(UUID facilityId, UUID testOrderId, QueueChangeType type) {
+    this.facilityId = facilityId;
+    this.testOrderId = testOrderId;
+    this.type = type;
+  }
+
+  /** Read a change back from the form it is sent to other instances of the application in. */
+  public static QueueChange fromPayload(String payload) {
+    String[] parts = payload.split(SEPARATOR);
+    if (parts.length != 3) {
+      throw new IllegalArgumentException("Not a queue change: " + payload);
+    }
+    return new QueueChange(
+        UUID.fromString(parts[0]), UUID.fromString(parts[1]), QueueChangeType.valueOf(parts[2]));
+  }
+
+  /** The form this change is sent to other instances of the application in. */
+  public String toPayload() {
+    return facilityId + SEPARATOR + testOrderId + SEPARATOR + type;
+  }
+
+  public UUID getFacilityId() {
+    return facilityId;
+  }
+
+  public UUID getTestOrderId() {
+    return testOrderId;
+  }
+
+  public QueueChangeType getType() {
+    return type;
+  }
+}
@@ -0,0 +1,11 @@
+package gov.cdc.usds.simplereport.service.model;
+
+/** The ways a test order in a facility's queue can change. */
+public enum QueueChangeType {
+  /** The patient was added to the queue. */
+  ADDED,
+  /** The device, result, test date or time-of-test answers of the order were changed. */
+  UPDATED,
+  /** The order left the queue, either because it was cancelled or because it was completed. */
+  REMOVED
+}
@@ -0,0 +1,33 @@
+package gov.cdc.usds.simplereport.service.sms;
+
+import com.twilio.type.PhoneNumber;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * An {@link SmsProviderWrapper} that sends nothing, for running without Twilio: each message takes
+ * as long as the given latency to "send", to stand in for the latency of the real provider, and is
+ * given a made-up message ID.
+ */
+public class FakeSmsProvider implements SmsProviderWrapper {
+  private static final String DISABLED_MESSAGE_PREFIX = "twilio-is-disabled";
+
+  private final Duration latency;
+
+  public FakeSmsProvider(Duration latency) {
+    this.latency = latency;
+  }
+
+  @Override
+  public String send(PhoneNumber to, PhoneNumber from, String message) {
+    if (!latency.isZero()) {
+      try {
+        Thread.sleep(latency.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while sending a text message", e);
+      }
+    }
+    return String.format("%s-%s", DISABLED_MESSAGE_PREFIX, UUID.randomUUID().toString());
+  }
+}
@@ -0,0 +1,159 @@
+package gov.cdc.usds.simplereport.service.sms;
+
+import com.twilio.type.PhoneNumber;
+import gov.cdc.usds.simplereport.config.AuditingConfig;
+import gov.cdc.usds.simplereport.db.model.SmsOutboxEntry;
+import gov.cdc.usds.simplereport.db.model.TextMessageSent;
+import gov.cdc.usds.simplereport.db.repository.SmsOutboxRepository;
+import gov.cdc.usds.simplereport.db.repository.TextMessageSentRepository;
+import gov.cdc.usds.simplereport.properties.SmsOutboxProperties;
+import gov.cdc.usds.simplereport.utils.RetryBackoff;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Sends the text messages in the SMS outbox (see {@link SmsService}), one batch at a time. A batch
+ * is claimed in a short transaction of its own: its entries are locked, skipping any that are
+ * already locked, and put off for a while so that no other worker picks them up. Then, with no
+ * transaction or lock held, each message is handed to the provider, and the outcome is recorded in
+ * another short transaction. So any number of workers (see {@link SmsOutboxWorkerPool}) can drain
+ * the outbox at once, and none of them holds a lock while it waits on the provider.
+ *
+ * <p>A message that its number may not send yet (see {@link SmsRateLimiter}) is put off until it
+ * may. A message the provider does not accept is tried again later, backing off exponentially, and
+ * after too many attempts is kept in the outbox, marked as failed, and never tried again. Each
+ * message that is sent is recorded as a {@link TextMessageSent}, on behalf of the user who sent it.
+ * Delivery is at least once: if the outcome of a message the provider accepted is not recorded, the
+ * message is sent again once its claim runs out.
+ */
+@Service
+public class SmsOutboxWorker {
+  private static final Logger LOG = LoggerFactory.getLogger(SmsOutboxWorker.class);
+  // five seconds before the first retry of a message, doubling up to half an hour
+  static final RetryBackoff RETRY_BACKOFF =
+      new RetryBackoff(Duration.ofSeconds(5), Duration.ofMinutes(30));
+  // how long a claimed message is kept from other workers: far longer than sending a batch takes
+  private static final Duration CLAIM_DURATION = Duration.ofMinutes(5);
+
+  private final SmsOutboxRepository _outboxRepo;
+  private final TextMessageSentRepository _tmsRepo;
+  private final SmsProviderWrapper _sms;
+  private final SmsRateLimiter _rateLimiter;
+  private final TransactionTemplate _transactions;
+  private final int _batchSize;
+  private final int _maxAttempts;
+
+  public SmsOutboxWorker(
+      SmsOutboxRepository outboxRepo,
+      TextMessageSentRepository tmsRepo,
+      SmsProviderWrapper sms,
+      SmsRateLimiter rateLimiter,
+      PlatformTransactionManager transactionManager,
+      SmsOutboxProperties properties) {
+    _outboxRepo = outboxRepo;
+    _tmsRepo = tmsRepo;
+    _sms = sms;
+    _rateLimiter = rateLimiter;
+    _transactions = new TransactionTemplate(transactionManager);
+    _batchSize = properties.getBatchSize();
+    _maxAttempts = properties.getMaxAttempts();
+  }
+
+  /**
+   * Send a batch of the messages that are due to be sent. This must not be called inside a
+   * transaction, since the locks on the batch are only released when its claim is committed.
+   *
+   * @return the number of messages sent.
+   */
+  public int sendDueMessages() {
+    List<SmsOutboxEntry> claimed = _transactions.execute(status -> claimDueMessages());
+    int sent = 0;
+    for (SmsOutboxEntry entry : claimed) {
+      String messageId;
+      try {
+        messageId =
+            _sms.send(
+                new PhoneNumber(entry.getToNumber()),
+                new PhoneNumber(entry.getFromNumber()),
+                entry.getMessage());
+      } catch (RuntimeException e) {
+        recordOutcome(entry, () -> failed(entry, e));
+        continue;
+      }
+      recordOutcome(
+          entry,
+          () -> {
+            _tmsRepo.save(new TextMessageSent(entry.getPatientLink(), messageId));
+            _outboxRepo.delete(entry);
+          });
+      sent++;
+    }
+    if (!claimed.isEmpty()) {
+      LOG.info("Sent {} of {} claimed outbox text messages", sent, claimed.size());
+    }
+    return sent;
+  }
+
+  /** Lock the messages that are due, and claim those whose numbers may send them now. */
+  private List<SmsOutboxEntry> claimDueMessages() {
+    Date now = new Date();
+    List<SmsOutboxEntry> claimed = new ArrayList<>();
+    for (SmsOutboxEntry entry : _outboxRepo.lockDueEntries(now, _batchSize)) {
+      Duration wait = _rateLimiter.tryAcquire(entry.getFromNumber());
+      if (wait.isZero()) {
+        claimed.add(entry);
+        wait = CLAIM_DURATION;
+      }
+      Date until = Date.from(now.toInstant().plus(wait));
+      asSender(entry, () -> _outboxRepo.save(entry.postpone(until)));
+    }
+    return claimed;
+  }
+
+  /** Record what became of sending a message, in a short transaction of its own. */
+  private void recordOutcome(SmsOutboxEntry entry, Runnable writes) {
+    _transactions.executeWithoutResult(status -> asSender(entry, writes));
+  }
+
+  /**
+   * Make these writes on behalf of whoever sent the message: there is no request (or user) here.
+   */
+  private void asSender(SmsOutboxEntry entry, Runnable writes) {
+    AuditingConfig.auditAs(entry.getCreatedBy());
+    try {
+      writes.run();
+      // the writes are audited as they are flushed, so that has to happen before the user is reset
+      _outboxRepo.flush();
+    } finally {
+      AuditingConfig.stopAuditingAs();
+    }
+  }
+
+  private void failed(SmsOutboxEntry entry, RuntimeException e) {
+    if (entry.getAttempts() + 1 >= _maxAttempts) {
+      // kept, rather than deleted, so that what was never sent (and why) can still be found
+      _outboxRepo.save(entry.markGivenUp(String.valueOf(e)));
+      LOG.error(
+          "Giving up on text message [{}] after {} attempts",
+          entry.getInternalId(),
+          entry.getAttempts(),
+          e);
+      return;
+    }
+    Date retryAt = Date.from(Instant.now().plus(RETRY_BACKOFF.delay(entry.getAttempts() + 1)));
+    _outboxRepo.save(entry.markFailed(String.valueOf(e), retryAt));
+    LOG.warn(
+        "Unable to send text message [{}] (attempt {}), retrying at {}",
+        entry.getInternalId(),
+        entry.getAttempts(),
+        retryAt);
+  }
+}
@@ -0,0 +1,74 @@
+package gov.cdc.usds.simplereport.service.sms;
+
+import gov.cdc.usds.simplereport.properties.SmsOutboxProperties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a fixed number of threads draining the SMS outbox with the {@link SmsOutboxWorker}. Each
+ * thread goes straight on to the next batch after sending a full one, and otherwise waits a little
+ * before looking again.
+ */
+@Component
+public class SmsOutboxWorkerPool {
+  private static final Logger LOG = LoggerFactory.getLogger(SmsOutboxWorkerPool.class);
+
+  private final SmsOutboxWorker _worker;
+  private final SmsOutboxProperties _properties;
+  private volatile boolean _running;
+  private ExecutorService _workers;
+
+  public SmsOutboxWorkerPool(SmsOutboxWorker worker, SmsOutboxProperties properties) {
+    _worker = worker;
+    _properties = properties;
+  }
+
+  @PostConstruct
+  void start() {
+    if (_properties.getWorkers() <= 0) {
+      LOG.info("No SMS outbox workers configured: text messages will not be sent");
+      return;
+    }
+    CustomizableThreadFactory threads = new CustomizableThreadFactory("sms-outbox-");
+    threads.setDaemon(true);
+    _workers = Executors.newFixedThreadPool(_properties.getWorkers(), threads);
+    _running = true;
+    for (int i = 0; i < _properties.getWorkers(); i++) {
+      _workers.execute(this::work);
+    }
+  }
+
+  @PreDestroy
+  void stop() {
+    _running = false;
+    if (_workers != null) {
+      _workers.shutdownNow();
+    }
+  }
+
+  private void work() {
+    while (_running) {
+      int sent;
+      try {
+        sent = _worker.sendDueMessages();
+      } catch (RuntimeException e) {
+        LOG.warn("Unable to send text messages from the outbox", e);
+        sent = 0;
+      }
+      if (sent < _properties.getBatchSize()) {
+        try {
+          Thread.sleep(_properties.getPollInterval().toMillis());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+}
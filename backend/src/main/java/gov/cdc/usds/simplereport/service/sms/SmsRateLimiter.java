@@ -0,0 +1,63 @@
+package gov.cdc.usds.simplereport.service.sms;
+
+import gov.cdc.usds.simplereport.properties.SmsOutboxProperties;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits how fast text messages are sent from each of our numbers, with a token bucket for each
+ * number: a number that has been idle may send a burst of messages at once, and after that only so
+ * many per second.
+ *
+ * <p>Each instance of the application keeps its own buckets, so the limit applies to each instance
+ * separately.
+ */
+@Component
+public class SmsRateLimiter {
+  private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+  private final double _tokensPerNano;
+  private final int _burst;
+  private final LongSupplier _nanoClock;
+  private final Map<String, TokenBucket> _buckets = new ConcurrentHashMap<>();
+
+  @Autowired
+  public SmsRateLimiter(SmsOutboxProperties properties) {
+    this(properties.getMessagesPerSecond(), properties.getBurst(), System::nanoTime);
+  }
+
+  SmsRateLimiter(double messagesPerSecond, int burst, LongSupplier nanoClock) {
+    _tokensPerNano = messagesPerSecond / NANOS_PER_SECOND;
+    _burst = burst;
+    _nanoClock = nanoClock;
+  }
+
+  /**
+   * Take the right to send one message from this number, if it may send one now.
+   *
+   * @return zero if the message may be sent now, and otherwise how long until it may.
+   */
+  public Duration tryAcquire(String fromNumber) {
+    return _buckets.computeIfAbsent(fromNumber, n -> new TokenBucket()).tryAcquire();
+  }
+
+  private final class TokenBucket {
+    private double tokens = _burst;
+    private long refilledAt = _nanoClock.getAsLong();
+
+    synchronized Duration tryAcquire() {
+      long now = _nanoClock.getAsLong();
+      tokens = Math.min(_burst, tokens + (now - refilledAt) * _tokensPerNano);
+      refilledAt = now;
+      if (tokens >= 1) {
+        tokens -= 1;
+        return Duration.ZERO;
+      }
+      return Duration.ofNanos((long) Math.ceil((1 - tokens) / _tokensPerNano));
+    }
+  }
+}
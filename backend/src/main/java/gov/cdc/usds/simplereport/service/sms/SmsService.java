@@ -3,15 +3,16 @@ package gov.cdc.usds.simplereport.service.sms;
 import com.google.i18n.phonenumbers.NumberParseException;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import com.google.i18n.phonenumbers.PhoneNumberUtil.PhoneNumberFormat;
-import com.twilio.exception.ApiException;
-import com.twilio.exception.TwilioException;
-import com.twilio.type.PhoneNumber;
 import gov.cdc.usds.simplereport.config.AuthorizationConfiguration;
 import gov.cdc.usds.simplereport.db.model.PatientLink;
 import gov.cdc.usds.simplereport.db.model.Person;
-import gov.cdc.usds.simplereport.db.model.TextMessageSent;
-import gov.cdc.usds.simplereport.db.repository.TextMessageSentRepository;
+import gov.cdc.usds.simplereport.db.model.SmsOutboxEntry;
+import gov.cdc.usds.simplereport.db.repository.SmsOutboxRepository;
 import gov.cdc.usds.simplereport.service.PatientLinkService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import javax.annotation.PostConstruct;
 import org.slf4j.Logger;
@@ -21,6 +22,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Sends text messages to patients. Messages are not sent straight away: they are written to the
+ * sms_outbox table in the caller's transaction, and sent from there by the {@link SmsOutboxWorker},
+ * so a message is sent if (and only if) the transaction that sent it commits, and nobody waits on
+ * the SMS provider.
+ */
 @Service
 public class SmsService {
   private static final Logger LOG = LoggerFactory.getLogger(SmsService.class);
@@ -30,33 +37,59 @@ public class SmsService {
 
   @Autowired PatientLinkService pls;
 
-  @Autowired SmsProviderWrapper sms;
+  @Autowired SmsOutboxRepository outboxRepo;
 
-  @Autowired TextMessageSentRepository tmsRepo;
-
-  private PhoneNumber fromNumber;
+  private String fromNumber;
 
   private final PhoneNumberUtil phoneUtil = PhoneNumberUtil.getInstance();
 
   @PostConstruct
   void init() throws NumberParseException {
-    this.fromNumber = new PhoneNumber(formatNumber(rawFromNumber));
+    this.fromNumber = formatNumber(rawFromNumber);
     LOG.debug("SmsService will send from {}", rawFromNumber);
   }
 
+  /**
+   * Send a text message to the patient of this patient link.
+   *
+   * @return the ID of the message in the outbox.
+   */
   @AuthorizationConfiguration.RequirePermissionStartTestWithPatientLink
-  @Transactional(noRollbackFor = {TwilioException.class, ApiException.class})
+  @Transactional
   public String sendToPatientLink(UUID patientLinkId, String text) throws NumberParseException {
     PatientLink pl = pls.getRefreshedPatientLink(patientLinkId);
-    String messageId = sendToPerson(pl.getTestOrder().getPatient(), text);
-    tmsRepo.save(new TextMessageSent(pl, messageId));
-    return messageId;
+    return outboxRepo.save(toOutbox(pl, text)).getInternalId().toString();
+  }
+
+  /**
+   * Like {@link #sendToPatientLink}, for many patient links at once.
+   *
+   * @return whether each text was queued, by patient link ID: a text is not queued if the
+   *     patient's phone number cannot be read.
+   */
+  @AuthorizationConfiguration.RequirePermissionStartTestWithPatientLinks
+  @Transactional
+  public Map<UUID, Boolean> sendToPatientLinks(Map<UUID, String> textsByPatientLinkId) {
+    Map<UUID, Boolean> queued = new HashMap<>();
+    List<SmsOutboxEntry> entries = new ArrayList<>();
+    for (PatientLink pl : pls.getPatientLinks(textsByPatientLinkId.keySet())) {
+      try {
+        entries.add(toOutbox(pl, textsByPatientLinkId.get(pl.getInternalId())));
+        queued.put(pl.getInternalId(), true);
+      } catch (NumberParseException e) {
+        LOG.warn(
+            "Failed to parse phone number for patient={}",
+            pl.getTestOrder().getPatient().getInternalId());
+        queued.put(pl.getInternalId(), false);
+      }
+    }
+    outboxRepo.saveAll(entries);
+    return queued;
   }
 
-  private String sendToPerson(Person p, String text) throws NumberParseException {
-    String msgId = sms.send(new PhoneNumber(formatNumber(p.getTelephone())), fromNumber, text);
-    LOG.debug("SMS send initiated {}", msgId);
-    return msgId;
+  private SmsOutboxEntry toOutbox(PatientLink pl, String text) throws NumberParseException {
+    Person patient = pl.getTestOrder().getPatient();
+    return new SmsOutboxEntry(pl, formatNumber(patient.getTelephone()), fromNumber, text);
   }
 
   String formatNumber(String number) throws NumberParseException {
@@ -0,0 +1,24 @@
+package gov.cdc.usds.simplereport.utils;
+
+import java.time.Duration;
+
+/**
+ * Exponential backoff for retrying something that failed: the wait after the first failure is
+ * given, and doubles with each failure after that, up to a maximum.
+ */
+public final class RetryBackoff {
+  private final Duration firstDelay;
+  private final Duration maxDelay;
+
+  public RetryBackoff(Duration firstDelay, Duration maxDelay) {
+    this.firstDelay = firstDelay;
+    this.maxDelay = maxDelay;
+  }
+
+  /** How long to wait before trying again, after this many failed attempts in a row. */
+  public Duration delay(int failedAttempts) {
+    // the shift is capped well before it could overflow; the maximum is reached long before then
+    Duration delay = firstDelay.multipliedBy(1L << Math.min(Math.max(failedAttempts, 1) - 1, 20));
+    return delay.compareTo(maxDelay) < 0 ? delay : maxDelay;
+  }
+}
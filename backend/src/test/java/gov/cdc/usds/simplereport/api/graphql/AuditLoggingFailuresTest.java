@@ -21,7 +21,6 @@ import gov.cdc.usds.simplereport.db.model.Facility;
 import gov.cdc.usds.simplereport.db.model.Organization;
 import gov.cdc.usds.simplereport.db.model.PatientLink;
 import gov.cdc.usds.simplereport.db.model.Person;
-import gov.cdc.usds.simplereport.db.model.TestEvent;
 import gov.cdc.usds.simplereport.db.model.TestOrder;
 import gov.cdc.usds.simplereport.db.repository.ApiAuditEventRepository;
 import gov.cdc.usds.simplereport.db.repository.TestEventRepository;
@@ -86,7 +85,7 @@ class AuditLoggingFailuresTest extends BaseGraphqlTest {
 
   @Test
   void graphqlQuery_databaseError_eventLogged() {
-    when(_testEventRepo.save(any(TestEvent.class))).thenThrow(new IllegalArgumentException("ewww"));
+    when(_testEventRepo.saveAll(any())).thenThrow(new IllegalArgumentException("ewww"));
     useOrgUserAllFacilityAccess();
     ObjectNode args =
         patientArgs()
@@ -155,7 +155,7 @@ public abstract class BaseGraphqlTest extends BaseFullStackTest {
         .info("Hibernate Total queries: {}", _hibernateQueryInterceptor.getQueryCount());
   }
 
-  private String getBearerAuth() {
+  protected String getBearerAuth() {
     return DemoAuthenticationConfiguration.DEMO_AUTHORIZATION_FLAG + _userName;
   }
 
@@ -1,6 +1,7 @@
 package gov.cdc.usds.simplereport.api.graphql;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -80,6 +81,41 @@ class PatientManagementTest extends BaseGraphqlTest {
     assertEquals("(800) 249-6263", sansa.get("telephone").asText());
   }
 
+  @Test
+  void queryPatientsConnection_onePerPage_allPatientsInNameOrder() throws Exception {
+    useOrgAdmin();
+    executeAddPersonMutation(
+        "Sansa",
+        "Stark",
+        "1100-12-25",
+        "1-800-BIZ-NAME",
+        "notbitter",
+        Optional.empty(),
+        Optional.empty());
+    executeAddPersonMutation(
+        "Arya",
+        "Stark",
+        "1100-12-25",
+        "1-800-BIZ-NAME",
+        "listless",
+        Optional.empty(),
+        Optional.empty());
+
+    JsonNode firstPage = fetchPatientsConnection(null);
+    assertTrue(firstPage.path("pageInfo").path("hasNextPage").asBoolean());
+    JsonNode arya = firstPage.path("edges").get(0).path("node");
+    assertEquals("Arya", arya.get("firstName").asText());
+    assertEquals("Arya", arya.path("name").get("firstName").asText());
+    assertEquals("(800) 249-6263", arya.get("telephone").asText());
+    assertTrue(arya.get("facilityId").isNull());
+
+    JsonNode secondPage =
+        fetchPatientsConnection(firstPage.path("pageInfo").path("endCursor").asText());
+    assertFalse(secondPage.path("pageInfo").path("hasNextPage").asBoolean());
+    assertEquals(1, secondPage.path("edges").size());
+    assertEquals("Sansa", secondPage.path("edges").get(0).path("node").get("firstName").asText());
+  }
+
   @Test
   void createPatient_adminUser_ok() throws Exception {
     useOrgAdmin();
@@ -492,6 +528,12 @@ class PatientManagementTest extends BaseGraphqlTest {
     return (JsonNode) runQuery("person-query", variables).get("patients");
   }
 
+  private JsonNode fetchPatientsConnection(String after) {
+    ObjectNode variables =
+        JsonNodeFactory.instance.objectNode().put("first", 1).put("after", after);
+    return (JsonNode) runQuery("patients-connection-query", variables).get("patientsConnection");
+  }
+
   private JsonNode fetchPatientsWithFacility() {
     return (JsonNode) runQuery("person-with-facility-query").get("patients");
   }
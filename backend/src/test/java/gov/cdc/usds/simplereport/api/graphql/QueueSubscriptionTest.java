@@ -0,0 +1,168 @@
+package gov.cdc.usds.simplereport.api.graphql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gov.cdc.usds.simplereport.db.model.Facility;
+import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.db.model.Person;
+import gov.cdc.usds.simplereport.service.OrganizationService;
+import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportStandardUser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+/**
+ * Subscribes to queue changes over a real websocket, with the same protocol the frontend uses, and
+ * checks what arrives when the queue is changed through the API.
+ */
+@WithSimpleReportStandardUser
+class QueueSubscriptionTest extends BaseGraphqlTest {
+
+  private static final long TIMEOUT_SECONDS = 10;
+
+  @Autowired private OrganizationService _orgService;
+  @Autowired private ObjectMapper _objectMapper;
+
+  @LocalServerPort private int _port;
+
+  private final BlockingQueue<JsonNode> _messages = new LinkedBlockingQueue<>();
+  private WebSocketSession _session;
+  private Organization _org;
+  private Facility _site;
+
+  @BeforeEach
+  void init() {
+    _org = _orgService.getCurrentOrganizationNoCache();
+    _site = _orgService.getFacilities(_org).get(0);
+  }
+
+  @AfterEach
+  void disconnect() throws IOException {
+    if (_session != null) {
+      _session.close();
+    }
+  }
+
+  @Test
+  void queueChanged_patientAdded_orderPushed() throws Exception {
+    Person patient = _dataFactory.createFullPerson(_org);
+    connect();
+    subscribe();
+
+    runQuery(
+        "add-to-queue",
+        facilityArguments()
+            .put("id", patient.getInternalId().toString())
+            .put("previousTestDate", "2020-05-15")
+            .put("symptomOnsetDate", "2020-11-30"));
+
+    JsonNode change = nextMessage().path("payload").path("data").path("queueChanged");
+    assertEquals("ADDED", change.path("type").asText());
+    assertEquals(
+        patient.getInternalId().toString(),
+        change.path("testOrder").path("patient").path("internalId").asText());
+  }
+
+  @Test
+  void queueChanged_outsideOrgUser_accessDenied() throws Exception {
+    useOutsideOrgUser();
+    connect();
+
+    send("1", "queue-changed-subscription", facilityArguments());
+
+    JsonNode response = nextMessage();
+    assertEquals("1", response.path("id").asText());
+    assertTrue(
+        "error".equals(response.path("type").asText())
+            || response.path("payload").has("errors"),
+        response.toString());
+    assertFalse(response.path("payload").path("data").hasNonNull("queueChanged"));
+  }
+
+  private void connect() throws Exception {
+    WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+    headers.setBearerAuth(getBearerAuth());
+    headers.setSecWebSocketProtocol("graphql-ws");
+    _session =
+        new StandardWebSocketClient()
+            .doHandshake(
+                new TextWebSocketHandler() {
+                  @Override
+                  protected void handleTextMessage(WebSocketSession session, TextMessage message)
+                      throws IOException {
+                    _messages.add(_objectMapper.readTree(message.getPayload()));
+                  }
+                },
+                headers,
+                URI.create("ws://localhost:" + _port + "/subscriptions"))
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    _session.sendMessage(
+        new TextMessage(
+            _objectMapper.writeValueAsString(
+                JsonNodeFactory.instance.objectNode().put("type", "connection_init"))));
+    assertEquals("connection_ack", nextMessage().path("type").asText());
+  }
+
+  private void subscribe() throws Exception {
+    send("1", "queue-changed-subscription", facilityArguments());
+    // messages on a session are handled in order, so once this has been answered the
+    // subscription is in place, and nothing done after this point can be missed
+    start("2", "{ __typename }", null);
+    JsonNode answer = nextMessage();
+    assertEquals("2", answer.path("id").asText(), answer.toString());
+  }
+
+  private void send(String id, String queryFileName, ObjectNode variables) throws IOException {
+    try (InputStream in = new ClassPathResource("queries/" + queryFileName).getInputStream()) {
+      start(id, StreamUtils.copyToString(in, StandardCharsets.UTF_8), variables);
+    }
+  }
+
+  private void start(String id, String query, ObjectNode variables) throws IOException {
+    ObjectNode payload = JsonNodeFactory.instance.objectNode().put("query", query);
+    payload.set("variables", variables);
+    ObjectNode start = JsonNodeFactory.instance.objectNode().put("id", id).put("type", "start");
+    start.set("payload", payload);
+    _session.sendMessage(new TextMessage(_objectMapper.writeValueAsString(start)));
+  }
+
+  // the next message from the server, other than keep-alives
+  private JsonNode nextMessage() throws InterruptedException {
+    while (true) {
+      JsonNode message = _messages.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      assertNotNull(message, "no message from the server");
+      if (!"ka".equals(message.path("type").asText())) {
+        return message;
+      }
+    }
+  }
+
+  private ObjectNode facilityArguments() {
+    return JsonNodeFactory.instance
+        .objectNode()
+        .put("facilityId", _site.getInternalId().toString());
+  }
+}
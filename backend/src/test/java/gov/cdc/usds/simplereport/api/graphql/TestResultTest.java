@@ -3,6 +3,7 @@ package gov.cdc.usds.simplereport.api.graphql;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -17,6 +18,8 @@ import gov.cdc.usds.simplereport.service.OrganizationService;
 import gov.cdc.usds.simplereport.service.sms.SmsService;
 import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportStandardUser;
 import gov.cdc.usds.simplereport.test_util.TestDataFactory;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -64,6 +67,37 @@ class TestResultTest extends BaseGraphqlTest {
         testResults.get(0).get("testPerformed").get("name").asText());
   }
 
+  @Test
+  void fetchTestResultsConnection_severalPages_returnsEachResultOnceNewestFirst() {
+    Person p = _dataFactory.createFullPerson(_org);
+    for (int i = 0; i < 5; i++) {
+      _dataFactory.createTestEvent(p, _site);
+    }
+    List<String> allIds = new ArrayList<>();
+    fetchTestResults(getFacilityScopedArguments())
+        .forEach(r -> allIds.add(r.get("internalId").asText()));
+
+    List<String> pagedIds = new ArrayList<>();
+    ObjectNode variables = getFacilityScopedArguments().put("first", 2);
+    JsonNode page = fetchTestResultsConnection(variables);
+    for (int pages = 1; page.get("pageInfo").get("hasNextPage").asBoolean(); pages++) {
+      assertEquals(2, page.get("edges").size());
+      page.get("edges").forEach(e -> pagedIds.add(e.get("node").get("internalId").asText()));
+      assertTrue(pages < 3, "Should have run out of results by the third page");
+      variables.put("after", page.get("pageInfo").get("endCursor").asText());
+      page = fetchTestResultsConnection(variables);
+    }
+    page.get("edges").forEach(e -> pagedIds.add(e.get("node").get("internalId").asText()));
+
+    assertEquals(allIds, pagedIds);
+  }
+
+  @Test
+  void fetchTestResultsConnection_invalidCursor_error() {
+    ObjectNode variables = getFacilityScopedArguments().put("after", "not a cursor");
+    runQuery("test-results-connection-query", variables, "Invalid cursor");
+  }
+
   @Test
   void submitTestResult() throws Exception {
     Person p = _dataFactory.createFullPerson(_org);
@@ -86,6 +120,36 @@ class TestResultTest extends BaseGraphqlTest {
     assertEquals(testResults.get(0).get("dateTested").asText(), dateTested);
   }
 
+  @Test
+  void fetchTestResultSummary_resultsSubmitted_countedByDayAndResult() {
+    DeviceType d = _dataFactory.getGenericDevice();
+    for (TestResult result :
+        List.of(TestResult.NEGATIVE, TestResult.POSITIVE, TestResult.NEGATIVE)) {
+      Person p = _dataFactory.createFullPerson(_org);
+      _dataFactory.createTestOrder(p, _site);
+      ObjectNode variables =
+          JsonNodeFactory.instance
+              .objectNode()
+              .put("deviceId", d.getInternalId().toString())
+              .put("patientId", p.getInternalId().toString())
+              .put("result", result.toString())
+              .put("dateTested", "2020-12-31T14:30:30.001Z");
+      submitTestResult(variables, Optional.empty());
+    }
+
+    ObjectNode variables =
+        getFacilityScopedArguments().put("startDate", "2020-12-01").put("endDate", "2020-12-31");
+    ArrayNode summary =
+        (ArrayNode) runQuery("test-result-summary-query", variables).get("testResultSummary");
+
+    assertEquals(2, summary.size());
+    assertEquals("2020-12-31", summary.get(0).get("date").asText());
+    assertEquals("POSITIVE", summary.get(0).get("result").asText());
+    assertEquals(1, summary.get(0).get("count").asInt());
+    assertEquals("NEGATIVE", summary.get(1).get("result").asText());
+    assertEquals(2, summary.get(1).get("count").asInt());
+  }
+
   @Test
   void submitTestResultBackwardsCompatible() throws Exception {
     Person p = _dataFactory.createFullPerson(_org);
@@ -200,6 +264,10 @@ class TestResultTest extends BaseGraphqlTest {
     return (ArrayNode) runQuery("test-results-query", variables).get("testResults");
   }
 
+  private JsonNode fetchTestResultsConnection(ObjectNode variables) {
+    return runQuery("test-results-connection-query", variables).get("testResultsConnection");
+  }
+
   private void fetchTestResultsWithError(ObjectNode variables, String expectedError) {
     runQuery("test-results-query", variables, expectedError);
   }
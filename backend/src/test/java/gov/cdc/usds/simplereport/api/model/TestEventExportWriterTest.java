@@ -0,0 +1,97 @@
+package gov.cdc.usds.simplereport.api.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import gov.cdc.usds.simplereport.db.model.Facility;
+import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.test_util.DbTruncator;
+import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration;
+import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportStandardUser;
+import gov.cdc.usds.simplereport.test_util.TestDataFactory;
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({SliceTestConfiguration.class, DbTruncator.class})
+@WithSimpleReportStandardUser
+class TestEventExportWriterTest {
+  @Autowired protected TestDataFactory _dataFactory;
+
+  @Test
+  void csv_output_matchesDatabind() throws Exception {
+    List<TestEventExport> rows = createRows();
+    CsvMapper mapper = new CsvMapper();
+    mapper
+        .enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING)
+        .enable(CsvGenerator.Feature.ALWAYS_QUOTE_STRINGS)
+        .enable(CsvGenerator.Feature.ALWAYS_QUOTE_EMPTY_STRINGS);
+    CsvSchema schema = mapper.schemaFor(TestEventExport.class).withHeader().withNullValue("\"\"");
+    ObjectWriter databind = mapper.writer(schema);
+    TestEventExportWriter sut = TestEventExportWriter.forCsv(schema);
+
+    StringWriter written = new StringWriter();
+    try (JsonGenerator gen = databind.createGenerator(written)) {
+      gen.writeStartArray();
+      for (TestEventExport row : rows) {
+        sut.write(gen, row);
+      }
+      gen.writeEndArray();
+    }
+    assertEquals(databind.writeValueAsString(rows), written.toString());
+
+    StringWriter streamed = new StringWriter();
+    try (JsonGenerator gen = databind.createGenerator(streamed)) {
+      for (TestEventExport row : rows) {
+        sut.write(gen, row);
+      }
+    }
+    StringWriter sequence = new StringWriter();
+    databind.writeValues(sequence).writeAll(rows).close();
+    assertEquals(sequence.toString(), streamed.toString());
+  }
+
+  @Test
+  void json_output_matchesDatabind() throws Exception {
+    ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    TestEventExportWriter sut = TestEventExportWriter.forJson(mapper);
+
+    for (TestEventExport row : createRows()) {
+      StringWriter written = new StringWriter();
+      try (JsonGenerator gen = mapper.writer().createGenerator(written)) {
+        sut.write(gen, row);
+      }
+      assertEquals(mapper.writeValueAsString(row), written.toString());
+    }
+  }
+
+  @Test
+  void forJson_nonNullInclusion_rejected() {
+    ObjectMapper mapper =
+        new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    assertThrows(IllegalArgumentException.class, () -> TestEventExportWriter.forJson(mapper));
+  }
+
+  // one fully populated row, and one with most of the optional values missing
+  private List<TestEventExport> createRows() {
+    Organization o = _dataFactory.createValidOrg();
+    Facility f = _dataFactory.createValidFacility(o);
+    return List.of(
+        new TestEventExport(_dataFactory.createTestEvent(_dataFactory.createFullPerson(o), f)),
+        new TestEventExport(_dataFactory.createTestEvent(_dataFactory.createMinimalPerson(o), f)));
+  }
+}
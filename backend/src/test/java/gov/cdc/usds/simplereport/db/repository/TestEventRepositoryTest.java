@@ -19,24 +19,35 @@ import gov.cdc.usds.simplereport.db.model.auxiliary.TestResult;
 import gov.cdc.usds.simplereport.test_util.TestDataFactory;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Predicate;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.Query;
 
 class TestEventRepositoryTest extends BaseRepositoryTest {
 
   @Autowired private TestEventRepository _repo;
   @Autowired private TestDataFactory _dataFactory;
+  @Autowired private EntityManager _entityManager;
+
+  @Value("${spring.jpa.properties.hibernate.default_schema:public}")
+  private String _schema;
 
   private Specification<TestEvent> filter(UUID facilityId, TestResult result) {
     return (root, query, cb) -> {
@@ -103,6 +114,52 @@ class TestEventRepositoryTest extends BaseRepositoryTest {
         order, first); // just leverage existing order, event to test on newer columns
   }
 
+  @Test
+  void queryMatchAllAfterKey_pagesWithoutGapsOrRepeats() {
+    Date d1 = Date.from(Instant.parse("2000-01-01T00:00:00Z"));
+    Organization org = _dataFactory.createValidOrg();
+    Facility place = _dataFactory.createValidFacility(org);
+    Person patient = _dataFactory.createMinimalPerson(org);
+    _dataFactory.createTestEvent(patient, place);
+    _dataFactory.createTestEvent(patient, place);
+    _dataFactory.createTestEvent(patient, place);
+    flush();
+    final Date DATE_1MIN_FUTURE =
+        new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(3));
+
+    List<UUID> all =
+        _repo
+            .queryMatchAllAfterKey(
+                d1, TestEventRepository.KEYSET_MAX_ID, DATE_1MIN_FUTURE, Pageable.unpaged())
+            .stream()
+            .map(TestEvent::getInternalId)
+            .collect(Collectors.toList());
+    assertTrue(all.size() >= 3);
+
+    List<UUID> paged = new ArrayList<>();
+    Date lastTimestamp = d1;
+    UUID lastId = TestEventRepository.KEYSET_MAX_ID;
+    List<TestEvent> page;
+    do {
+      page =
+          _repo.queryMatchAllAfterKey(
+              lastTimestamp, lastId, DATE_1MIN_FUTURE, PageRequest.of(0, 2));
+      for (TestEvent e : page) {
+        paged.add(e.getInternalId());
+        lastTimestamp = e.getCreatedAt();
+        lastId = e.getInternalId();
+      }
+    } while (page.size() == 2);
+    assertEquals(all, paged);
+
+    List<UUID> streamed;
+    try (Stream<TestEvent> events =
+        _repo.streamMatchAllAfterKey(d1, TestEventRepository.KEYSET_MAX_ID, DATE_1MIN_FUTURE)) {
+      streamed = events.map(TestEvent::getInternalId).collect(Collectors.toList());
+    }
+    assertEquals(all, streamed);
+  }
+
   @Test
   void fetchResults_multipleEntries_sortedLifo() throws InterruptedException {
     Organization org = _dataFactory.createValidOrg();
@@ -142,6 +199,52 @@ class TestEventRepositoryTest extends BaseRepositoryTest {
     assertEquals("Charles", results.get(0).getPatient().getFirstName());
   }
 
+  @Test
+  void dateTestedQueries_seededResults_useDateTestedIndexes() throws NoSuchMethodException {
+    Organization org = _dataFactory.createValidOrg();
+    Facility place = _dataFactory.createValidFacility(org);
+    Facility otherPlace = _dataFactory.createValidFacility(org, "Other Place");
+    List<UUID> patientIds = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      Person patient = _dataFactory.createMinimalPerson(org);
+      _dataFactory.createTestEvent(patient, place);
+      _dataFactory.createTestEvent(patient, otherPlace);
+      patientIds.add(patient.getInternalId());
+    }
+    flush();
+    // a table this small is cheaper to read in full than through any index, so the planner is not
+    // allowed to: what matters here is whether the indexes can be used by these queries at all
+    _entityManager.createNativeQuery("SET LOCAL enable_seqscan = off").executeUpdate();
+
+    // the WHERE and ORDER BY clauses of a results search by facility and date
+    String search =
+        String.format(
+            "SELECT internal_id FROM %s.test_event WHERE facility_id = '%s'"
+                + " AND COALESCE(date_tested_backdate, created_at) >= '2021-01-01'"
+                + " ORDER BY COALESCE(date_tested_backdate, created_at) DESC, internal_id DESC"
+                + " LIMIT 20",
+            _schema, place.getInternalId());
+    assertTrue(explain(search).contains("ix__test_event__facility_id__date_tested"));
+
+    String lastTests =
+        TestEventRepository.class
+            .getMethod("findLastTestsByPatient", Collection.class)
+            .getAnnotation(Query.class)
+            .value()
+            .replace("{h-schema}", _schema + ".")
+            .replace(
+                ":patientIds",
+                patientIds.stream()
+                    .map(id -> "'" + id + "'")
+                    .collect(Collectors.joining(", ", "(", ")")));
+    assertTrue(explain(lastTests).contains("ix__test_event__patient_id__date_tested"));
+  }
+
+  private String explain(String sql) {
+    List<?> plan = _entityManager.createNativeQuery("EXPLAIN " + sql).getResultList();
+    return plan.stream().map(Object::toString).collect(Collectors.joining("\n"));
+  }
+
   private void compareAskOnEntrySurvey(AskOnEntrySurvey a1, AskOnEntrySurvey a2) {
     assertEquals(a1.getFirstTest(), a2.getFirstTest());
     assertEquals(a1.getNoSymptoms(), a2.getNoSymptoms());
@@ -0,0 +1,96 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class AfterCommitTestEventReporterTest extends BaseServiceTest<TestEventExportService> {
+  @Autowired private PlatformTransactionManager _transactionManager;
+
+  private TestEventReportingService reporting;
+  private AfterCommitTestEventReporter sut;
+  private TestEventExportRecord exportRecord;
+
+  @BeforeEach
+  void setupReporting() {
+    reporting = mock(TestEventReportingService.class);
+    sut = new AfterCommitTestEventReporter(reporting);
+    exportRecord = mock(TestEventExportRecord.class);
+    when(exportRecord.getTestEventId()).thenReturn(UUID.randomUUID());
+  }
+
+  @Test
+  void reportOnCommit_committed_reportedAfterCommit() {
+    when(reporting.reportAsync(exportRecord)).thenReturn(CompletableFuture.completedFuture(null));
+
+    new TransactionTemplate(_transactionManager)
+        .executeWithoutResult(
+            status -> {
+              sut.reportOnCommit(exportRecord);
+              verify(reporting, never()).reportAsync(exportRecord);
+            });
+
+    verify(reporting, times(1)).reportAsync(exportRecord);
+  }
+
+  @Test
+  void reportOnCommit_rolledBack_notReported() {
+    new TransactionTemplate(_transactionManager)
+        .executeWithoutResult(
+            status -> {
+              sut.reportOnCommit(exportRecord);
+              status.setRollbackOnly();
+            });
+
+    verify(reporting, never()).reportAsync(exportRecord);
+  }
+
+  @Test
+  void reportOnCommit_deliveryFails_triedAgain() {
+    when(reporting.reportAsync(exportRecord))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("PANIC")))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    sut.reportOnCommit(exportRecord);
+
+    // the first retry is a second after the first attempt
+    verify(reporting, timeout(5000).times(2)).reportAsync(exportRecord);
+  }
+
+  @Test
+  void reportOnCommit_deliveryThrows_triedAgain() {
+    when(reporting.reportAsync(exportRecord))
+        .thenThrow(new IllegalStateException("PANIC"))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    new TransactionTemplate(_transactionManager)
+        .executeWithoutResult(status -> sut.reportOnCommit(exportRecord));
+
+    verify(reporting, timeout(5000).times(2)).reportAsync(exportRecord);
+  }
+
+  @Test
+  void reportOnCommit_reportsInTransaction_reportedBeforeCommit() {
+    when(reporting.reportsInTransaction()).thenReturn(true);
+    when(reporting.reportAsync(exportRecord)).thenReturn(CompletableFuture.completedFuture(null));
+
+    new TransactionTemplate(_transactionManager)
+        .executeWithoutResult(
+            status -> {
+              sut.reportOnCommit(exportRecord);
+              verify(reporting, times(1)).reportAsync(exportRecord);
+            });
+  }
+}
@@ -1,10 +1,12 @@
 package gov.cdc.usds.simplereport.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -16,19 +18,31 @@ import com.azure.storage.queue.models.SendMessageResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import gov.cdc.usds.simplereport.api.model.TestEventExport;
 import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.repository.TestEventQueueMessageRepository;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import reactor.core.publisher.Mono;
 
 @SuppressWarnings("unchecked")
 class AzureStorageQueueTestEventReportingServiceTest
     extends BaseServiceTest<TestEventReportingService> {
   private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+  @Autowired private TestEventExportService _exportService;
+  @Autowired private TestEventQueueMessageRepository _messageRepo;
+
+  @Autowired
+  @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+  private Executor _taskExecutor;
 
   @Test
   void dispatches_supplied_event_to_queue_client() {
@@ -38,19 +52,40 @@ class AzureStorageQueueTestEventReportingServiceTest
         .thenReturn(CompletableFuture.completedFuture(new SendMessageResult()));
     when(client.sendMessage(any(String.class))).thenReturn(response);
 
-    var sut = new AzureStorageQueueTestEventReportingService(new ObjectMapper(), client);
+    var sut =
+        new AzureStorageQueueTestEventReportingService(
+            new ObjectMapper(), client, _messageRepo, _taskExecutor);
     var testEvent = createTestEvent();
     sut.report(testEvent);
 
     verify(client, times(1)).sendMessage(argThat(matcherForTest(testEvent)));
   }
 
+  @Test
+  void dispatches_export_record_exactly_as_the_event_itself() throws IOException {
+    var client = mock(QueueAsyncClient.class);
+    Mono<SendMessageResult> response = mock(Mono.class);
+    when(response.toFuture())
+        .thenReturn(CompletableFuture.completedFuture(new SendMessageResult()));
+    when(client.sendMessage(any(String.class))).thenReturn(response);
+
+    var sut =
+        new AzureStorageQueueTestEventReportingService(
+            mapper, client, _messageRepo, _taskExecutor);
+    var testEvent = createTestEvent();
+    sut.report(_exportService.toRecord(testEvent));
+
+    verify(client, times(1)).sendMessage(mapper.writeValueAsString(new TestEventExport(testEvent)));
+  }
+
   @Test
   void surfaces_azure_failures_as_exceptions() {
     var client = mock(QueueAsyncClient.class);
     when(client.sendMessage(any(String.class))).thenThrow(IllegalCallerException.class);
 
-    var sut = new AzureStorageQueueTestEventReportingService(new ObjectMapper(), client);
+    var sut =
+        new AzureStorageQueueTestEventReportingService(
+            new ObjectMapper(), client, _messageRepo, _taskExecutor);
     var testEvent = createTestEvent();
     assertThrows(IllegalCallerException.class, () -> sut.report(testEvent));
   }
@@ -74,7 +109,9 @@ class AzureStorageQueueTestEventReportingServiceTest
           .thenReturn(deleteMessageResponse);
     }
 
-    var sut = new AzureStorageQueueTestEventReportingService(mapper, client);
+    var sut =
+        new AzureStorageQueueTestEventReportingService(
+            mapper, client, _messageRepo, _taskExecutor);
     sut.markTestEventsAsReported(testEvents);
 
     for (var testEvent : testEvents) {
@@ -102,7 +139,9 @@ class AzureStorageQueueTestEventReportingServiceTest
           .thenReturn(deleteMessageResponse);
     }
 
-    var sut = new AzureStorageQueueTestEventReportingService(mapper, client);
+    var sut =
+        new AzureStorageQueueTestEventReportingService(
+            mapper, client, _messageRepo, _taskExecutor);
 
     // None of the RuntimeExceptions thrown by QueueClient::DeleteMessage should be surfaced.
     sut.markTestEventsAsReported(testEvents);
@@ -112,6 +151,100 @@ class AzureStorageQueueTestEventReportingServiceTest
     }
   }
 
+  @Test
+  void deletes_recorded_messages_directly_when_events_are_marked_as_completed() {
+    var testEvents = createTestEvents(3);
+    var client = mock(QueueAsyncClient.class);
+    for (var testEvent : testEvents) {
+      Mono<SendMessageResult> response = mock(Mono.class);
+      when(response.toFuture())
+          .thenReturn(
+              CompletableFuture.completedFuture(
+                  new SendMessageResult()
+                      .setMessageId(messageIdFor(testEvent))
+                      .setPopReceipt(popReceiptFor(testEvent))));
+      when(client.sendMessage(argThat(matcherForTest(testEvent)))).thenReturn(response);
+      Mono<Void> deleteMessageResponse = mock(Mono.class);
+      when(deleteMessageResponse.toFuture()).thenReturn(CompletableFuture.completedFuture(null));
+      when(client.deleteMessage(messageIdFor(testEvent), popReceiptFor(testEvent)))
+          .thenReturn(deleteMessageResponse);
+    }
+
+    var sut =
+        new AzureStorageQueueTestEventReportingService(
+            mapper, client, _messageRepo, _taskExecutor);
+    testEvents.forEach(sut::report);
+    assertEquals(3, _messageRepo.findAll().size());
+    sut.markTestEventsAsReported(testEvents);
+
+    for (var testEvent : testEvents) {
+      verify(client, times(1)).deleteMessage(messageIdFor(testEvent), popReceiptFor(testEvent));
+    }
+    verify(client, never()).receiveMessages(anyInt());
+    assertEquals(0, _messageRepo.findAll().size());
+  }
+
+  @Test
+  void keeps_records_of_messages_that_could_not_be_deleted() {
+    var testEvents = new ArrayList<>(createTestEvents(3));
+    TestEvent deletedDirectly = testEvents.get(0);
+    TestEvent foundOnQueue = testEvents.get(1);
+    TestEvent notDeleted = testEvents.get(2);
+    var client = mock(QueueAsyncClient.class);
+    for (var testEvent : testEvents) {
+      Mono<SendMessageResult> response = mock(Mono.class);
+      when(response.toFuture())
+          .thenReturn(
+              CompletableFuture.completedFuture(
+                  new SendMessageResult()
+                      .setMessageId(messageIdFor(testEvent))
+                      .setPopReceipt(popReceiptFor(testEvent))));
+      when(client.sendMessage(argThat(matcherForTest(testEvent)))).thenReturn(response);
+      Mono<Void> deleteMessageResponse = mock(Mono.class);
+      when(deleteMessageResponse.toFuture())
+          .thenReturn(
+              testEvent == deletedDirectly
+                  ? CompletableFuture.completedFuture(null)
+                  : CompletableFuture.failedFuture(new RuntimeException("PANIC")));
+      when(client.deleteMessage(messageIdFor(testEvent), popReceiptFor(testEvent)))
+          .thenReturn(deleteMessageResponse);
+    }
+    // received again since it was sent, so only its new pop receipt will delete it
+    QueueMessageItem received = queueMessageItemFor(foundOnQueue);
+    received.setPopReceipt("newPopReceipt:" + foundOnQueue.getInternalId());
+    Mono<Void> deleteReceivedResponse = mock(Mono.class);
+    when(deleteReceivedResponse.toFuture()).thenReturn(CompletableFuture.completedFuture(null));
+    when(client.deleteMessage(received.getMessageId(), received.getPopReceipt()))
+        .thenReturn(deleteReceivedResponse);
+    PagedFlux<QueueMessageItem> receiveResponse = mock(PagedFlux.class);
+    when(receiveResponse.toIterable()).thenReturn(Set.of(received));
+    when(client.receiveMessages(anyInt())).thenReturn(receiveResponse);
+
+    var sut =
+        new AzureStorageQueueTestEventReportingService(
+            mapper, client, _messageRepo, _taskExecutor);
+    testEvents.forEach(sut::report);
+    sut.markTestEventsAsReported(Set.copyOf(testEvents));
+
+    verify(client, times(1)).deleteMessage(received.getMessageId(), received.getPopReceipt());
+    var remaining = _messageRepo.findAll();
+    assertEquals(1, remaining.size());
+    assertEquals(notDeleted.getInternalId(), remaining.get(0).getTestEventId());
+  }
+
+  @Test
+  void does_nothing_when_no_events_are_marked_as_completed() {
+    var client = mock(QueueAsyncClient.class);
+    var sut =
+        new AzureStorageQueueTestEventReportingService(
+            mapper, client, _messageRepo, _taskExecutor);
+
+    sut.markTestEventIdsAsReported(Set.of());
+
+    verify(client, never()).deleteMessage(any(String.class), any(String.class));
+    verify(client, never()).receiveMessages(anyInt());
+  }
+
   private ArgumentMatcher<String> matcherForTest(TestEvent testEvent) {
     return message -> {
       try {
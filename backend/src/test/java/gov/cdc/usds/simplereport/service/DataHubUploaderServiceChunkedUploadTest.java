@@ -0,0 +1,134 @@
+package gov.cdc.usds.simplereport.service;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import gov.cdc.usds.simplereport.db.model.DataHubUpload;
+import gov.cdc.usds.simplereport.db.model.Facility;
+import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.db.model.Person;
+import gov.cdc.usds.simplereport.db.model.auxiliary.DataHubUploadChunk;
+import gov.cdc.usds.simplereport.db.model.auxiliary.DataHubUploadStatus;
+import gov.cdc.usds.simplereport.db.repository.DataHubUploadRespository;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs chunked uploads against a local stub of the DataHub reports endpoint. The stub is reached
+ * over https, as the real endpoint is, with a certificate that only these tests trust.
+ */
+@AutoConfigureWireMock(port = 0, httpsPort = 0)
+@TestPropertySource(
+    properties = {
+      "wiremock.rest-template-ssl-enabled=true",
+      "simple-report.data-hub.upload-enabled=true",
+      "simple-report.data-hub.upload-url=https://localhost:${wiremock.server.https-port}/api/reports",
+      "simple-report.data-hub.api-key=stub-key",
+      "simple-report.data-hub.upload-chunk-rows=2",
+      "simple-report.data-hub.upload-chunk-retry-delay=PT0.01S",
+    })
+class DataHubUploaderServiceChunkedUploadTest extends BaseServiceTest<DataHubUploaderService> {
+
+  private static final String UPLOAD_PATH = "/api/reports";
+  private static final String SCENARIO = "flaky receiver";
+
+  @Autowired private DataHubUploadRespository _uploadRepo;
+  @Autowired private JdbcTemplate _jdbc;
+
+  @Value("${spring.jpa.properties.hibernate.default_schema:public}")
+  private String _schema;
+
+  @Test
+  void dataHubUploaderTask_failedChunk_onlyFailedChunkResent() {
+    Organization o = _dataFactory.createValidOrg();
+    Facility f = _dataFactory.createValidFacility(o);
+    Person p = _dataFactory.createFullPerson(o);
+    for (int i = 0; i < 5; i++) {
+      _dataFactory.createTestEvent(p, f);
+    }
+    // the uploader leaves the most recent minute of events alone
+    _jdbc.update(
+        "UPDATE " + _schema + ".test_event SET created_at = created_at - interval '5 minutes'");
+    _uploadRepo.save(
+        new DataHubUpload()
+            .setJobStatus(DataHubUploadStatus.SUCCESS)
+            .setLatestRecordedTimestamp(new Date(0)));
+
+    // the first chunk goes through, the second fails every time in the first run, the third goes
+    // through, and then the receiver is fine.
+    stubUpload(Scenario.STARTED, "first chunk received", 200);
+    stubUpload("first chunk received", "second chunk failed once", 500);
+    stubUpload("second chunk failed once", "second chunk failed twice", 500);
+    stubUpload("second chunk failed twice", "second chunk given up", 500);
+    stubUpload("second chunk given up", "recovered", 200);
+    stubUpload("recovered", "recovered", 200);
+
+    _service.dataHubUploaderTask();
+
+    verify(
+        5,
+        postRequestedFor(urlPathEqualTo(UPLOAD_PATH))
+            .withHeader("Content-Encoding", equalTo("gzip"))
+            .withHeader("x-functions-key", equalTo("stub-key")));
+    DataHubUpload failed = _uploadRepo.findFirstByOrderByCreatedAtDesc();
+    assertEquals(DataHubUploadStatus.FAIL, failed.getJobStatus());
+    assertEquals(5, failed.getRecordsProcessed());
+    List<DataHubUploadChunk> failedChunks = failed.getChunks();
+    assertEquals(List.of(0, 2, 4), collect(failedChunks, DataHubUploadChunk::getFirstRow));
+    assertEquals(List.of(2, 2, 1), collect(failedChunks, DataHubUploadChunk::getRowCount));
+    assertEquals(
+        List.of(DataHubUploadStatus.SUCCESS, DataHubUploadStatus.FAIL, DataHubUploadStatus.SUCCESS),
+        collect(failedChunks, DataHubUploadChunk::getStatus));
+    assertEquals(List.of(1, 3, 1), collect(failedChunks, DataHubUploadChunk::getAttempts));
+
+    _service.dataHubUploaderTask();
+
+    // only the chunk that failed is sent again
+    verify(6, postRequestedFor(urlPathEqualTo(UPLOAD_PATH)));
+    DataHubUpload resumed = _uploadRepo.findFirstByOrderByCreatedAtDesc();
+    assertEquals(DataHubUploadStatus.SUCCESS, resumed.getJobStatus());
+    assertEquals(5, resumed.getRecordsProcessed());
+    List<DataHubUploadChunk> resumedChunks = resumed.getChunks();
+    assertEquals(
+        collect(failedChunks, DataHubUploadChunk::getChecksum),
+        collect(resumedChunks, DataHubUploadChunk::getChecksum));
+    assertEquals(
+        List.of(
+            DataHubUploadStatus.SUCCESS, DataHubUploadStatus.SUCCESS, DataHubUploadStatus.SUCCESS),
+        collect(resumedChunks, DataHubUploadChunk::getStatus));
+    assertEquals(List.of(0, 1, 0), collect(resumedChunks, DataHubUploadChunk::getAttempts));
+  }
+
+  private static void stubUpload(String state, String nextState, int status) {
+    stubFor(
+        post(urlPathEqualTo(UPLOAD_PATH))
+            .inScenario(SCENARIO)
+            .whenScenarioStateIs(state)
+            .willSetStateTo(nextState)
+            .willReturn(
+                aResponse()
+                    .withStatus(status)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{}")));
+  }
+
+  private static <T> List<T> collect(
+      List<DataHubUploadChunk> chunks, Function<DataHubUploadChunk, T> field) {
+    return chunks.stream().map(field).collect(Collectors.toList());
+  }
+}
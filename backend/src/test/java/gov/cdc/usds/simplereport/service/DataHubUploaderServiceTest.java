@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
@@ -12,17 +13,23 @@ import gov.cdc.usds.simplereport.db.model.Facility;
 import gov.cdc.usds.simplereport.db.model.Organization;
 import gov.cdc.usds.simplereport.db.model.Person;
 import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
 import gov.cdc.usds.simplereport.db.model.auxiliary.AskOnEntrySurvey;
 import gov.cdc.usds.simplereport.db.model.auxiliary.TestResult;
+import gov.cdc.usds.simplereport.db.repository.TestEventRepository;
 import gov.cdc.usds.simplereport.test_util.TestDataFactory;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 
 class DataHubUploaderServiceTest extends BaseServiceTest<DataHubUploaderService> {
   @Autowired private TestDataFactory _dataFactory;
+  @Autowired private TestEventRepository _testEventRepo;
+  @Autowired private TestEventExportService _exportService;
 
   @Test
   void serialization() {
@@ -100,4 +107,73 @@ class DataHubUploaderServiceTest extends BaseServiceTest<DataHubUploaderService>
       fail("JsonProcessingException thrown");
     }
   }
+
+  @Test
+  void exportQuery_NPlusOne() throws Exception {
+    Organization o = _dataFactory.createValidOrg();
+    Facility f = _dataFactory.createValidFacility(o);
+    Person p = _dataFactory.createFullPerson(o);
+
+    // add some initial data
+    _dataFactory.createTestEvent(p, f);
+    _dataFactory.createTestEvent(p, f);
+
+    long firstPassTotal = countExportQueries(2);
+
+    // add more data
+    _dataFactory.createTestEvent(p, f);
+    _dataFactory.createTestEvent(p, f);
+    _dataFactory.createTestEvent(p, f);
+    _dataFactory.createTestEvent(p, f);
+    _dataFactory.createTestEvent(p, f);
+
+    // count queries again and make sure queries made didn't increase
+    long secondPassTotal = countExportQueries(7);
+    assertEquals(firstPassTotal, secondPassTotal);
+  }
+
+  @Test
+  void csvRenderer_parallel_matchesSequential() throws Exception {
+    Organization o = _dataFactory.createValidOrg();
+    Facility f = _dataFactory.createValidFacility(o);
+    _dataFactory.createTestEvent(_dataFactory.createFullPerson(o), f);
+    _dataFactory.createTestEvent(_dataFactory.createMinimalPerson(o), f);
+    // fetched the way the uploader does
+    List<TestEvent> fetched =
+        _testEventRepo.queryMatchAllAfterKey(
+            new Date(0), TestEventRepository.KEYSET_MAX_ID, new Date(), PageRequest.of(0, 100));
+    assertEquals(2, fetched.size());
+    // enough rows for several partitions, the last of them a short one
+    List<TestEventExportRecord> events = new ArrayList<>();
+    for (int i = 0; i < 5 * TestEventCsvRenderer.MIN_PARTITION_ROWS + 1; i++) {
+      events.add(_exportService.toRecord(fetched.get(i % fetched.size())));
+    }
+
+    String sequential = new TestEventCsvRenderer(0).render(events);
+    String parallel;
+    try (TestEventCsvRenderer renderer = new TestEventCsvRenderer(3)) {
+      parallel = renderer.render(events);
+    }
+
+    assertEquals(sequential, parallel);
+    assertEquals(events.size() + 1, sequential.split("\n").length);
+  }
+
+  /**
+   * Fetch a page of events the way the uploader does, and read every exported value. This runs
+   * outside of a transaction, so anything the export needs that was not fetched up front will fail
+   * to load lazily.
+   */
+  private long countExportQueries(int expectedRows) throws JsonProcessingException {
+    ObjectMapper mapper = new ObjectMapper();
+    long startQueryCount = _hibernateQueryInterceptor.getQueryCount();
+    List<TestEvent> events =
+        _testEventRepo.queryMatchAllAfterKey(
+            new Date(0), TestEventRepository.KEYSET_MAX_ID, new Date(), PageRequest.of(0, 100));
+    assertEquals(expectedRows, events.size());
+    for (TestEvent e : events) {
+      mapper.writeValueAsString(new TestEventExport(e));
+    }
+    return _hibernateQueryInterceptor.getQueryCount() - startQueryCount;
+  }
 }
@@ -0,0 +1,89 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.cdc.usds.simplereport.api.model.TestEventExport;
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalFileTestEventReportingServiceTest extends BaseServiceTest<TestEventExportService> {
+  private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+  @TempDir Path queueDirectory;
+
+  @Test
+  void consumer_reportedEvents_readBackInOrderAsQueueMessages() throws IOException {
+    List<TestEvent> testEvents = _dataFactory.createTestEvents(3);
+    var sut =
+        new LocalFileTestEventReportingService(mapper, queueDirectory, 1 << 16, Duration.ZERO);
+    var consumer = sut.consumer();
+
+    sut.report(testEvents.get(0));
+    sut.report(_service.toRecord(testEvents.get(1)));
+    sut.report(_service.toRecord(testEvents.get(2)));
+
+    assertEquals(expectedMessages(testEvents.subList(0, 2)), consumer.poll(2));
+    assertEquals(expectedMessages(testEvents.subList(2, 3)), consumer.poll(2));
+    assertEquals(List.of(), consumer.poll(2));
+    // every consumer starts from the beginning
+    assertEquals(expectedMessages(testEvents), sut.consumer().poll(10));
+  }
+
+  @Test
+  void report_segmentFull_rollsOverAndReopensWhereItLeftOff() throws IOException {
+    List<TestEvent> testEvents = _dataFactory.createTestEvents(5);
+    List<String> messages = expectedMessages(testEvents);
+    // room for two messages a segment
+    int segmentSize = 2 * (Integer.BYTES + messages.get(0).length() + 64);
+
+    var first =
+        new LocalFileTestEventReportingService(mapper, queueDirectory, segmentSize, Duration.ZERO);
+    testEvents.subList(0, 3).forEach(first::report);
+    first.close();
+    var reopened =
+        new LocalFileTestEventReportingService(mapper, queueDirectory, segmentSize, Duration.ZERO);
+    testEvents.subList(3, 5).forEach(reopened::report);
+
+    assertEquals(messages, reopened.consumer().poll(10));
+    try (Stream<Path> segments = Files.list(queueDirectory)) {
+      assertEquals(3, segments.count());
+    }
+  }
+
+  @Test
+  void reportAsync_withLatency_appendsOnlyOnceSent() throws IOException {
+    TestEvent testEvent = _dataFactory.createTestEvents(1).get(0);
+    var sut =
+        new LocalFileTestEventReportingService(
+            mapper, queueDirectory, 1 << 16, Duration.ofMillis(200));
+    var consumer = sut.consumer();
+
+    CompletableFuture<Void> sent = sut.reportAsync(testEvent);
+    assertFalse(sent.isDone());
+    assertEquals(List.of(), consumer.poll(1));
+
+    sent.join();
+    assertTrue(sent.isDone());
+    assertEquals(expectedMessages(List.of(testEvent)), consumer.poll(1));
+  }
+
+  private List<String> expectedMessages(List<TestEvent> testEvents) throws IOException {
+    List<String> messages = new ArrayList<>();
+    for (TestEvent testEvent : testEvents) {
+      messages.add(mapper.writeValueAsString(new TestEventExport(testEvent)));
+    }
+    return messages;
+  }
+}
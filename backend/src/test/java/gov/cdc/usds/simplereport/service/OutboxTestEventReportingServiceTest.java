@@ -0,0 +1,95 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.azure.core.http.rest.PagedFlux;
+import com.azure.storage.queue.QueueAsyncClient;
+import com.azure.storage.queue.models.QueueMessageItem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.cdc.usds.simplereport.api.model.TestEventExport;
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventOutboxEntry;
+import gov.cdc.usds.simplereport.db.repository.TestEventOutboxRepository;
+import gov.cdc.usds.simplereport.db.repository.TestEventQueueMessageRepository;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+
+@SuppressWarnings("unchecked")
+class OutboxTestEventReportingServiceTest extends BaseServiceTest<TestEventExportService> {
+  private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+  @Autowired private TestEventOutboxRepository _outboxRepo;
+  @Autowired private TestEventQueueMessageRepository _messageRepo;
+
+  @Autowired
+  @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+  private Executor _taskExecutor;
+
+  private QueueAsyncClient client;
+  private OutboxTestEventReportingService sut;
+
+  @BeforeEach
+  void setupReporting() {
+    client = mock(QueueAsyncClient.class);
+    sut =
+        new OutboxTestEventReportingService(
+            new AzureStorageQueueTestEventReportingService(
+                mapper, client, _messageRepo, _taskExecutor),
+            _outboxRepo);
+  }
+
+  @Test
+  void report_exportRecord_writesQueueMessageToOutboxWithoutSending() throws IOException {
+    TestEvent testEvent = _dataFactory.createTestEvents(1).get(0);
+
+    sut.report(_service.toRecord(testEvent));
+
+    verify(client, never()).sendMessage(any(String.class));
+    List<TestEventOutboxEntry> entries = _outboxRepo.findAll();
+    assertEquals(1, entries.size());
+    assertEquals(testEvent.getInternalId(), entries.get(0).getTestEventId());
+    assertEquals(
+        mapper.writeValueAsString(new TestEventExport(testEvent)), entries.get(0).getMessage());
+    assertEquals(0, entries.get(0).getAttempts());
+  }
+
+  @Test
+  void markTestEventIdsAsReported_pendingEntries_removedFromOutbox() {
+    PagedFlux<QueueMessageItem> response = mock(PagedFlux.class);
+    when(response.toIterable()).thenReturn(Set.of());
+    when(client.receiveMessages(anyInt())).thenReturn(response);
+    List<TestEvent> testEvents = _dataFactory.createTestEvents(2);
+    sut.report(testEvents.get(0));
+    sut.report(testEvents.get(1));
+
+    sut.markTestEventIdsAsReported(Set.of(testEvents.get(0).getInternalId()));
+
+    List<TestEventOutboxEntry> entries = _outboxRepo.findAll();
+    assertEquals(1, entries.size());
+    assertEquals(testEvents.get(1).getInternalId(), entries.get(0).getTestEventId());
+    verify(client, never()).sendMessage(any(String.class));
+  }
+
+  @Test
+  void markTestEventIdsAsReported_noEvents_nothingRemoved() {
+    TestEvent testEvent = _dataFactory.createTestEvents(1).get(0);
+    sut.report(testEvent);
+
+    sut.markTestEventIdsAsReported(Set.of());
+
+    assertEquals(1, _outboxRepo.findAll().size());
+    verify(client, never()).receiveMessages(anyInt());
+  }
+}
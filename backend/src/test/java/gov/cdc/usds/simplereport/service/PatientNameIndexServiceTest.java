@@ -0,0 +1,184 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import gov.cdc.usds.simplereport.db.model.Facility;
+import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.db.model.Person;
+import gov.cdc.usds.simplereport.db.model.auxiliary.PersonName;
+import gov.cdc.usds.simplereport.db.model.auxiliary.PersonRole;
+import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportOrgAdminUser;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class PatientNameIndexServiceTest extends BaseServiceTest<PatientNameIndexService> {
+
+  @Autowired private OrganizationService _orgService;
+  @Autowired private PersonService _personService;
+  @Autowired private EntityManager _entityManager;
+  @Autowired private PlatformTransactionManager _transactionManager;
+  @Autowired private JdbcTemplate _jdbc;
+
+  @Value("${spring.jpa.properties.hibernate.default_schema:public}")
+  private String _schema;
+
+  private Organization _org;
+  private Facility _site1;
+  private Facility _site2;
+
+  @BeforeEach
+  void setupData() {
+    initSampleData();
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void findPatients_namesAndFacilities_foundInNameOrder() {
+    makeFacilities();
+    Person amos = makePerson(null, "Amos", null, "Marlowe");
+    Person brad = makePerson(_site1, "Bradley", "Mark", "Jones");
+    Person chaz = makePerson(_site2, "Marcus", null, "Albemarle");
+    makePerson(_site1, "Dexter", null, "Jones");
+
+    Set<UUID> bothSites = Set.of(_site1.getInternalId(), _site2.getInternalId());
+    assertEquals(ids(chaz, brad, amos), _service.findPatients(_org, "mar", bothSites));
+    // patients who do not belong to any facility are found for every facility
+    assertEquals(
+        ids(brad, amos), _service.findPatients(_org, "MAR", Set.of(_site1.getInternalId())));
+    assertEquals(ids(brad), _service.findPatients(_org, "Mark", bothSites));
+    assertEquals(List.of(), _service.findPatients(_org, "mz", bothSites));
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void findPatients_changedThroughPersonService_changesSeenWithoutLoadingAgain() {
+    makeFacilities();
+    Person amos = makePerson(null, "Amos", null, "Marlowe");
+    Person brad = makePerson(_site1, "Bradley", "Mark", "Jones");
+    Set<UUID> sites = Set.of(_site1.getInternalId());
+    assertEquals(ids(brad, amos), _service.findPatients(_org, "ma", sites));
+
+    // not changed through PersonService, so not seen until the names are loaded again
+    makePerson(_site1, "Mabel", null, "Ames");
+
+    _personService.setIsDeleted(amos.getInternalId(), true);
+    assertEquals(ids(brad), _service.findPatients(_org, "ma", sites));
+
+    Person renamed = rename(brad, "Maxwell");
+    assertEquals(ids(renamed), _service.findPatients(_org, "max", sites));
+    assertEquals(ids(renamed), _service.findPatients(_org, "ma", sites));
+    assertEquals(List.of(), _service.findPatients(_org, "brad", sites));
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void findPatients_changedByAnotherInstance_namesLoadedAgain() {
+    makeFacilities();
+    Person amos = makePerson(null, "Amos", null, "Marlowe");
+    Person brad = makePerson(_site1, "Bradley", "Mark", "Jones");
+    Set<UUID> sites = Set.of(_site1.getInternalId());
+    PatientNameIndexService otherInstance =
+        new PatientNameIndexService(_entityManager, _transactionManager, true, Duration.ZERO);
+    assertEquals(ids(brad, amos), otherInstance.findPatients(_org, "ma", sites));
+
+    _personService.setIsDeleted(amos.getInternalId(), true);
+    assertEquals(ids(brad), otherInstance.findPatients(_org, "ma", sites));
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void patientChanged_beforeCommit_versionNotLocked() {
+    makeFacilities();
+    Person amos = makePerson(null, "Amos", null, "Marlowe");
+    Person brad = makePerson(_site1, "Bradley", "Mark", "Jones");
+    Set<UUID> sites = Set.of(_site1.getInternalId());
+    assertEquals(ids(brad, amos), _service.findPatients(_org, "ma", sites));
+
+    new TransactionTemplate(_transactionManager)
+        .executeWithoutResult(
+            status -> {
+              _personService.setIsDeleted(amos.getInternalId(), true);
+              _personService.setIsDeleted(brad.getInternalId(), true);
+              // fails straight away if the changes had locked the organization's version
+              CompletableFuture.runAsync(
+                      () ->
+                          _jdbc.queryForList(
+                              "SELECT version FROM "
+                                  + _schema
+                                  + ".patient_list_version FOR UPDATE NOWAIT"))
+                  .join();
+            });
+
+    assertEquals(List.of(), _service.findPatients(_org, "ma", sites));
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void getPatientsCount_indexBehind_agreesWithGetPatients() {
+    makeFacilities();
+    Person amos = makePerson(null, "Amos", null, "Marlowe");
+    Set<UUID> sites = Set.of(_site1.getInternalId());
+    assertEquals(ids(amos), _service.findPatients(_org, "marl", sites));
+
+    // renamed other than through PersonService, so the index still has the old name
+    _jdbc.update(
+        "UPDATE " + _schema + ".person SET last_name = 'Chandler' WHERE internal_id = ?",
+        amos.getInternalId());
+
+    assertEquals(ids(amos), _service.findPatients(_org, "marl", sites));
+    assertEquals(List.of(), _personService.getPatients(null, 0, 0, false, "marl"));
+    assertEquals(0, _personService.getPatientsCount(null, false, "marl"));
+  }
+
+  private void makeFacilities() {
+    _org = _orgService.getCurrentOrganization();
+    _site1 = _dataFactory.createValidFacility(_org, "First One");
+    _site2 = _dataFactory.createValidFacility(_org, "Second One");
+  }
+
+  private Person makePerson(Facility facility, String first, String middle, String last) {
+    return _dataFactory.createMinimalPerson(
+        _org, facility, new PersonName(first, middle, last, null));
+  }
+
+  private Person rename(Person person, String firstName) {
+    return _personService.updatePatient(
+        person.getFacility().getInternalId(),
+        person.getInternalId(),
+        person.getLookupId(),
+        firstName,
+        person.getMiddleName(),
+        person.getLastName(),
+        person.getSuffix(),
+        LocalDate.of(1865, 12, 25),
+        _dataFactory.getAddress(),
+        null,
+        PersonRole.STAFF,
+        null,
+        null,
+        null,
+        null,
+        null,
+        false,
+        false,
+        null);
+  }
+
+  private static List<UUID> ids(Person... people) {
+    return Arrays.stream(people).map(Person::getInternalId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,117 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.cdc.usds.simplereport.db.model.Facility;
+import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.db.model.Person;
+import gov.cdc.usds.simplereport.test_util.RecordingStatementInspector;
+import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportOrgAdminUser;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Checks the plan Postgres makes for the name search {@link PersonService#getPatients} sends, in an
+ * organization big enough for the plan to matter. Loading the patients takes a while, so this is
+ * tagged "slow", and is run by the slowTest task rather than by test.
+ */
+@Tag("slow")
+@TestPropertySource(
+    properties = {
+      // otherwise searches by name are answered by the name index, without a query
+      "simple-report.patient-name-index.enabled=false",
+      "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+          + "gov.cdc.usds.simplereport.test_util.RecordingStatementInspector",
+    })
+class PersonServiceSearchPlanTest extends BaseServiceTest<PersonService> {
+
+  // a parameter of the search, and what it is compared with (the IN list of facilities is bound
+  // as a whole)
+  private static final Pattern PARAMETER =
+      Pattern.compile(
+          "(organization_id=|is_deleted=|like |limit )\\?"
+              + "|facility_id in \\(\\?(?:\\s*,\\s*\\?)*\\)");
+
+  @Autowired private OrganizationService _orgService;
+  @Autowired private JdbcTemplate _jdbc;
+
+  @Value("${spring.jpa.properties.hibernate.default_schema:public}")
+  private String _schema;
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void getPatients_nameSearchOfMillionPeople_usesNamePrefixIndexes() {
+    initSampleData();
+    Organization org = _orgService.getCurrentOrganization();
+    Person template = _dataFactory.createMinimalPerson(org);
+    // copies of the person, each with its own ID and (random) names
+    _jdbc.update(
+        String.format(
+            "INSERT INTO %1$s.person SELECT (jsonb_populate_record(CAST(NULL AS %1$s.person),"
+                + " to_jsonb(p) || jsonb_build_object("
+                + "'internal_id', md5('person' || n),"
+                + "'first_name', substr(md5('first' || n), 1, 8),"
+                + "'middle_name', substr(md5('middle' || n), 1, 8),"
+                + "'last_name', substr(md5('last' || n), 1, 8)))).*"
+                + " FROM %1$s.person p, generate_series(1, 999999) n"
+                + " WHERE p.internal_id = ?",
+            _schema),
+        template.getInternalId());
+    _jdbc.execute("ANALYZE " + _schema + ".person");
+
+    RecordingStatementInspector.clear();
+    _service.getPatients(null, 0, 0, false, "abc");
+    String search =
+        RecordingStatementInspector.getStatements().stream()
+            .filter(sql -> sql.contains(" like "))
+            .findFirst()
+            .orElseThrow();
+
+    String explained =
+        String.join("\n", _jdbc.queryForList("EXPLAIN " + bind(search, org), String.class));
+    assertTrue(explained.contains("ix__person__organization_id__lower_first_name"));
+    assertTrue(explained.contains("ix__person__organization_id__lower_middle_name"));
+    assertTrue(explained.contains("ix__person__organization_id__lower_last_name"));
+    assertFalse(explained.contains("Seq Scan on person"));
+  }
+
+  // the search, with the values getPatients bound to its parameters written in their place
+  private String bind(String sql, Organization org) {
+    String facilityIds =
+        _orgService.getAccessibleFacilities().stream()
+            .map(Facility::getInternalId)
+            .map(id -> "'" + id + "'")
+            .collect(Collectors.joining(", "));
+    Matcher parameter = PARAMETER.matcher(sql);
+    StringBuffer bound = new StringBuffer();
+    while (parameter.find()) {
+      String comparedWith = parameter.group(1);
+      String value;
+      if (comparedWith == null) {
+        value = "facility_id in (" + facilityIds + ")";
+      } else if (comparedWith.equals("organization_id=")) {
+        value = comparedWith + "'" + org.getInternalId() + "'";
+      } else if (comparedWith.equals("is_deleted=")) {
+        value = comparedWith + "false";
+      } else if (comparedWith.equals("like ")) {
+        value = comparedWith + "'abc%'";
+      } else {
+        value = comparedWith + PersonService.DEFAULT_PAGINATION_PAGESIZE;
+      }
+      parameter.appendReplacement(bound, Matcher.quoteReplacement(value));
+    }
+    parameter.appendTail(bound);
+    String result = bound.toString();
+    // every parameter of the search should have been found above
+    assertFalse(result.contains("?"), result);
+    return result;
+  }
+}
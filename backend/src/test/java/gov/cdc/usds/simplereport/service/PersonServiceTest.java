@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.fail;
 import gov.cdc.usds.simplereport.db.model.Facility;
 import gov.cdc.usds.simplereport.db.model.Organization;
 import gov.cdc.usds.simplereport.db.model.Person;
+import gov.cdc.usds.simplereport.db.model.PersonSummary;
 import gov.cdc.usds.simplereport.db.model.auxiliary.PersonName;
 import gov.cdc.usds.simplereport.db.model.auxiliary.PersonRole;
 import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportEntryOnlyAllFacilitiesUser;
@@ -18,8 +19,10 @@ import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleRepo
 import gov.cdc.usds.simplereport.test_util.TestDataFactory;
 import gov.cdc.usds.simplereport.test_util.TestUserIdentities;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -408,6 +411,42 @@ class PersonServiceTest extends BaseServiceTest<PersonService> {
     assertEquals(0, patients_site2_page2.size());
   }
 
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void getPatientSummariesAfter_onePerPage_sameOrderAsGetPatients() {
+    makedata(true);
+    List<Person> expected = _service.getPatients(null, 0, 100, false, null);
+
+    // one at a time, so that every patient is a cursor, including those with no middle name or
+    // suffix, and the two with the same last name (BRAD and DEXTER)
+    List<PersonSummary> found = new ArrayList<>();
+    List<PersonSummary> page = _service.getPatientSummariesAfter(null, false, null, null, null, 1);
+    while (!page.isEmpty()) {
+      assertEquals(1, page.size());
+      found.addAll(page);
+      PersonSummary last = page.get(0);
+      page =
+          _service.getPatientSummariesAfter(
+              null, false, null, last.getNameInfo(), last.getInternalId(), 1);
+    }
+
+    assertEquals(expected.size(), found.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getInternalId(), found.get(i).getInternalId());
+      assertEquals(expected.get(i).getNameInfo(), found.get(i).getNameInfo());
+    }
+    PersonSummary charles = found.get(0);
+    assertEquals(_site1.getInternalId(), charles.getFacilityId());
+    assertEquals(_site1.getFacilityName(), charles.getFacilityName());
+
+    // the same filters as getPatients
+    List<PersonSummary> site2 =
+        _service.getPatientSummariesAfter(_site2.getInternalId(), false, "ma", null, null, 100);
+    assertEquals(
+        List.of(FRANK, JANNELLE, KACEY),
+        site2.stream().map(PersonSummary::getNameInfo).collect(Collectors.toList()));
+  }
+
   @Test
   @WithSimpleReportOrgAdminUser
   void getPatients_search_OrgAdminUser() {
@@ -446,6 +485,10 @@ class PersonServiceTest extends BaseServiceTest<PersonService> {
 
     assertEquals(0, _service.getPatientsCount(null, false, "M"));
     assertEquals(0, _service.getPatientsCount(null, false, ""));
+
+    // LIKE wildcards are matched literally
+    assertEquals(0, _service.getPatientsCount(null, false, "m%"));
+    assertEquals(0, _service.getPatientsCount(null, false, "_a"));
   }
 
   @Test
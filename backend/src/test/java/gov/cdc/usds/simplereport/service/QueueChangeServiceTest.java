@@ -0,0 +1,81 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gov.cdc.usds.simplereport.api.model.ApiTestOrder;
+import gov.cdc.usds.simplereport.db.model.Facility;
+import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.db.model.Person;
+import gov.cdc.usds.simplereport.db.model.TestOrder;
+import gov.cdc.usds.simplereport.db.model.auxiliary.TestResult;
+import gov.cdc.usds.simplereport.service.model.QueueChange;
+import gov.cdc.usds.simplereport.service.model.QueueChangeType;
+import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportStandardAllFacilitiesUser;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+@WithSimpleReportStandardAllFacilitiesUser
+class QueueChangeServiceTest extends BaseServiceTest<QueueChangeService> {
+
+  @Autowired private OrganizationService _organizationService;
+  @Autowired private TestOrderService _testOrderService;
+
+  @Test
+  void fromPayload_toPayload_sameChange() {
+    QueueChange change =
+        new QueueChange(UUID.randomUUID(), UUID.randomUUID(), QueueChangeType.UPDATED);
+
+    QueueChange received = QueueChange.fromPayload(change.toPayload());
+
+    assertEquals(change.getFacilityId(), received.getFacilityId());
+    assertEquals(change.getTestOrderId(), received.getTestOrderId());
+    assertEquals(change.getType(), received.getType());
+  }
+
+  @Test
+  void fromPayload_notAChange_throws() {
+    assertThrows(IllegalArgumentException.class, () -> QueueChange.fromPayload("1,2"));
+    assertThrows(IllegalArgumentException.class, () -> QueueChange.fromPayload("a,b,ADDED"));
+  }
+
+  @Test
+  void changes_patientAddedToQueue_deliveredByNotification() throws Exception {
+    Organization org = _organizationService.getCurrentOrganization();
+    Facility facility = _organizationService.getFacilities(org).get(0);
+    Person patient = _dataFactory.createFullPerson(org);
+    CompletableFuture<QueueChange> next =
+        _service.changes(facility.getInternalId()).next().toFuture();
+
+    TestOrder order = addToQueue(facility, patient);
+
+    QueueChange change = next.get(10, TimeUnit.SECONDS);
+    assertEquals(QueueChangeType.ADDED, change.getType());
+    assertEquals(order.getInternalId(), change.getTestOrderId());
+    Optional<ApiTestOrder> item =
+        _testOrderService.getQueueItemForSubscribers(change.getTestOrderId());
+    assertTrue(item.isPresent());
+    assertEquals(patient.getInternalId(), item.get().getPatient().getInternalId());
+  }
+
+  private TestOrder addToQueue(Facility facility, Person patient) {
+    return _testOrderService.addPatientToQueue(
+        facility.getInternalId(),
+        patient,
+        "",
+        Collections.<String, Boolean>emptyMap(),
+        false,
+        LocalDate.of(1865, 12, 25),
+        "",
+        TestResult.POSITIVE,
+        LocalDate.of(1865, 12, 25),
+        false);
+  }
+}
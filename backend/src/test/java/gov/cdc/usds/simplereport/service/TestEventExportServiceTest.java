@@ -0,0 +1,73 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import gov.cdc.usds.simplereport.api.model.TestEventExport;
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import gov.cdc.usds.simplereport.db.repository.TestEventExportRepository;
+import gov.cdc.usds.simplereport.db.repository.TestEventRepository;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+class TestEventExportServiceTest extends BaseServiceTest<TestEventExportService> {
+  @Autowired private TestEventRepository _testEventRepo;
+  @Autowired private TestEventExportRepository _exportRepo;
+
+  @Test
+  void backfillExportRecords_missingRows_writtenInBatches() {
+    List<TestEvent> testEvents = _dataFactory.createTestEvents(3);
+    TestEvent first = testEvents.get(0);
+    TestEvent second = testEvents.get(1);
+    TestEvent third = testEvents.get(2);
+    Date cutoff = new Date();
+
+    // oldest first
+    assertEquals(2, _service.backfillExportRecords(cutoff, 2));
+    assertNotNull(_exportRepo.findByTestEventId(first.getInternalId()));
+    assertNotNull(_exportRepo.findByTestEventId(second.getInternalId()));
+    assertNull(_exportRepo.findByTestEventId(third.getInternalId()));
+
+    assertEquals(1, _service.backfillExportRecords(cutoff, 2));
+    assertNotNull(_exportRepo.findByTestEventId(third.getInternalId()));
+    assertEquals(0, _service.backfillExportRecords(cutoff, 2));
+  }
+
+  @Test
+  void backfilledRecords_renderedCsv_matchesDatabind() throws Exception {
+    _dataFactory.createTestEvents(2);
+    Date cutoff = new Date();
+    _service.backfillExportRecords(cutoff, 10);
+
+    List<TestEventExportRecord> stored =
+        _exportRepo.queryMatchAllAfterKey(
+            new Date(0), TestEventRepository.KEYSET_MAX_ID, cutoff, PageRequest.of(0, 10));
+    List<TestEventExport> exported =
+        _testEventRepo
+            .queryMatchAllAfterKey(
+                new Date(0), TestEventRepository.KEYSET_MAX_ID, cutoff, PageRequest.of(0, 10))
+            .stream()
+            .map(TestEventExport::new)
+            .collect(Collectors.toList());
+    assertEquals(2, stored.size());
+
+    CsvMapper mapper = new CsvMapper();
+    mapper
+        .enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING)
+        .enable(CsvGenerator.Feature.ALWAYS_QUOTE_STRINGS)
+        .enable(CsvGenerator.Feature.ALWAYS_QUOTE_EMPTY_STRINGS);
+    CsvSchema schema = mapper.schemaFor(TestEventExport.class).withHeader().withNullValue("\"\"");
+    assertEquals(
+        mapper.writer(schema).writeValueAsString(exported),
+        new TestEventCsvRenderer(0).render(stored));
+  }
+}
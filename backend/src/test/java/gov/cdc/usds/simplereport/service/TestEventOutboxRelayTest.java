@@ -0,0 +1,95 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.azure.storage.queue.QueueAsyncClient;
+import com.azure.storage.queue.models.SendMessageResult;
+import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventOutboxEntry;
+import gov.cdc.usds.simplereport.db.model.TestEventQueueMessage;
+import gov.cdc.usds.simplereport.db.repository.TestEventOutboxRepository;
+import gov.cdc.usds.simplereport.db.repository.TestEventQueueMessageRepository;
+import gov.cdc.usds.simplereport.properties.AzureStorageQueueReportingProperties;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+@SuppressWarnings("unchecked")
+class TestEventOutboxRelayTest extends BaseServiceTest<TestEventExportService> {
+  @Autowired private TestEventOutboxRepository _outboxRepo;
+  @Autowired private TestEventQueueMessageRepository _messageRepo;
+  @Autowired private PlatformTransactionManager _transactionManager;
+
+  @Test
+  void relayDueMessages_mixedResults_deletesDeliveredAndReschedulesFailed() {
+    List<TestEvent> testEvents = _dataFactory.createTestEvents(2);
+    TestEvent delivered = testEvents.get(0);
+    TestEvent failed = testEvents.get(1);
+    _outboxRepo.save(new TestEventOutboxEntry(delivered.getInternalId(), "delivered"));
+    _outboxRepo.save(new TestEventOutboxEntry(failed.getInternalId(), "failed"));
+
+    var client = mock(QueueAsyncClient.class);
+    Mono<SendMessageResult> accepted = mock(Mono.class);
+    when(accepted.toFuture())
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                new SendMessageResult().setMessageId("id").setPopReceipt("receipt")));
+    Mono<SendMessageResult> rejected = mock(Mono.class);
+    when(rejected.toFuture())
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("PANIC")));
+    when(client.sendMessage("delivered")).thenReturn(accepted);
+    when(client.sendMessage("failed")).thenReturn(rejected);
+
+    var relay =
+        new TestEventOutboxRelay(
+            _outboxRepo,
+            _messageRepo,
+            client,
+            new AzureStorageQueueReportingProperties("a", "t", "q", true, 10));
+    Date beforeRelay = new Date();
+    relayInTransaction(relay);
+
+    List<TestEventOutboxEntry> remaining = _outboxRepo.findAll();
+    assertEquals(1, remaining.size());
+    TestEventOutboxEntry retry = remaining.get(0);
+    assertEquals(failed.getInternalId(), retry.getTestEventId());
+    assertEquals(1, retry.getAttempts());
+    assertNotNull(retry.getLastError());
+    assertTrue(retry.getNextAttemptAt().after(beforeRelay));
+    List<TestEventQueueMessage> sent = _messageRepo.findAll();
+    assertEquals(1, sent.size());
+    assertEquals(delivered.getInternalId(), sent.get(0).getTestEventId());
+    assertEquals("receipt", sent.get(0).getPopReceipt());
+
+    // the failed message is not due again yet, so nothing else is sent
+    relayInTransaction(relay);
+    verify(client, times(2)).sendMessage(any(String.class));
+  }
+
+  @Test
+  void retryDelay_repeatedFailures_backsOffUpToAnHour() {
+    assertEquals(Duration.ofSeconds(10), TestEventOutboxRelay.RETRY_BACKOFF.delay(1));
+    assertEquals(Duration.ofSeconds(40), TestEventOutboxRelay.RETRY_BACKOFF.delay(3));
+    assertEquals(Duration.ofHours(1), TestEventOutboxRelay.RETRY_BACKOFF.delay(12));
+    assertEquals(Duration.ofHours(1), TestEventOutboxRelay.RETRY_BACKOFF.delay(1000));
+  }
+
+  private void relayInTransaction(TestEventOutboxRelay relay) {
+    // the relay is normally called through its transactional proxy
+    new TransactionTemplate(_transactionManager)
+        .executeWithoutResult(status -> relay.relayDueMessages());
+  }
+}
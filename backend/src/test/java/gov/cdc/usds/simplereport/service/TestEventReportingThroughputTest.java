@@ -0,0 +1,121 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.cdc.usds.simplereport.db.model.DeviceType;
+import gov.cdc.usds.simplereport.db.model.Facility;
+import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.db.model.Person;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
+import gov.cdc.usds.simplereport.db.model.auxiliary.TestResult;
+import gov.cdc.usds.simplereport.service.sms.SmsService;
+import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportOrgAdminUser;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Measures end-to-end result submission ({@link TestOrderService#addTestResult}) with each of the
+ * local reporting backends plugged in. The throughput of each is logged (see the output saved to
+ * backend/build/test-results/test); the test itself only checks that every result was reported.
+ */
+@WithSimpleReportOrgAdminUser
+class TestEventReportingThroughputTest extends BaseServiceTest<TestOrderService> {
+  private static final Logger LOG = LoggerFactory.getLogger(TestEventReportingThroughputTest.class);
+  private static final int RESULTS_PER_BACKEND = 25;
+
+  @Autowired private OrganizationService _organizationService;
+  @Autowired private TestEventReportingService _configuredReportingService;
+  @MockBean private SmsService _smsService;
+
+  @TempDir Path queueDirectory;
+
+  private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+  private Facility facility;
+  private DeviceType device;
+
+  @BeforeEach
+  void setupData() {
+    initSampleData();
+    facility =
+        _organizationService.getFacilities(_organizationService.getCurrentOrganization()).get(0);
+    device = _dataFactory.getGenericDevice();
+  }
+
+  @Test
+  void addTestResult_eachReportingBackend_throughputLogged() throws IOException {
+    TestEventReportingService noop = mock(TestEventReportingService.class);
+    when(noop.reportAsync(any(TestEventExportRecord.class)))
+        .thenReturn(CompletableFuture.completedFuture(null));
+    measure("no-op", noop);
+
+    var localFile =
+        new LocalFileTestEventReportingService(
+            mapper, queueDirectory.resolve("fast"), 1 << 20, Duration.ZERO);
+    measure("local file", localFile);
+    assertEquals(RESULTS_PER_BACKEND, localFile.consumer().poll(2 * RESULTS_PER_BACKEND).size());
+
+    var slowLocalFile =
+        new LocalFileTestEventReportingService(
+            mapper, queueDirectory.resolve("slow"), 1 << 20, Duration.ofMillis(20));
+    measure("local file, 20ms latency", slowLocalFile);
+    assertEquals(
+        RESULTS_PER_BACKEND, slowLocalFile.consumer().poll(2 * RESULTS_PER_BACKEND).size());
+  }
+
+  private void measure(String backendName, TestEventReportingService backend) {
+    Organization org = _organizationService.getCurrentOrganization();
+    List<Person> patients = new ArrayList<>();
+    for (int i = 0; i < RESULTS_PER_BACKEND; i++) {
+      Person patient = _dataFactory.createFullPerson(org);
+      _service.addPatientToQueue(
+          facility.getInternalId(),
+          patient,
+          "",
+          Collections.<String, Boolean>emptyMap(),
+          false,
+          LocalDate.of(1865, 12, 25),
+          "",
+          TestResult.POSITIVE,
+          LocalDate.of(1865, 12, 25),
+          false);
+      patients.add(patient);
+    }
+
+    ReflectionTestUtils.setField(_service, "_testEventReportingService", backend);
+    try {
+      long start = System.nanoTime();
+      for (Person patient : patients) {
+        _service.addTestResult(
+            device.getInternalId().toString(), TestResult.NEGATIVE, patient.getInternalId(), null);
+      }
+      long elapsed = System.nanoTime() - start;
+      LOG.info(
+          "{}: {} results in {}ms ({} results/s)",
+          backendName,
+          RESULTS_PER_BACKEND,
+          elapsed / 1_000_000,
+          RESULTS_PER_BACKEND * 1_000_000_000L / elapsed);
+    } finally {
+      ReflectionTestUtils.setField(
+          _service, "_testEventReportingService", _configuredReportingService);
+    }
+  }
+}
@@ -1,23 +1,32 @@
 package gov.cdc.usds.simplereport.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.google.i18n.phonenumbers.NumberParseException;
+import gov.cdc.usds.simplereport.api.model.AddPatientToQueueItemResponse;
 import gov.cdc.usds.simplereport.api.model.AddTestResultResponse;
+import gov.cdc.usds.simplereport.api.model.AddTestResultsItemResponse;
+import gov.cdc.usds.simplereport.api.model.ApiTestOrder;
+import gov.cdc.usds.simplereport.api.model.QueueSnapshot;
+import gov.cdc.usds.simplereport.api.model.TestResultInput;
 import gov.cdc.usds.simplereport.api.model.errors.NonexistentQueueItemException;
 import gov.cdc.usds.simplereport.db.model.DeviceType;
 import gov.cdc.usds.simplereport.db.model.Facility;
 import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.db.model.PatientLink;
 import gov.cdc.usds.simplereport.db.model.Person;
 import gov.cdc.usds.simplereport.db.model.TestEvent;
+import gov.cdc.usds.simplereport.db.model.TestEventExportRecord;
 import gov.cdc.usds.simplereport.db.model.TestOrder;
 import gov.cdc.usds.simplereport.db.model.auxiliary.AskOnEntrySurvey;
 import gov.cdc.usds.simplereport.db.model.auxiliary.PersonName;
@@ -25,6 +34,7 @@ import gov.cdc.usds.simplereport.db.model.auxiliary.PersonRole;
 import gov.cdc.usds.simplereport.db.model.auxiliary.TestCorrectionStatus;
 import gov.cdc.usds.simplereport.db.model.auxiliary.TestResult;
 import gov.cdc.usds.simplereport.db.model.auxiliary.TestResultDeliveryPreference;
+import gov.cdc.usds.simplereport.db.repository.TestEventExportRepository;
 import gov.cdc.usds.simplereport.service.sms.SmsService;
 import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportEntryOnlyAllFacilitiesUser;
 import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportEntryOnlyUser;
@@ -38,6 +48,7 @@ import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -46,6 +57,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
 import org.springframework.security.access.AccessDeniedException;
 
 @SuppressWarnings("checkstyle:MagicNumber")
@@ -54,6 +66,7 @@ class TestOrderServiceTest extends BaseServiceTest<TestOrderService> {
   @Autowired private OrganizationService _organizationService;
   @Autowired private PersonService _personService;
   @Autowired private TestDataFactory _dataFactory;
+  @Autowired private TestEventExportRepository _exportRepo;
   @MockBean private SmsService _smsService;
 
   private static final PersonName AMOS = new PersonName("Amos", null, "Quint", null);
@@ -286,12 +299,91 @@ class TestOrderServiceTest extends BaseServiceTest<TestOrderService> {
     _service.addTestResult(
         devA.getInternalId().toString(), TestResult.POSITIVE, p.getInternalId(), null);
 
-    verify(_smsService).sendToPatientLink(any(UUID.class), anyString());
+    verify(_smsService).sendToPatientLinks(anyMap());
 
     List<TestOrder> queue = _service.getQueue(facility.getInternalId());
     assertEquals(0, queue.size());
   }
 
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void addTestResult_exportRecordWritten() {
+    Organization org = _organizationService.getCurrentOrganization();
+    Facility facility = _organizationService.getFacilities(org).get(0);
+    Person p = _dataFactory.createFullPerson(org);
+    _service.addPatientToQueue(
+        facility.getInternalId(),
+        p,
+        "",
+        Collections.<String, Boolean>emptyMap(),
+        false,
+        LocalDate.of(1865, 12, 25),
+        "",
+        TestResult.POSITIVE,
+        LocalDate.of(1865, 12, 25),
+        false);
+    DeviceType devA = _dataFactory.getGenericDevice();
+
+    _service.addTestResult(
+        devA.getInternalId().toString(), TestResult.POSITIVE, p.getInternalId(), null);
+
+    List<TestEvent> results =
+        _service.getTestEventsResults(
+            facility.getInternalId(), null, null, null, null, null, 0, 50);
+    assertEquals(1, results.size());
+    TestEvent event = results.get(0);
+    TestEventExportRecord exportRecord = _exportRepo.findByTestEventId(event.getInternalId());
+    assertNotNull(exportRecord);
+    assertEquals(event.getCreatedAt(), exportRecord.getCreatedAt());
+    Map<String, String> values = exportRecord.getExportValues();
+    assertEquals(event.getInternalId().toString(), values.get("Result_ID"));
+    assertEquals(p.getInternalId().toString(), values.get("Patient_ID"));
+    assertEquals(p.getLastName(), values.get("Patient_last_name"));
+    assertEquals("260373001", values.get("Test_result_code"));
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void getQueueSnapshot_sinceCurrentVersion_unchangedWithoutFetchingQueue() {
+    Organization org = _organizationService.getCurrentOrganization();
+    Facility facility = _organizationService.getFacilities(org).get(0);
+    Person p = _dataFactory.createFullPerson(org);
+    _service.addPatientToQueue(
+        facility.getInternalId(),
+        p,
+        "",
+        Collections.<String, Boolean>emptyMap(),
+        false,
+        LocalDate.of(1865, 12, 25),
+        "",
+        TestResult.POSITIVE,
+        LocalDate.of(1865, 12, 25),
+        false);
+
+    long startQueryCount = _hibernateQueryInterceptor.getQueryCount();
+    QueueSnapshot first = _service.getQueueSnapshot(facility.getInternalId(), null);
+    long fetchQueryCount = _hibernateQueryInterceptor.getQueryCount() - startQueryCount;
+    assertFalse(first.getUnchanged());
+    assertEquals(1, first.getQueue().size());
+
+    startQueryCount = _hibernateQueryInterceptor.getQueryCount();
+    QueueSnapshot second =
+        _service.getQueueSnapshot(facility.getInternalId(), Long.valueOf(first.getVersion()));
+    long unchangedQueryCount = _hibernateQueryInterceptor.getQueryCount() - startQueryCount;
+    assertTrue(second.getUnchanged());
+    assertNull(second.getQueue());
+    assertEquals(first.getVersion(), second.getVersion());
+    // only the authorization checks: the queue itself is never fetched
+    assertTrue(unchangedQueryCount < fetchQueryCount);
+
+    _service.removePatientFromQueue(p.getInternalId());
+    QueueSnapshot third =
+        _service.getQueueSnapshot(facility.getInternalId(), Long.valueOf(first.getVersion()));
+    assertFalse(third.getUnchanged());
+    assertEquals(0, third.getQueue().size());
+    assertTrue(Long.valueOf(third.getVersion()) > Long.valueOf(first.getVersion()));
+  }
+
   @Test
   @WithSimpleReportStandardAllFacilitiesUser
   void addTestResult_standardUserAllFacilities_ok() throws NumberParseException {
@@ -467,7 +559,7 @@ class TestOrderServiceTest extends BaseServiceTest<TestOrderService> {
     _service.addTestResult(
         devA.getInternalId().toString(), TestResult.POSITIVE, p.getInternalId(), null);
 
-    verify(_smsService).sendToPatientLink(any(UUID.class), anyString());
+    verify(_smsService).sendToPatientLinks(anyMap());
 
     List<TestOrder> queue = _service.getQueue(facility.getInternalId());
     assertEquals(0, queue.size());
@@ -525,7 +617,12 @@ class TestOrderServiceTest extends BaseServiceTest<TestOrderService> {
         false);
     DeviceType devA = _dataFactory.getGenericDevice();
 
-    doThrow(NumberParseException.class).when(_smsService).sendToPatientLink(any(), any());
+    // a number that cannot be parsed is not sent
+    when(_smsService.sendToPatientLinks(anyMap()))
+        .thenAnswer(
+            inv ->
+                inv.<Map<UUID, String>>getArgument(0).keySet().stream()
+                    .collect(Collectors.toMap(id -> id, id -> false)));
 
     AddTestResultResponse res =
         _service.addTestResult(
@@ -534,6 +631,163 @@ class TestOrderServiceTest extends BaseServiceTest<TestOrderService> {
     assertEquals(false, res.getDeliverySuccess());
   }
 
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void addTestResults_mixedBatch_recordsValidResultsAndReportsEachFailure() {
+    Organization org = _organizationService.getCurrentOrganization();
+    Facility facility = _organizationService.getFacilities(org).get(0);
+    Person amos = _dataFactory.createMinimalPerson(org, facility, AMOS);
+    Person brad = _dataFactory.createMinimalPerson(org, facility, BRAD);
+    Person charles = _dataFactory.createMinimalPerson(org, facility, CHARLES);
+    _dataFactory.createTestOrder(amos, facility);
+    _dataFactory.createTestOrder(brad, facility);
+    String device = _dataFactory.getGenericDevice().getInternalId().toString();
+
+    List<AddTestResultsItemResponse> responses =
+        _service.addTestResults(
+            List.of(
+                new TestResultInput(amos.getInternalId(), device, "POSITIVE", null),
+                new TestResultInput(charles.getInternalId(), device, "NEGATIVE", null),
+                new TestResultInput(
+                    brad.getInternalId(), UUID.randomUUID().toString(), "NEGATIVE", null),
+                new TestResultInput(brad.getInternalId(), device, "NEGATIVE", null),
+                new TestResultInput(amos.getInternalId(), device, "NEGATIVE", null)));
+
+    assertEquals(5, responses.size());
+    assertNull(responses.get(0).getError());
+    assertEquals("POSITIVE", responses.get(0).getTestResult().getResult());
+    assertEquals("No active test order was found for that patient", responses.get(1).getError());
+    assertNull(responses.get(1).getTestResult());
+    assertEquals("Device is not configured with a specimen type", responses.get(2).getError());
+    assertNull(responses.get(3).getError());
+    assertEquals("NEGATIVE", responses.get(3).getTestResult().getResult());
+    // a patient's order can only be completed once
+    assertEquals("No active test order was found for that patient", responses.get(4).getError());
+
+    assertEquals(0, _service.getQueue(facility.getInternalId()).size());
+    List<TestEvent> results =
+        _service.getTestEventsResults(
+            facility.getInternalId(), null, null, null, null, null, 0, 50);
+    assertEquals(2, results.size());
+    for (TestEvent event : results) {
+      assertNotNull(_exportRepo.findByTestEventId(event.getInternalId()));
+    }
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void addPatientsToQueue_roster_addsEligiblePatientsAndReportsTheRest() {
+    Organization org = _organizationService.getCurrentOrganization();
+    Facility facility = _organizationService.getFacilities(org).get(0);
+    Person amos = _dataFactory.createMinimalPerson(org, facility, AMOS);
+    Person brad = _dataFactory.createMinimalPerson(org, facility, BRAD);
+    Person charles = _dataFactory.createMinimalPerson(org, facility, CHARLES);
+    _dataFactory.createTestOrder(charles, facility);
+    UUID nobody = UUID.randomUUID();
+    Map<UUID, AskOnEntrySurvey> surveys = new LinkedHashMap<>();
+    for (UUID patientId :
+        List.of(amos.getInternalId(), brad.getInternalId(), charles.getInternalId(), nobody)) {
+      surveys.put(patientId, emptySurvey());
+    }
+
+    List<AddPatientToQueueItemResponse> responses =
+        _service.addPatientsToQueue(facility.getInternalId(), surveys);
+
+    assertEquals(4, responses.size());
+    assertNull(responses.get(0).getError());
+    assertNotNull(responses.get(0).getPatientLinkId());
+    assertEquals(amos.getInternalId(), responses.get(0).getPatientId());
+    assertNull(responses.get(1).getError());
+    assertEquals(
+        "Cannot create multiple queue entries for the same patient", responses.get(2).getError());
+    assertNull(responses.get(2).getPatientLinkId());
+    assertEquals("No patient with that ID was found", responses.get(3).getError());
+    assertEquals(3, _service.getQueue(facility.getInternalId()).size());
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void addPatientsToQueue_largerRoster_sameNumberOfStatements() {
+    Organization org = _organizationService.getCurrentOrganization();
+    Facility facility = _organizationService.getFacilities(org).get(0);
+    _service.addPatientsToQueue(facility.getInternalId(), roster(org, 1));
+    Map<UUID, AskOnEntrySurvey> small = roster(org, 2);
+    Map<UUID, AskOnEntrySurvey> large = roster(org, 20);
+
+    long start = _hibernateQueryInterceptor.getQueryCount();
+    _service.addPatientsToQueue(facility.getInternalId(), small);
+    long smallCount = _hibernateQueryInterceptor.getQueryCount() - start;
+    start = _hibernateQueryInterceptor.getQueryCount();
+    _service.addPatientsToQueue(facility.getInternalId(), large);
+    long largeCount = _hibernateQueryInterceptor.getQueryCount() - start;
+
+    // lookups are set-based and the inserts are batched, so the size of the roster costs nothing
+    assertEquals(smallCount, largeCount);
+    assertEquals(23, _service.getQueue(facility.getInternalId()).size());
+  }
+
+  private Map<UUID, AskOnEntrySurvey> roster(Organization org, int size) {
+    Map<UUID, AskOnEntrySurvey> surveys = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      surveys.put(_dataFactory.createMinimalPerson(org).getInternalId(), emptySurvey());
+    }
+    return surveys;
+  }
+
+  private static AskOnEntrySurvey emptySurvey() {
+    return new AskOnEntrySurvey(null, Collections.emptyMap(), null, null, null, null, null, null);
+  }
+
+  @Test
+  void getQueue_largeQueue_sameNumberOfStatements() {
+    Organization org = _organizationService.getCurrentOrganization();
+    Facility facility = _organizationService.getFacilities(org).get(0);
+    queueWithLinks(org, facility, 1);
+    long start = _hibernateQueryInterceptor.getQueryCount();
+    List<TestOrder> small = _service.getQueue(facility.getInternalId());
+    long smallCount = _hibernateQueryInterceptor.getQueryCount() - start;
+    queueWithLinks(org, facility, 199);
+    start = _hibernateQueryInterceptor.getQueryCount();
+    List<TestOrder> large = _service.getQueue(facility.getInternalId());
+    long largeCount = _hibernateQueryInterceptor.getQueryCount() - start;
+
+    assertEquals(1, small.size());
+    assertEquals(200, large.size());
+    assertEquals(smallCount, largeCount);
+    // the session is closed by now, so anything the queue shows that was not fetched with it fails
+    for (TestOrder order : large) {
+      ApiTestOrder item = new ApiTestOrder(order);
+      assertNotNull(item.getPatient().getTelephone());
+      assertNotNull(item.getPatient().getLastName());
+      assertNotNull(item.getDeviceType().getName());
+      assertNotNull(item.getPatientLink().getInternalId());
+      assertNotNull(item.getSymptoms());
+    }
+  }
+
+  @Test
+  void getQueue_severalLinks_onlyNewestLoaded() throws InterruptedException {
+    Organization org = _organizationService.getCurrentOrganization();
+    Facility facility = _organizationService.getFacilities(org).get(0);
+    TestOrder order = _dataFactory.createTestOrder(_dataFactory.createFullPerson(org), facility);
+    _dataFactory.createPatientLink(order);
+    // links made in the same millisecond would be equally new
+    Thread.sleep(10);
+    PatientLink newest = _dataFactory.createPatientLink(order);
+
+    List<TestOrder> queue = _service.getQueue(facility.getInternalId());
+
+    assertEquals(1, queue.size());
+    assertEquals(newest.getInternalId(), queue.get(0).getPatientLink().getInternalId());
+  }
+
+  private void queueWithLinks(Organization org, Facility facility, int size) {
+    for (int i = 0; i < size; i++) {
+      Person p = _dataFactory.createFullPerson(org);
+      _dataFactory.createPatientLink(_dataFactory.createTestOrder(p, facility));
+    }
+  }
+
   @Test
   @WithSimpleReportStandardAllFacilitiesUser
   void editTestResult_standardAllFacilitiesUser_ok() {
@@ -886,6 +1140,10 @@ class TestOrderServiceTest extends BaseServiceTest<TestOrderService> {
 
     assertEquals(TestCorrectionStatus.REMOVED, deleteMarkerEvent.getCorrectionStatus());
     assertEquals(reasonMsg, deleteMarkerEvent.getReasonForCorrection());
+    TestEventExportRecord exportRecord =
+        _exportRepo.findByTestEventId(deleteMarkerEvent.getInternalId());
+    assertEquals(
+        _e.getInternalId().toString(), exportRecord.getExportValues().get("Corrected_result_ID"));
 
     assertEquals(_e.getTestOrder().getInternalId(), _e.getTestOrderId());
 
@@ -1074,6 +1332,60 @@ class TestOrderServiceTest extends BaseServiceTest<TestOrderService> {
     assertEquals(11, size);
   }
 
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void getTestEventsResultsPage_severalPages_countedOnce() {
+    List<TestEvent> testEvents = makedata();
+    Collections.reverse(testEvents);
+
+    Page<TestEvent> page0 =
+        _service.getTestEventsResultsPage(
+            _site.getInternalId(), null, null, null, null, null, 0, 5);
+    assertEquals(11, page0.getTotalElements());
+    assertTestResultsList(page0.getContent(), testEvents.subList(0, 5));
+
+    // the count is remembered, so the next page (and the count on its own) cost no more than
+    // fetching the page of results alone
+    long startQueryCount = _hibernateQueryInterceptor.getQueryCount();
+    _service.getTestEventsResults(_site.getInternalId(), null, null, null, null, null, 1, 5);
+    long resultsOnlyCount = _hibernateQueryInterceptor.getQueryCount() - startQueryCount;
+    startQueryCount = _hibernateQueryInterceptor.getQueryCount();
+    Page<TestEvent> page1 =
+        _service.getTestEventsResultsPage(
+            _site.getInternalId(), null, null, null, null, null, 1, 5);
+    assertEquals(
+        11, _service.getTestResultsCount(_site.getInternalId(), null, null, null, null, null));
+    assertEquals(resultsOnlyCount, _hibernateQueryInterceptor.getQueryCount() - startQueryCount);
+    assertEquals(11, page1.getTotalElements());
+    assertTestResultsList(page1.getContent(), testEvents.subList(5, 10));
+
+    // the last page is not full, so it says where the results end without any count
+    Page<TestEvent> page2 =
+        _service.getTestEventsResultsPage(
+            _site.getInternalId(), null, null, null, null, null, 2, 5);
+    assertEquals(11, page2.getTotalElements());
+    assertTestResultsList(page2.getContent(), testEvents.subList(10, 11));
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void getTestResultsCount_resultRecorded_countedAgain() {
+    makedata();
+    assertEquals(
+        11, _service.getTestResultsCount(_site.getInternalId(), null, null, null, null, null));
+    Person p = _dataFactory.createFullPerson(_organizationService.getCurrentOrganization());
+    _dataFactory.createTestOrder(p, _site);
+
+    _service.addTestResult(
+        _dataFactory.getGenericDevice().getInternalId().toString(),
+        TestResult.POSITIVE,
+        p.getInternalId(),
+        null);
+
+    assertEquals(
+        12, _service.getTestResultsCount(_site.getInternalId(), null, null, null, null, null));
+  }
+
   private List<TestEvent> makedata() {
     Organization org = _organizationService.getCurrentOrganization();
     _site = _dataFactory.createValidFacility(org, "The Facility");
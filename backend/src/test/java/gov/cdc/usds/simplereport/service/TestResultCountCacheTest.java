@@ -0,0 +1,48 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class TestResultCountCacheTest {
+  private static final UUID FACILITY = UUID.randomUUID();
+  private static final UUID OTHER_FACILITY = UUID.randomUUID();
+
+  private final TestResultCountCache _cache = new TestResultCountCache(Duration.ofMinutes(1));
+  private final AtomicInteger _counts = new AtomicInteger();
+
+  private int count() {
+    return _counts.incrementAndGet();
+  }
+
+  @Test
+  void getCount_sameSearch_countedOnce() {
+    assertEquals(1, _cache.getCount(FACILITY, List.of("POSITIVE"), this::count));
+    assertEquals(1, _cache.getCount(FACILITY, List.of("POSITIVE"), this::count));
+    assertEquals(2, _cache.getCount(FACILITY, List.of("NEGATIVE"), this::count));
+    assertEquals(3, _cache.getCount(OTHER_FACILITY, List.of("POSITIVE"), this::count));
+  }
+
+  @Test
+  void getCount_resultsRecorded_countedAgainAtThatFacilityOnly() {
+    _cache.getCount(FACILITY, List.of("POSITIVE"), this::count);
+    _cache.getCount(OTHER_FACILITY, List.of("POSITIVE"), this::count);
+
+    _cache.resultsRecorded(List.of(FACILITY));
+
+    assertEquals(3, _cache.getCount(FACILITY, List.of("POSITIVE"), this::count));
+    assertEquals(2, _cache.getCount(OTHER_FACILITY, List.of("POSITIVE"), this::count));
+  }
+
+  @Test
+  void getCount_expired_countedAgain() throws InterruptedException {
+    TestResultCountCache cache = new TestResultCountCache(Duration.ofMillis(1));
+    cache.getCount(FACILITY, List.of("POSITIVE"), this::count);
+    Thread.sleep(5);
+    assertEquals(2, cache.getCount(FACILITY, List.of("POSITIVE"), this::count));
+  }
+}
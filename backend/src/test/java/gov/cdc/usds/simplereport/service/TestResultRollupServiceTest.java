@@ -0,0 +1,88 @@
+package gov.cdc.usds.simplereport.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import gov.cdc.usds.simplereport.db.model.Facility;
+import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.db.model.Person;
+import gov.cdc.usds.simplereport.db.model.auxiliary.TestResult;
+import gov.cdc.usds.simplereport.db.repository.TestEventRepository;
+import gov.cdc.usds.simplereport.test_util.SliceTestConfiguration.WithSimpleReportOrgAdminUser;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+class TestResultRollupServiceTest extends BaseServiceTest<TestResultRollupService> {
+
+  private static final LocalDate FIRST_DAY = LocalDate.of(2021, 3, 1);
+  private static final LocalDate SECOND_DAY = LocalDate.of(2021, 3, 2);
+
+  @Autowired private OrganizationService _organizationService;
+  @Autowired private TestOrderService _testOrderService;
+  @Autowired private TestEventRepository _testEventRepo;
+
+  private Facility _site;
+
+  @BeforeEach
+  void setupData() {
+    initSampleData();
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void getSummary_resultsRecordedAndRemoved_currentResultsCounted() {
+    Organization org = _organizationService.getCurrentOrganization();
+    _site = _organizationService.getFacilities(org).get(0);
+    recordResult(org, TestResult.POSITIVE, FIRST_DAY);
+    Person removed = recordResult(org, TestResult.POSITIVE, FIRST_DAY);
+    recordResult(org, TestResult.NEGATIVE, FIRST_DAY);
+    recordResult(org, TestResult.NEGATIVE, SECOND_DAY);
+    recordResult(org, TestResult.NEGATIVE, SECOND_DAY.plusDays(1));
+
+    _testOrderService.correctTestMarkAsError(
+        _testEventRepo.findFirst1ByPatientOrderByCreatedAtDesc(removed).getInternalId(),
+        "Wrong patient");
+
+    assertEquals(
+        List.of(
+            FIRST_DAY + " POSITIVE 1", FIRST_DAY + " NEGATIVE 1", SECOND_DAY + " NEGATIVE 1"),
+        summary(FIRST_DAY, SECOND_DAY));
+  }
+
+  @Test
+  @WithSimpleReportOrgAdminUser
+  void getSummary_onlyResultRemoved_dayLeftOut() {
+    Organization org = _organizationService.getCurrentOrganization();
+    _site = _organizationService.getFacilities(org).get(0);
+    Person removed = recordResult(org, TestResult.UNDETERMINED, FIRST_DAY);
+
+    _testOrderService.correctTestMarkAsError(
+        _testEventRepo.findFirst1ByPatientOrderByCreatedAtDesc(removed).getInternalId(),
+        "Wrong patient");
+
+    assertEquals(List.of(), summary(FIRST_DAY, SECOND_DAY));
+  }
+
+  private Person recordResult(Organization org, TestResult result, LocalDate day) {
+    Person patient = _dataFactory.createFullPerson(org);
+    _dataFactory.createTestOrder(patient, _site);
+    Date dateTested = Date.from(day.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant());
+    _testOrderService.addTestResult(
+        _dataFactory.getGenericDevice().getInternalId().toString(),
+        result,
+        patient.getInternalId(),
+        dateTested);
+    return patient;
+  }
+
+  private List<String> summary(LocalDate startDate, LocalDate endDate) {
+    return _service.getSummary(_site.getInternalId(), startDate, endDate).stream()
+        .map(c -> c.getDate() + " " + c.getResult() + " " + c.getCount())
+        .collect(Collectors.toList());
+  }
+}
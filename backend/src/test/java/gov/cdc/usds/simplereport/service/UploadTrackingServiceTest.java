@@ -9,6 +9,7 @@ import gov.cdc.usds.simplereport.db.model.auxiliary.DataHubUploadStatus;
 import gov.cdc.usds.simplereport.db.repository.DataHubUploadRespository;
 import java.sql.Date;
 import java.util.List;
+import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -32,6 +33,18 @@ class UploadTrackingServiceTest extends BaseServiceTest<UploadTrackingService> {
     assertEquals("", upload.getErrorMessage());
     assertNull(upload.getLatestRecordedTimestamp());
     assertEquals(0, upload.getRecordsProcessed());
+    assertNull(upload.getEarliestRecordedInternalId());
+  }
+
+  @Test
+  void startUpload_validKeyset_keysetSaved() {
+    Date startDate = Date.valueOf("2019-09-21");
+    UUID startId = UUID.randomUUID();
+    DataHubUpload upload = _service.startUpload(startDate, startId);
+
+    upload = _repo.findById(upload.getInternalId()).orElseThrow();
+    assertEquals(startDate, upload.getEarliestRecordedTimestamp());
+    assertEquals(startId, upload.getEarliestRecordedInternalId());
   }
 
   @Test
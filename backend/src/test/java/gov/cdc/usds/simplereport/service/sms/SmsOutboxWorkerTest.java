@@ -0,0 +1,183 @@
+package gov.cdc.usds.simplereport.service.sms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import gov.cdc.usds.simplereport.db.model.Facility;
+import gov.cdc.usds.simplereport.db.model.Organization;
+import gov.cdc.usds.simplereport.db.model.PatientLink;
+import gov.cdc.usds.simplereport.db.model.SmsOutboxEntry;
+import gov.cdc.usds.simplereport.db.model.TextMessageSent;
+import gov.cdc.usds.simplereport.db.repository.SmsOutboxRepository;
+import gov.cdc.usds.simplereport.db.repository.TextMessageSentRepository;
+import gov.cdc.usds.simplereport.properties.SmsOutboxProperties;
+import gov.cdc.usds.simplereport.service.BaseServiceTest;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class SmsOutboxWorkerTest extends BaseServiceTest<SmsService> {
+  private static final String FROM = "+12023014570";
+  private static final SmsOutboxProperties PROPERTIES =
+      new SmsOutboxProperties(0, 10, Duration.ofSeconds(1), 1, 5, 10);
+
+  @Autowired private SmsOutboxRepository _outboxRepo;
+  @Autowired private TextMessageSentRepository _tmsRepo;
+  @Autowired private PlatformTransactionManager _transactionManager;
+  @Autowired private JdbcTemplate _jdbc;
+
+  @Value("${spring.jpa.properties.hibernate.default_schema:public}")
+  private String _schema;
+
+  @Test
+  void sendDueMessages_mixedResults_recordsSentAndReschedulesFailed() {
+    PatientLink link = createPatientLink();
+    _outboxRepo.save(new SmsOutboxEntry(link, "+12025550100", FROM, "sent"));
+    _outboxRepo.save(new SmsOutboxEntry(link, "+12025550101", FROM, "failed"));
+
+    SmsProviderWrapper provider = mock(SmsProviderWrapper.class);
+    when(provider.send(any(), any(), eq("sent"))).thenReturn("twilio-id");
+    when(provider.send(any(), any(), eq("failed"))).thenThrow(new RuntimeException("PANIC"));
+    SmsOutboxWorker worker =
+        new SmsOutboxWorker(
+            _outboxRepo,
+            _tmsRepo,
+            provider,
+            new SmsRateLimiter(PROPERTIES),
+            _transactionManager,
+            PROPERTIES);
+    Date beforeSending = new Date();
+    assertEquals(1, worker.sendDueMessages());
+
+    List<SmsOutboxEntry> remaining = _outboxRepo.findAll();
+    assertEquals(1, remaining.size());
+    SmsOutboxEntry retry = remaining.get(0);
+    assertEquals("failed", retry.getMessage());
+    assertEquals(1, retry.getAttempts());
+    assertNotNull(retry.getLastError());
+    assertTrue(retry.getNextAttemptAt().after(beforeSending));
+    List<TextMessageSent> sent =
+        StreamSupport.stream(_tmsRepo.findAll().spliterator(), false)
+            .collect(Collectors.toList());
+    assertEquals(1, sent.size());
+    assertEquals("twilio-id", sent.get(0).getTwilioMessageId());
+    assertEquals(link.getInternalId(), sent.get(0).getPatientLink().getInternalId());
+
+    // the failed message is not due again yet, so nothing else is sent
+    assertEquals(0, worker.sendDueMessages());
+    verify(provider, times(2)).send(any(), any(), any());
+  }
+
+  @Test
+  void sendDueMessages_overRateLimit_postponesWithoutCountingAnAttempt() {
+    PatientLink link = createPatientLink();
+    _outboxRepo.save(new SmsOutboxEntry(link, "+12025550100", FROM, "first"));
+    _outboxRepo.save(new SmsOutboxEntry(link, "+12025550101", FROM, "second"));
+
+    // a clock that never moves: the one token in the bucket is never replaced
+    SmsOutboxWorker worker =
+        new SmsOutboxWorker(
+            _outboxRepo,
+            _tmsRepo,
+            new FakeSmsProvider(Duration.ZERO),
+            new SmsRateLimiter(1, 1, () -> 0L),
+            _transactionManager,
+            PROPERTIES);
+    Date beforeSending = new Date();
+    assertEquals(1, worker.sendDueMessages());
+
+    List<SmsOutboxEntry> remaining = _outboxRepo.findAll();
+    assertEquals(1, remaining.size());
+    SmsOutboxEntry postponed = remaining.get(0);
+    assertEquals(0, postponed.getAttempts());
+    assertNull(postponed.getLastError());
+    assertTrue(postponed.getNextAttemptAt().after(beforeSending));
+  }
+
+  @Test
+  void sendDueMessages_whileSending_outboxNotLocked() {
+    PatientLink link = createPatientLink();
+    _outboxRepo.save(new SmsOutboxEntry(link, "+12025550100", FROM, "sent"));
+
+    SmsProviderWrapper provider = mock(SmsProviderWrapper.class);
+    when(provider.send(any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              // fails straight away if the claim's lock were still held
+              _jdbc.queryForList(
+                  "SELECT internal_id FROM " + _schema + ".sms_outbox FOR UPDATE NOWAIT");
+              return "twilio-id";
+            });
+    SmsOutboxWorker worker =
+        new SmsOutboxWorker(
+            _outboxRepo,
+            _tmsRepo,
+            provider,
+            new SmsRateLimiter(PROPERTIES),
+            _transactionManager,
+            PROPERTIES);
+
+    assertEquals(1, worker.sendDueMessages());
+    assertEquals(List.of(), _outboxRepo.findAll());
+  }
+
+  @Test
+  void sendDueMessages_lastAttemptFails_keptAsFailed() {
+    PatientLink link = createPatientLink();
+    _outboxRepo.save(new SmsOutboxEntry(link, "+12025550100", FROM, "failed"));
+
+    SmsProviderWrapper provider = mock(SmsProviderWrapper.class);
+    when(provider.send(any(), any(), any())).thenThrow(new RuntimeException("PANIC"));
+    SmsOutboxProperties oneAttempt = new SmsOutboxProperties(0, 10, Duration.ofSeconds(1), 1, 5, 1);
+    SmsOutboxWorker worker =
+        new SmsOutboxWorker(
+            _outboxRepo,
+            _tmsRepo,
+            provider,
+            new SmsRateLimiter(oneAttempt),
+            _transactionManager,
+            oneAttempt);
+    assertEquals(0, worker.sendDueMessages());
+
+    List<SmsOutboxEntry> remaining = _outboxRepo.findAll();
+    assertEquals(1, remaining.size());
+    SmsOutboxEntry failed = remaining.get(0);
+    assertTrue(failed.isFailed());
+    assertEquals(1, failed.getAttempts());
+    assertNotNull(failed.getLastError());
+
+    // a failed message is never due again
+    assertEquals(0, worker.sendDueMessages());
+    verify(provider, times(1)).send(any(), any(), any());
+  }
+
+  @Test
+  void retryDelay_repeatedFailures_backsOffUpToHalfAnHour() {
+    assertEquals(Duration.ofSeconds(5), SmsOutboxWorker.RETRY_BACKOFF.delay(1));
+    assertEquals(Duration.ofSeconds(20), SmsOutboxWorker.RETRY_BACKOFF.delay(3));
+    assertEquals(Duration.ofMinutes(30), SmsOutboxWorker.RETRY_BACKOFF.delay(10));
+    assertEquals(Duration.ofMinutes(30), SmsOutboxWorker.RETRY_BACKOFF.delay(1000));
+  }
+
+  private PatientLink createPatientLink() {
+    Organization org = _dataFactory.createValidOrg();
+    Facility facility = _dataFactory.createValidFacility(org);
+    return _dataFactory.createPatientLink(
+        _dataFactory.createTestOrder(_dataFactory.createFullPerson(org), facility));
+  }
+}
@@ -0,0 +1,41 @@
+package gov.cdc.usds.simplereport.service.sms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class SmsRateLimiterTest {
+  private final AtomicLong _now = new AtomicLong();
+  private final SmsRateLimiter _limiter = new SmsRateLimiter(2, 3, _now::get);
+
+  @Test
+  void tryAcquire_burstUsedUp_waitsForNextToken() {
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Duration.ZERO, _limiter.tryAcquire("+12025550100"));
+    }
+    assertEquals(Duration.ofMillis(500), _limiter.tryAcquire("+12025550100"));
+
+    _now.addAndGet(Duration.ofMillis(500).toNanos());
+    assertEquals(Duration.ZERO, _limiter.tryAcquire("+12025550100"));
+    assertEquals(Duration.ofMillis(500), _limiter.tryAcquire("+12025550100"));
+  }
+
+  @Test
+  void tryAcquire_longIdle_refillsNoMoreThanBurst() {
+    _now.addAndGet(Duration.ofHours(1).toNanos());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Duration.ZERO, _limiter.tryAcquire("+12025550100"));
+    }
+    assertEquals(Duration.ofMillis(500), _limiter.tryAcquire("+12025550100"));
+  }
+
+  @Test
+  void tryAcquire_differentNumbers_limitedSeparately() {
+    for (int i = 0; i < 3; i++) {
+      _limiter.tryAcquire("+12025550100");
+    }
+    assertEquals(Duration.ZERO, _limiter.tryAcquire("+12025550101"));
+  }
+}
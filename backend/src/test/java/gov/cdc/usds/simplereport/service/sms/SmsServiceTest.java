@@ -39,6 +39,8 @@ class SmsServiceTest extends BaseServiceTest<SmsService> {
 
   @Autowired SmsService _smsService;
 
+  @Autowired SmsOutboxWorker _outboxWorker;
+
   @Autowired PatientLinkService _patientLinkService;
 
   @Autowired OrganizationService _organizationService;
@@ -79,6 +81,7 @@ class SmsServiceTest extends BaseServiceTest<SmsService> {
     when(mockTwilio.send(toNumber.capture(), fromNumber.capture(), message.capture()))
         .thenReturn("some-twilio-id-1");
     _smsService.sendToPatientLink(_patientLink.getInternalId(), "yup here we are, testing stuff");
+    _outboxWorker.sendDueMessages();
 
     // THEN
     assertEquals(
@@ -0,0 +1,34 @@
+package gov.cdc.usds.simplereport.test_util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Remembers the SQL Hibernate prepares, so that a test can look at (or explain) the statements a
+ * service actually sends. Register it for a test class with the property
+ * spring.jpa.properties.hibernate.session_factory.statement_inspector; note that it replaces the
+ * query counting of HibernateQueryInterceptor there.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+  private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+  @Override
+  public String inspect(String sql) {
+    STATEMENTS.add(sql);
+    return sql;
+  }
+
+  /** The statements prepared since the last {@link #clear}, oldest first. */
+  public static List<String> getStatements() {
+    synchronized (STATEMENTS) {
+      return new ArrayList<>(STATEMENTS);
+    }
+  }
+
+  public static void clear() {
+    STATEMENTS.clear();
+  }
+}
@@ -14,6 +14,7 @@ import gov.cdc.usds.simplereport.config.simplereport.DemoUserConfiguration;
 import gov.cdc.usds.simplereport.config.simplereport.DemoUserConfiguration.DemoUser;
 import gov.cdc.usds.simplereport.db.repository.BaseRepositoryTest;
 import gov.cdc.usds.simplereport.idp.repository.DemoOktaRepository;
+import gov.cdc.usds.simplereport.properties.SmsOutboxProperties;
 import gov.cdc.usds.simplereport.service.ApiUserService;
 import gov.cdc.usds.simplereport.service.AuthorizationService;
 import gov.cdc.usds.simplereport.service.BaseServiceTest;
@@ -97,6 +98,7 @@ import org.springframework.security.test.context.support.WithMockUser;
   InitialSetupProperties.class,
   AuthorizationProperties.class,
   DataHubConfig.class,
+  SmsOutboxProperties.class,
 })
 public class SliceTestConfiguration {
 
@@ -243,6 +243,21 @@ public class TestDataFactory {
     return e;
   }
 
+  /**
+   * Test events at one facility of a new organization, oldest first, each for a different patient:
+   * the first patient has every field filled in, the rest only the required ones.
+   */
+  public List<TestEvent> createTestEvents(int count) {
+    Organization org = createValidOrg();
+    Facility facility = createValidFacility(org);
+    List<TestEvent> events = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Person patient = i == 0 ? createFullPerson(org) : createMinimalPerson(org);
+      events.add(createTestEvent(patient, facility));
+    }
+    return events;
+  }
+
   public TestEvent doTest(TestOrder order, TestResult result) {
     order.setResult(result);
     TestEvent event = _testEventRepo.save(new TestEvent(order));